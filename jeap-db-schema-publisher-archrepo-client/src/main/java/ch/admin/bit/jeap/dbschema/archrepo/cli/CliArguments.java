@@ -0,0 +1,139 @@
+package ch.admin.bit.jeap.dbschema.archrepo.cli;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Arguments of the {@link DbSchemaPublisherCli}. Every option can be given on the command line as
+ * {@code --name=value} or {@code --name value}, or as environment variable {@code DB_SCHEMA_PUBLISHER_NAME} (upper
+ * case, dashes replaced by underscores). The command line takes precedence. Secrets should be passed as environment
+ * variables so that they do not show up in process listings.
+ */
+record CliArguments(
+        String jdbcUrl,
+        String jdbcUser,
+        String jdbcPassword,
+        List<String> schemas,
+        String componentName,
+        String version,
+        String archrepoUrl,
+        String tokenUrl,
+        String clientId,
+        String clientSecret,
+        String scope,
+        Duration connectTimeout,
+        Duration readTimeout) {
+
+    static final String ENV_PREFIX = "DB_SCHEMA_PUBLISHER_";
+
+    static final String USAGE = """
+            Usage: java -cp <jdbc-driver.jar>:jeap-db-schema-publisher-archrepo-client-cli.jar \\
+                       ch.admin.bit.jeap.dbschema.archrepo.cli.DbSchemaPublisherCli [options]
+
+            Reads the schema(s) of a database via JDBC metadata and publishes them to the architecture repository.
+
+            Options (or environment variables DB_SCHEMA_PUBLISHER_<OPTION>, e.g. DB_SCHEMA_PUBLISHER_CLIENT_SECRET):
+              --jdbc-url          JDBC URL of the database (required)
+              --jdbc-user         Database user
+              --jdbc-password     Database password
+              --schema            Schema to publish, comma separated or repeated for several schemas (default: data)
+              --component-name    System component name the schema belongs to (required)
+              --version           Version of the system component (default: na)
+              --archrepo-url      URL of the archrepo service (required)
+              --token-url         OAuth2 token endpoint of the authorization server (required)
+              --client-id         OAuth2 client id (required)
+              --client-secret     OAuth2 client secret (required)
+              --scope             OAuth2 scope to request
+              --connect-timeout   HTTP connect timeout in seconds (default: 5)
+              --read-timeout      HTTP read timeout in seconds (default: 30)
+              --help              Show this help
+            """;
+
+    private static final Set<String> OPTIONS = Set.of("jdbc-url", "jdbc-user", "jdbc-password", "schema",
+            "component-name", "version", "archrepo-url", "token-url", "client-id", "client-secret", "scope",
+            "connect-timeout", "read-timeout");
+
+    /**
+     * @throws IllegalArgumentException if an option is unknown or a required option is missing
+     */
+    static CliArguments parse(String[] args, Map<String, String> env) {
+        Map<String, List<String>> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String name = arg.substring(2);
+            String value;
+            int separator = name.indexOf('=');
+            if (separator >= 0) {
+                value = name.substring(separator + 1);
+                name = name.substring(0, separator);
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("Missing value for option --" + name);
+            }
+            if (!OPTIONS.contains(name)) {
+                throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+            options.computeIfAbsent(name, _ -> new ArrayList<>()).add(value);
+        }
+        OptionLookup lookup = new OptionLookup(options, env);
+
+        List<String> schemas = lookup.values("schema").stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(schema -> !schema.isEmpty())
+                .distinct()
+                .toList();
+
+        return new CliArguments(
+                lookup.required("jdbc-url"),
+                lookup.optional("jdbc-user", null),
+                lookup.optional("jdbc-password", null),
+                schemas.isEmpty() ? List.of("data") : schemas,
+                lookup.required("component-name"),
+                lookup.optional("version", "na"),
+                lookup.required("archrepo-url"),
+                lookup.required("token-url"),
+                lookup.required("client-id"),
+                lookup.required("client-secret"),
+                lookup.optional("scope", null),
+                Duration.ofSeconds(Long.parseLong(lookup.optional("connect-timeout", "5"))),
+                Duration.ofSeconds(Long.parseLong(lookup.optional("read-timeout", "30"))));
+    }
+
+    private record OptionLookup(Map<String, List<String>> options, Map<String, String> env) {
+
+        List<String> values(String name) {
+            List<String> values = options.get(name);
+            if (values != null) {
+                return values;
+            }
+            String envValue = env.get(ENV_PREFIX + name.toUpperCase(Locale.ROOT).replace('-', '_'));
+            return envValue != null ? List.of(envValue) : List.of();
+        }
+
+        String optional(String name, String defaultValue) {
+            List<String> values = values(name);
+            return values.isEmpty() ? defaultValue : values.getLast();
+        }
+
+        String required(String name) {
+            String value = optional(name, null);
+            if (value == null || value.isBlank()) {
+                throw new IllegalArgumentException("Missing required option --" + name);
+            }
+            return value;
+        }
+    }
+
+    @Override
+    public String toString() {
+        // Never print the secrets
+        return "CliArguments[jdbcUrl=" + jdbcUrl + ", jdbcUser=" + jdbcUser + ", schemas=" + schemas +
+                ", componentName=" + componentName + ", version=" + version + ", archrepoUrl=" + archrepoUrl +
+                ", tokenUrl=" + tokenUrl + ", clientId=" + clientId + "]";
+    }
+}
@@ -0,0 +1,111 @@
+package ch.admin.bit.jeap.dbschema.archrepo.cli;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryClient;
+import ch.admin.bit.jeap.dbschema.archrepo.client.ClientCredentialsTokenProvider;
+import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.reader.CatalogCallStatistics;
+import ch.admin.bit.jeap.dbschema.reader.CatalogInstrumentation;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spring-free command line tool publishing database schemas to the archrepo, e.g. from CI pipelines or Kubernetes
+ * jobs. Reads the schemas with {@link DatabaseModelReader} over a single JDBC connection and uploads them with the
+ * {@link ArchitectureRepositoryClient}. See {@link CliArguments#USAGE} for the options.
+ * <p>
+ * Exit codes: {@code 0} on success, {@code 1} if reading or publishing failed, {@code 2} on invalid arguments.
+ */
+@Slf4j
+public final class DbSchemaPublisherCli {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final Duration SLOW_CATALOG_CALL_THRESHOLD = Duration.ofMillis(500);
+
+    private DbSchemaPublisherCli() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.getenv()));
+    }
+
+    static int run(String[] args, Map<String, String> env) {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.println(CliArguments.USAGE);
+            return EXIT_OK;
+        }
+
+        CliArguments arguments;
+        try {
+            arguments = CliArguments.parse(args, env);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(CliArguments.USAGE);
+            return EXIT_USAGE;
+        }
+
+        try {
+            publish(arguments);
+            return EXIT_OK;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while publishing database schema", ex);
+            return EXIT_FAILED;
+        } catch (Exception ex) {
+            log.error("Failed to publish database schema", ex);
+            return EXIT_FAILED;
+        }
+    }
+
+    private static void publish(CliArguments arguments) throws Exception {
+        log.info("Publishing database schema(s) with {}", arguments);
+        try (HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(arguments.connectTimeout())
+                .build()) {
+            ClientCredentialsTokenProvider tokenProvider = new ClientCredentialsTokenProvider(httpClient,
+                    URI.create(arguments.tokenUrl()), arguments.clientId(), arguments.clientSecret(),
+                    arguments.scope(), arguments.readTimeout());
+            ArchitectureRepositoryClient client = new ArchitectureRepositoryClient(httpClient,
+                    arguments.archrepoUrl(), tokenProvider, arguments.readTimeout());
+
+            List<DatabaseSchema> schemas = readSchemas(arguments);
+            for (DatabaseSchema schema : schemas) {
+                client.publishDbSchema(new CreateOrUpdateDbSchemaDto(arguments.componentName(), schema));
+                log.info("Published schema {} with {} tables", schema.name(), schema.tables().size());
+            }
+        }
+    }
+
+    private static List<DatabaseSchema> readSchemas(CliArguments arguments) throws Exception {
+        CatalogCallStatistics catalogCallStatistics = new CatalogCallStatistics();
+        DatabaseModelReader reader = new DatabaseModelReader(
+                CatalogInstrumentation.of(SLOW_CATALOG_CALL_THRESHOLD, catalogCallStatistics));
+        // Read everything before publishing anything, so that the connection is not held during the uploads
+        try (Connection connection = DriverManager.getConnection(arguments.jdbcUrl(), arguments.jdbcUser(), arguments.jdbcPassword())) {
+            connection.setReadOnly(true);
+            List<DatabaseSchema> schemas = new ArrayList<>();
+            for (String schemaName : arguments.schemas()) {
+                schemas.add(reader.readDatabaseModelFrom(connection, schemaName, arguments.version()));
+            }
+            catalogCallStatistics.snapshot().forEach((method, statistics) ->
+                    log.info("Catalog calls {}: {} calls, {} rows, {} ms in total, slowest {} ms", method,
+                            statistics.calls(), statistics.rows(), statistics.totalTime().toMillis(),
+                            statistics.maxTime().toMillis()));
+            return schemas;
+        }
+    }
+}
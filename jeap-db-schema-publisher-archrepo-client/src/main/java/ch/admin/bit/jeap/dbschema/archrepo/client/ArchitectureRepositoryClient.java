@@ -0,0 +1,52 @@
+package ch.admin.bit.jeap.dbschema.archrepo.client;
+
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Plain-Java client for the archrepo db schema API, based on the JDK {@link HttpClient}. Used where no Spring
+ * application context is available, e.g. by the CLI.
+ */
+@Slf4j
+public class ArchitectureRepositoryClient {
+
+    static final String DB_SCHEMAS_PATH = "/api/dbschemas";
+
+    private final HttpClient httpClient;
+    private final URI dbSchemasUri;
+    private final ClientCredentialsTokenProvider tokenProvider;
+    private final Duration readTimeout;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    public ArchitectureRepositoryClient(HttpClient httpClient, String archrepoUrl,
+                                        ClientCredentialsTokenProvider tokenProvider, Duration readTimeout) {
+        this.httpClient = httpClient;
+        this.dbSchemasUri = URI.create(archrepoUrl.replaceAll("/+$", "") + DB_SCHEMAS_PATH);
+        this.tokenProvider = tokenProvider;
+        this.readTimeout = readTimeout;
+    }
+
+    public void publishDbSchema(CreateOrUpdateDbSchemaDto dto) throws IOException, InterruptedException {
+        byte[] body = jsonMapper.writeValueAsBytes(dto);
+        HttpRequest request = HttpRequest.newBuilder(dbSchemasUri)
+                .timeout(readTimeout)
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + tokenProvider.getAccessToken())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+
+        log.debug("Posting {} bytes to {}", body.length, dbSchemasUri);
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("Publishing database schema to " + dbSchemasUri + " failed with HTTP status " +
+                    response.statusCode() + ": " + response.body());
+        }
+    }
+}
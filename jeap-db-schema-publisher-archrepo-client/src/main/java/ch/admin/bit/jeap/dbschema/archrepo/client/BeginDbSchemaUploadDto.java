@@ -0,0 +1,9 @@
+package ch.admin.bit.jeap.dbschema.archrepo.client;
+
+/**
+ * Begins a paginated upload of the schema {@code schemaName} in {@code version}, whose {@code tableCount} tables
+ * follow in {@code pageCount} pages.
+ */
+public record BeginDbSchemaUploadDto(String systemComponentName, String schemaName, String version, int tableCount,
+                                     int pageCount) {
+}
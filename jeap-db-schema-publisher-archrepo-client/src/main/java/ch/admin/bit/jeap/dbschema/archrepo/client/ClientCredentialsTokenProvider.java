@@ -0,0 +1,94 @@
+package ch.admin.bit.jeap.dbschema.archrepo.client;
+
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Fetches access tokens with the OAuth2 client credentials grant, authenticating with {@code client_secret_basic}.
+ * Tokens are cached until shortly before they expire, tokens of responses without {@code expires_in} for five
+ * minutes. Plain-Java counterpart of the Spring Security OAuth2 client used by the starter.
+ */
+@Slf4j
+public class ClientCredentialsTokenProvider {
+
+    private static final Duration EXPIRY_MARGIN = Duration.ofSeconds(30);
+    // Assumed if the token response does not tell, the expiry margin is subtracted from it as from any other lifetime
+    private static final Duration DEFAULT_LIFETIME = Duration.ofMinutes(5);
+
+    private final HttpClient httpClient;
+    private final URI tokenUri;
+    private final String clientId;
+    private final String clientSecret;
+    private final String scope;
+    private final Duration timeout;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    private String accessToken;
+    private Instant expiresAt = Instant.MIN;
+
+    /**
+     * @param scope requested scope, or {@code null} to request the client's default scope
+     */
+    public ClientCredentialsTokenProvider(HttpClient httpClient, URI tokenUri, String clientId, String clientSecret,
+                                          String scope, Duration timeout) {
+        this.httpClient = httpClient;
+        this.tokenUri = tokenUri;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.scope = scope;
+        this.timeout = timeout;
+    }
+
+    public synchronized String getAccessToken() throws IOException, InterruptedException {
+        if (accessToken == null || Instant.now().isAfter(expiresAt.minus(EXPIRY_MARGIN))) {
+            fetchAccessToken();
+        }
+        return accessToken;
+    }
+
+    private void fetchAccessToken() throws IOException, InterruptedException {
+        log.debug("Fetching access token for client {} from {}", clientId, tokenUri);
+        String form = "grant_type=client_credentials" + (scope != null ? "&scope=" + urlEncode(scope) : "");
+        String credentials = urlEncode(clientId) + ":" + urlEncode(clientSecret);
+        HttpRequest request = HttpRequest.newBuilder(tokenUri)
+                .timeout(timeout)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Accept", "application/json")
+                .header("Authorization", "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)))
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("client credentials flow on " + tokenUri + " failed with HTTP status " +
+                    response.statusCode() + ": " + response.body());
+        }
+
+        JsonNode tokenResponse = jsonMapper.readTree(response.body());
+        JsonNode token = tokenResponse.get("access_token");
+        if (token == null || token.isNull()) {
+            throw new IllegalStateException("client credentials flow on " + tokenUri + " failed, no access_token in response");
+        }
+        JsonNode expiresIn = tokenResponse.get("expires_in");
+        accessToken = token.asString();
+        expiresAt = expiresIn != null && expiresIn.canConvertToLong() ?
+                Instant.now().plusSeconds(expiresIn.asLong()) :
+                Instant.now().plus(DEFAULT_LIFETIME);
+    }
+
+    private static String urlEncode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
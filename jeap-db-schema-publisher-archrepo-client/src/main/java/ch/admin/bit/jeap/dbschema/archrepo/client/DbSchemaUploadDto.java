@@ -0,0 +1,7 @@
+package ch.admin.bit.jeap.dbschema.archrepo.client;
+
+/**
+ * A paginated upload begun on the archrepo, to which the pages are sent.
+ */
+public record DbSchemaUploadDto(String uploadId) {
+}
@@ -0,0 +1,12 @@
+package ch.admin.bit.jeap.dbschema.archrepo.client;
+
+import ch.admin.bit.jeap.dbschema.model.Table;
+
+import java.util.List;
+
+/**
+ * The tables of one page of a paginated upload. The schema committed consists of the tables of all pages in the
+ * order of their page numbers.
+ */
+public record DbSchemaUploadPageDto(List<Table> tables) {
+}
@@ -0,0 +1,13 @@
+package ch.admin.bit.jeap.dbschema.archrepo.client;
+
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+
+import java.util.List;
+
+/**
+ * The schemas of a schema-per-tenant database: the {@code template} structure shared by the schemas named in
+ * {@code tenants}, and the schemas of the remaining tenants, the {@code outliers}, each with its own structure.
+ */
+public record TenantDbSchemasDto(String systemComponentName, DatabaseSchema template, List<String> tenants,
+                                 List<DatabaseSchema> outliers) {
+}
@@ -0,0 +1,138 @@
+package ch.admin.bit.jeap.dbschema.archrepo.cli;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DbSchemaPublisherCliTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:clitest;DB_CLOSE_DELAY=-1";
+    private static final String API_DBSCHEMAS_PATH = "/api/dbschemas";
+    private static final String OAUTH_TOKEN_PATH = "/oauth/token";
+
+    static WireMockServer wireMockServer = new WireMockServer(wireMockConfig()
+            .dynamicPort()
+            .http2PlainDisabled(true));
+
+    private static Connection keepAlive;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        wireMockServer.start();
+        keepAlive = DriverManager.getConnection(JDBC_URL);
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("CREATE SCHEMA DATA");
+            statement.execute("CREATE TABLE DATA.USERS (ID BIGINT PRIMARY KEY, NAME VARCHAR(100) NOT NULL)");
+            statement.execute("CREATE SCHEMA AUDIT");
+            statement.execute("CREATE TABLE AUDIT.EVENTS (ID BIGINT PRIMARY KEY, USER_ID BIGINT)");
+        }
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        keepAlive.close();
+        wireMockServer.stop();
+    }
+
+    @BeforeEach
+    void setUpStubs() {
+        wireMockServer.resetAll();
+        wireMockServer.stubFor(post(urlEqualTo(OAUTH_TOKEN_PATH))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"access_token\":\"test-token\",\"token_type\":\"Bearer\",\"expires_in\":3600}")));
+        wireMockServer.stubFor(post(urlEqualTo(API_DBSCHEMAS_PATH))
+                .willReturn(aResponse().withStatus(200)));
+    }
+
+    @Test
+    void run_publishesEachSchemaWithBearerToken() {
+        int exitCode = DbSchemaPublisherCli.run(new String[]{
+                "--jdbc-url", JDBC_URL,
+                "--schema=DATA,AUDIT",
+                "--component-name", "test-app",
+                "--version", "1.2.3",
+                "--archrepo-url", wireMockServer.baseUrl() + "/",
+                "--token-url", wireMockServer.baseUrl() + OAUTH_TOKEN_PATH,
+                "--client-id", "archrepo-client"
+        }, Map.of(CliArguments.ENV_PREFIX + "CLIENT_SECRET", "secret"));
+
+        assertThat(exitCode).isEqualTo(DbSchemaPublisherCli.EXIT_OK);
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo(OAUTH_TOKEN_PATH))
+                .withHeader("Authorization", equalTo("Basic YXJjaHJlcG8tY2xpZW50OnNlY3JldA=="))
+                .withRequestBody(equalTo("grant_type=client_credentials")));
+        var requests = wireMockServer.findAll(postRequestedFor(urlEqualTo(API_DBSCHEMAS_PATH)));
+        assertThat(requests).hasSize(2);
+        assertThat(requests).allSatisfy(request -> {
+            assertThat(request.getHeader("Authorization")).isEqualTo("Bearer test-token");
+            assertThat(request.getHeader("Content-Type")).isEqualTo("application/json");
+        });
+        assertThat(requests.getFirst().getBodyAsString())
+                .contains("\"systemComponentName\":\"test-app\"")
+                .contains("\"name\":\"DATA\"")
+                .contains("\"version\":\"1.2.3\"")
+                .contains("\"USERS\"");
+        assertThat(requests.getLast().getBodyAsString())
+                .contains("\"name\":\"AUDIT\"")
+                .contains("\"EVENTS\"");
+    }
+
+    @Test
+    void run_whenTokenResponseHasNoExpiry_thenReusesToken() {
+        wireMockServer.stubFor(post(urlEqualTo(OAUTH_TOKEN_PATH))
+                .willReturn(okJson("{\"access_token\":\"test-token\",\"token_type\":\"Bearer\"}")));
+
+        int exitCode = DbSchemaPublisherCli.run(new String[]{
+                "--jdbc-url", JDBC_URL,
+                "--schema=DATA,AUDIT",
+                "--component-name", "test-app",
+                "--version", "1.2.3",
+                "--archrepo-url", wireMockServer.baseUrl() + "/",
+                "--token-url", wireMockServer.baseUrl() + OAUTH_TOKEN_PATH,
+                "--client-id", "archrepo-client"
+        }, Map.of(CliArguments.ENV_PREFIX + "CLIENT_SECRET", "secret"));
+
+        assertThat(exitCode).isEqualTo(DbSchemaPublisherCli.EXIT_OK);
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo(OAUTH_TOKEN_PATH)));
+        wireMockServer.verify(2, postRequestedFor(urlEqualTo(API_DBSCHEMAS_PATH)));
+    }
+
+    @Test
+    void run_whenArchrepoRejectsSchema_thenFails() {
+        wireMockServer.stubFor(post(urlEqualTo(API_DBSCHEMAS_PATH))
+                .willReturn(aResponse().withStatus(500)));
+
+        int exitCode = DbSchemaPublisherCli.run(new String[]{
+                "--jdbc-url", JDBC_URL,
+                "--component-name", "test-app",
+                "--schema", "DATA",
+                "--archrepo-url", wireMockServer.baseUrl(),
+                "--token-url", wireMockServer.baseUrl() + OAUTH_TOKEN_PATH,
+                "--client-id", "archrepo-client",
+                "--client-secret", "secret"
+        }, Map.of());
+
+        assertThat(exitCode).isEqualTo(DbSchemaPublisherCli.EXIT_FAILED);
+    }
+
+    @Test
+    void run_whenRequiredOptionMissing_thenReportsUsageError() {
+        int exitCode = DbSchemaPublisherCli.run(new String[]{"--jdbc-url", JDBC_URL}, Map.of());
+
+        assertThat(exitCode).isEqualTo(DbSchemaPublisherCli.EXIT_USAGE);
+        wireMockServer.verify(0, postRequestedFor(anyUrl()));
+    }
+}
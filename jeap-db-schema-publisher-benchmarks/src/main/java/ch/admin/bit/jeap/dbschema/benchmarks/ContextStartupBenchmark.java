@@ -0,0 +1,99 @@
+package ch.admin.bit.jeap.dbschema.benchmarks;
+
+import ch.admin.bit.jeap.dbschema.publisher.DbSchemaPublisherAutoConfiguration;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticCatalog;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.security.oauth2.client.InMemoryOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.web.client.RestClient;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the application context of a minimal service with and without the publisher's auto-configuration. The
+ * difference is the time the starter adds to the startup of a service. Each fork refreshes a single context in a new
+ * JVM, so that the result includes class loading and runs on a cold JIT like a real startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ContextStartupBenchmark {
+
+    @Param({"false", "true"})
+    boolean withStarter;
+
+    private ConfigurableApplicationContext context;
+
+    @Benchmark
+    public ConfigurableApplicationContext refreshContext() {
+        AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "spring.application.name", "benchmark-service",
+                "jeap.archrepo.url", "http://localhost/archrepo")));
+        applicationContext.register(ServiceConfiguration.class);
+        if (withStarter) {
+            applicationContext.register(StarterConfiguration.class);
+        }
+        applicationContext.refresh();
+        context = applicationContext;
+        return applicationContext;
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeContext() {
+        context.close();
+    }
+
+    /**
+     * The beans the starter needs from a service, present in both variants so that only the starter is measured.
+     */
+    @Configuration(proxyBeanMethods = false)
+    static class ServiceConfiguration {
+
+        @Bean
+        DataSource dataSource() {
+            return new SyntheticCatalog(SyntheticSchema.of(10)).dataSource();
+        }
+
+        @Bean
+        ClientRegistrationRepository clientRegistrationRepository() {
+            return new InMemoryClientRegistrationRepository(ClientRegistration.withRegistrationId("archrepo-client")
+                    .clientId("benchmark-service")
+                    .clientSecret("secret")
+                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                    .tokenUri("http://localhost/oauth/token")
+                    .build());
+        }
+
+        @Bean
+        OAuth2AuthorizedClientService authorizedClientService(ClientRegistrationRepository clientRegistrationRepository) {
+            return new InMemoryOAuth2AuthorizedClientService(clientRegistrationRepository);
+        }
+
+        @Bean
+        RestClient.Builder restClientBuilder() {
+            return RestClient.builder();
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @Import(DbSchemaPublisherAutoConfiguration.class)
+    static class StarterConfiguration {
+    }
+}
@@ -0,0 +1,47 @@
+package ch.admin.bit.jeap.dbschema.benchmarks;
+
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticCatalog;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the table model and the schema fingerprint from a {@link SyntheticCatalog}, i.e. the cost of the reader
+ * itself without the catalog queries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelReadingBenchmark {
+
+    static final int COLUMNS_PER_TABLE = 12;
+
+    @Param({"100", "1000", "10000"})
+    int tables;
+
+    private final DatabaseModelReader databaseModelReader = new DatabaseModelReader();
+    private Connection connection;
+
+    @Setup
+    public void setUp() {
+        connection = new SyntheticCatalog(SyntheticSchema.of(tables).withColumnsPerTable(COLUMNS_PER_TABLE)).connection();
+    }
+
+    @Benchmark
+    public DatabaseSchema readDatabaseModel() throws SQLException {
+        return databaseModelReader.readDatabaseModelFrom(connection, SyntheticSchema.DEFAULT_SCHEMA_NAME, "1.0.0");
+    }
+
+    @Benchmark
+    public String readSchemaFingerprint() throws SQLException {
+        return databaseModelReader.readSchemaFingerprint(connection, SyntheticSchema.DEFAULT_SCHEMA_NAME);
+    }
+}
@@ -0,0 +1,59 @@
+package ch.admin.bit.jeap.dbschema.benchmarks;
+
+import ch.admin.bit.jeap.dbschema.diff.SchemaChanges;
+import ch.admin.bit.jeap.dbschema.diff.SchemaDiff;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares two versions of a schema with {@link SchemaDiff}: an unchanged copy, and a version in which every hundredth
+ * table got an additional column. Both versions are built from separate instances, so that the comparison cannot
+ * short-cut on identical objects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaDiffBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int tables;
+
+    private DatabaseSchema previous;
+    private DatabaseSchema unchanged;
+    private DatabaseSchema altered;
+
+    @Setup
+    public void setUp() {
+        SyntheticSchema schema = SyntheticSchema.of(tables).withColumnsPerTable(ModelReadingBenchmark.COLUMNS_PER_TABLE);
+        previous = new DatabaseSchema(schema.schemaName(), "1.0.0", schema.tables());
+        unchanged = new DatabaseSchema(schema.schemaName(), "1.0.1", schema.tables());
+        List<Table> alteredTables = new ArrayList<>(schema.tables());
+        for (int i = 0; i < alteredTables.size(); i += 100) {
+            Table table = alteredTables.get(i);
+            List<TableColumn> columns = new ArrayList<>(table.columns());
+            columns.add(new TableColumn("added", "INTEGER", true));
+            alteredTables.set(i, new Table(table.name(), columns, table.foreignKeys(), table.primaryKey()));
+        }
+        altered = new DatabaseSchema(schema.schemaName(), "1.0.1", alteredTables);
+    }
+
+    @Benchmark
+    public SchemaChanges diffUnchanged() {
+        return SchemaDiff.between(previous, unchanged);
+    }
+
+    @Benchmark
+    public SchemaChanges diffAltered() {
+        return SchemaDiff.between(previous, altered);
+    }
+}
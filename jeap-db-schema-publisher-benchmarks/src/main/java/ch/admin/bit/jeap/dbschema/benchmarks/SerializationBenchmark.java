@@ -0,0 +1,39 @@
+package ch.admin.bit.jeap.dbschema.benchmarks;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes the upload payload to JSON with a mapper configured like the one of the archrepo client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int tables;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private CreateOrUpdateDbSchemaDto dto;
+
+    @Setup
+    public void setUp() {
+        SyntheticSchema schema = SyntheticSchema.of(tables).withColumnsPerTable(ModelReadingBenchmark.COLUMNS_PER_TABLE);
+        dto = new CreateOrUpdateDbSchemaDto("benchmark-service",
+                new DatabaseSchema(schema.schemaName(), "1.0.0", schema.tables()));
+    }
+
+    @Benchmark
+    public byte[] serializeDto() {
+        return jsonMapper.writeValueAsBytes(dto);
+    }
+}
@@ -0,0 +1,12 @@
+package ch.admin.bit.jeap.dbschema.diff;
+
+/**
+ * An element present in both schemas, but different.
+ *
+ * @param previous The element in the previous schema, {@code null} if it did not exist (only for primary keys)
+ * @param current  The element in the current schema, {@code null} if it no longer exists (only for primary keys)
+ */
+public record Change<T>(
+        T previous,
+        T current) {
+}
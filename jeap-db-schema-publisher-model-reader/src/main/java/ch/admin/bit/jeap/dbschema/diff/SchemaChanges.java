@@ -0,0 +1,31 @@
+package ch.admin.bit.jeap.dbschema.diff;
+
+import ch.admin.bit.jeap.dbschema.model.Table;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Structural changes from a previous to a current schema, as computed by {@link SchemaDiff}. Added and altered tables
+ * are in the order of the current schema, removed tables in the order of the previous one.
+ */
+public record SchemaChanges(
+        List<Table> addedTables,
+        List<Table> removedTables,
+        List<TableChanges> alteredTables) {
+
+    public boolean isEmpty() {
+        return addedTables.isEmpty() && removedTables.isEmpty() && alteredTables.isEmpty();
+    }
+
+    /**
+     * @return The changes in a compact form for logging, e.g.
+     * {@code added tables [invoice], removed tables [], altered tables [orders(+column note)]}
+     */
+    public String summary() {
+        return "added tables " + addedTables.stream().map(Table::name).toList() +
+                ", removed tables " + removedTables.stream().map(Table::name).toList() +
+                ", altered tables " + alteredTables.stream().map(TableChanges::summary)
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+}
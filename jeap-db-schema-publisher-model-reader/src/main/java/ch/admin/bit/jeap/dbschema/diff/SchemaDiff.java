@@ -0,0 +1,126 @@
+package ch.admin.bit.jeap.dbschema.diff;
+
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import ch.admin.bit.jeap.dbschema.model.TableForeignKey;
+import ch.admin.bit.jeap.dbschema.model.TablePrimaryKey;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Computes the structural changes between two versions of a schema in time linear in its size. Both schemas are
+ * indexed by table name. Tables present in both are compared with {@code equals}, which stops at the first difference,
+ * and only those that differ are compared column by column and key by key. Their hash codes are not used, records
+ * do not cache them, so computing them would walk both tables in full.
+ * <p>
+ * The schema name and version are not compared.
+ */
+public final class SchemaDiff {
+
+    private SchemaDiff() {
+    }
+
+    public static SchemaChanges between(DatabaseSchema previous, DatabaseSchema current) {
+        List<Table> previousTables = nullToEmpty(previous.tables());
+        List<Table> currentTables = nullToEmpty(current.tables());
+        Map<String, Table> unmatchedPreviousTables = index(previousTables, Table::name);
+
+        List<Table> addedTables = new ArrayList<>();
+        List<TableChanges> alteredTables = new ArrayList<>();
+        for (Table currentTable : currentTables) {
+            Table previousTable = unmatchedPreviousTables.remove(currentTable.name());
+            if (previousTable == null) {
+                addedTables.add(currentTable);
+            } else if (!previousTable.equals(currentTable)) {
+                TableChanges tableChanges = compare(previousTable, currentTable);
+                if (tableChanges != null) {
+                    alteredTables.add(tableChanges);
+                }
+            }
+        }
+        List<Table> removedTables = previousTables.stream()
+                .filter(table -> unmatchedPreviousTables.containsKey(table.name()))
+                .toList();
+        return new SchemaChanges(List.copyOf(addedTables), removedTables, List.copyOf(alteredTables));
+    }
+
+    /**
+     * @return The changes, or {@code null} if the tables only differ in a way not reported, e.g. the order of the
+     * foreign keys
+     */
+    private static TableChanges compare(Table previous, Table current) {
+        Diff<TableColumn> columns = diff(nullToEmpty(previous.columns()), nullToEmpty(current.columns()), TableColumn::name);
+        Diff<TableForeignKey> foreignKeys = diff(nullToEmpty(previous.foreignKeys()), nullToEmpty(current.foreignKeys()),
+                SchemaDiff::foreignKeyIdentity);
+        boolean columnsReordered = !columns.commonOrderPreserved();
+        Change<TablePrimaryKey> primaryKey = Objects.equals(previous.primaryKey(), current.primaryKey()) ? null :
+                new Change<>(previous.primaryKey(), current.primaryKey());
+        if (columns.isEmpty() && !columnsReordered && primaryKey == null && foreignKeys.isEmpty()) {
+            return null;
+        }
+        return new TableChanges(current.name(),
+                columns.added(), columns.removed(), columns.altered(), columnsReordered,
+                primaryKey,
+                foreignKeys.added(), foreignKeys.removed(), foreignKeys.altered());
+    }
+
+    private static Object foreignKeyIdentity(TableForeignKey foreignKey) {
+        return foreignKey.name() != null ? foreignKey.name() :
+                List.of(foreignKey.columnNames(), Objects.toString(foreignKey.referencedTableName()));
+    }
+
+    private static <T, K> Diff<T> diff(List<T> previous, List<T> current, Function<T, K> identity) {
+        Map<K, T> unmatchedPrevious = index(previous, identity);
+        Map<K, Integer> previousPositions = new HashMap<>();
+        for (int i = 0; i < previous.size(); i++) {
+            previousPositions.put(identity.apply(previous.get(i)), i);
+        }
+        List<T> added = new ArrayList<>();
+        List<Change<T>> altered = new ArrayList<>();
+        boolean commonOrderPreserved = true;
+        int lastPreviousPosition = -1;
+        for (T currentElement : current) {
+            K key = identity.apply(currentElement);
+            T previousElement = unmatchedPrevious.remove(key);
+            if (previousElement == null) {
+                added.add(currentElement);
+                continue;
+            }
+            if (!previousElement.equals(currentElement)) {
+                altered.add(new Change<>(previousElement, currentElement));
+            }
+            int previousPosition = previousPositions.get(key);
+            commonOrderPreserved &= previousPosition > lastPreviousPosition;
+            lastPreviousPosition = previousPosition;
+        }
+        List<T> removed = previous.stream()
+                .filter(element -> unmatchedPrevious.containsKey(identity.apply(element)))
+                .toList();
+        return new Diff<>(List.copyOf(added), removed, List.copyOf(altered), commonOrderPreserved);
+    }
+
+    private static <T, K> Map<K, T> index(List<T> elements, Function<T, K> identity) {
+        Map<K, T> index = HashMap.newHashMap(elements.size());
+        for (T element : elements) {
+            index.put(identity.apply(element), element);
+        }
+        return index;
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+
+    private record Diff<T>(List<T> added, List<T> removed, List<Change<T>> altered, boolean commonOrderPreserved) {
+
+        boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && altered.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ch.admin.bit.jeap.dbschema.diff;
+
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import ch.admin.bit.jeap.dbschema.model.TableForeignKey;
+import ch.admin.bit.jeap.dbschema.model.TablePrimaryKey;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changes of a table present in both schemas. Columns are matched by name, foreign keys by name or, if unnamed, by
+ * their columns and referenced table.
+ *
+ * @param primaryKey       The change of the primary key, {@code null} if unchanged
+ * @param columnsReordered Whether the columns present in both schemas are in a different order
+ */
+public record TableChanges(
+        String tableName,
+        List<TableColumn> addedColumns,
+        List<TableColumn> removedColumns,
+        List<Change<TableColumn>> alteredColumns,
+        boolean columnsReordered,
+        Change<TablePrimaryKey> primaryKey,
+        List<TableForeignKey> addedForeignKeys,
+        List<TableForeignKey> removedForeignKeys,
+        List<Change<TableForeignKey>> alteredForeignKeys) {
+
+    /**
+     * @return The changes in a compact form, e.g. {@code orders(+column note, ~column amount, -foreign key orders_fk)}
+     */
+    public String summary() {
+        List<String> changes = new ArrayList<>();
+        addedColumns.forEach(column -> changes.add("+column " + column.name()));
+        removedColumns.forEach(column -> changes.add("-column " + column.name()));
+        alteredColumns.forEach(change -> changes.add("~column " + change.current().name()));
+        if (columnsReordered) {
+            changes.add("~column order");
+        }
+        if (primaryKey != null) {
+            changes.add(primaryKey.previous() == null ? "+primary key" :
+                    primaryKey.current() == null ? "-primary key" : "~primary key");
+        }
+        addedForeignKeys.forEach(foreignKey -> changes.add("+foreign key " + label(foreignKey)));
+        removedForeignKeys.forEach(foreignKey -> changes.add("-foreign key " + label(foreignKey)));
+        alteredForeignKeys.forEach(change -> changes.add("~foreign key " + label(change.current())));
+        return tableName + "(" + String.join(", ", changes) + ")";
+    }
+
+    private static String label(TableForeignKey foreignKey) {
+        return foreignKey.name() != null ? foreignKey.name() : "to " + foreignKey.referencedTableName();
+    }
+}
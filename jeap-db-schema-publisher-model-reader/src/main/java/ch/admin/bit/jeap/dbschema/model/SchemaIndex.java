@@ -0,0 +1,231 @@
+package ch.admin.bit.jeap.dbschema.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Read-only index of a {@link DatabaseSchema} for lookups in constant time: tables by name, columns by table and
+ * column name, and the foreign keys referencing a table. Also orders the tables by their foreign keys. Each part is
+ * built on first use, so an index only costs what its consumer queries. Thread-safe.
+ * <p>
+ * The index reflects the schema at the time of its creation, create a new one for another version of the schema.
+ */
+public final class SchemaIndex {
+
+    private final DatabaseSchema schema;
+    private final Map<String, Table> tablesByName;
+    private final ConcurrentMap<String, Map<String, TableColumn>> columnsByTable = new ConcurrentHashMap<>();
+    private final Lazy<Map<String, List<Reference>>> referencesByTable = new Lazy<>(this::indexReferences);
+    private final Lazy<ForeignKeyOrder> foreignKeyOrder = new Lazy<>(this::orderByForeignKeys);
+
+    private SchemaIndex(DatabaseSchema schema) {
+        this.schema = schema;
+        this.tablesByName = index(schema.tables(), Table::name);
+    }
+
+    public static SchemaIndex of(DatabaseSchema schema) {
+        return new SchemaIndex(schema);
+    }
+
+    public DatabaseSchema schema() {
+        return schema;
+    }
+
+    public Optional<Table> table(String tableName) {
+        return Optional.ofNullable(tablesByName.get(tableName));
+    }
+
+    public Optional<TableColumn> column(String tableName, String columnName) {
+        Table table = tablesByName.get(tableName);
+        if (table == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(columnsByTable
+                .computeIfAbsent(tableName, _ -> index(table.columns(), TableColumn::name))
+                .get(columnName));
+    }
+
+    /**
+     * @return The foreign keys referencing the table, in the order of the tables declaring them. Includes
+     * references of a table to itself.
+     */
+    public List<Reference> referencingForeignKeys(String tableName) {
+        return referencesByTable.get().getOrDefault(tableName, List.of());
+    }
+
+    /**
+     * @return The tables ordered so that every table follows the tables it references, e.g. to create or fill them in
+     * this order. A schema already in such an order is returned unchanged. Otherwise, tables independent of each
+     * other do not necessarily keep their order in the schema: a table is placed right after the tables it
+     * references, e.g. {@code [a, b, c]} where {@code a} references {@code c} is ordered {@code [c, a, b]}. References
+     * of a table to itself and to tables outside the schema are ignored.
+     * @throws IllegalStateException If foreign keys form a cycle, see {@link #foreignKeyCycles()}
+     */
+    public List<Table> topologicalOrder() {
+        ForeignKeyOrder order = foreignKeyOrder.get();
+        if (!order.cycles().isEmpty()) {
+            throw new IllegalStateException("Foreign keys form cycles between the tables " + order.cycles());
+        }
+        return order.tables();
+    }
+
+    /**
+     * @return The groups of tables whose foreign keys reference each other in a cycle, each group in schema order.
+     * Empty if the tables can be ordered topologically.
+     */
+    public List<List<String>> foreignKeyCycles() {
+        return foreignKeyOrder.get().cycles();
+    }
+
+    private Map<String, List<Reference>> indexReferences() {
+        Map<String, List<Reference>> references = new HashMap<>();
+        for (Table table : schema.tables()) {
+            for (TableForeignKey foreignKey : nullToEmpty(table.foreignKeys())) {
+                if (foreignKey.referencedTableName() == null) {
+                    continue;
+                }
+                references.computeIfAbsent(foreignKey.referencedTableName(), _ -> new ArrayList<>())
+                        .add(new Reference(table, foreignKey));
+            }
+        }
+        return references.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> List.copyOf(entry.getValue())));
+    }
+
+    /**
+     * Finds the strongly connected components of the graph of tables and their references with Tarjan's algorithm,
+     * iteratively so that long chains of references cannot overflow the stack. A component is only completed after
+     * all components it references, so the completion order is a topological order with the referenced tables first.
+     */
+    private ForeignKeyOrder orderByForeignKeys() {
+        List<Table> tables = schema.tables();
+        int tableCount = tables.size();
+        Map<String, Integer> positions = HashMap.newHashMap(tableCount);
+        for (int i = 0; i < tableCount; i++) {
+            positions.put(tables.get(i).name(), i);
+        }
+        int[][] referencedTables = new int[tableCount][];
+        for (int i = 0; i < tableCount; i++) {
+            int self = i;
+            referencedTables[i] = nullToEmpty(tables.get(i).foreignKeys()).stream()
+                    .map(foreignKey -> positions.get(foreignKey.referencedTableName()))
+                    .filter(position -> position != null && position != self)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+
+        int[] discovery = new int[tableCount];
+        Arrays.fill(discovery, -1);
+        int[] lowLink = new int[tableCount];
+        int[] nextReference = new int[tableCount];
+        boolean[] onStack = new boolean[tableCount];
+        int[] stack = new int[tableCount];
+        int stackSize = 0;
+        int[] path = new int[tableCount];
+        int discovered = 0;
+        List<Table> ordered = new ArrayList<>(tableCount);
+        List<List<String>> cycles = new ArrayList<>();
+
+        for (int root = 0; root < tableCount; root++) {
+            if (discovery[root] != -1) {
+                continue;
+            }
+            int depth = 0;
+            path[0] = root;
+            discovery[root] = lowLink[root] = discovered++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (depth >= 0) {
+                int table = path[depth];
+                if (nextReference[table] < referencedTables[table].length) {
+                    int referenced = referencedTables[table][nextReference[table]++];
+                    if (discovery[referenced] == -1) {
+                        discovery[referenced] = lowLink[referenced] = discovered++;
+                        stack[stackSize++] = referenced;
+                        onStack[referenced] = true;
+                        path[++depth] = referenced;
+                    } else if (onStack[referenced]) {
+                        lowLink[table] = Math.min(lowLink[table], discovery[referenced]);
+                    }
+                    continue;
+                }
+                if (lowLink[table] == discovery[table]) {
+                    List<Integer> component = new ArrayList<>();
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        component.add(member);
+                    } while (member != table);
+                    component.sort(null);
+                    component.forEach(position -> ordered.add(tables.get(position)));
+                    if (component.size() > 1) {
+                        cycles.add(component.stream().map(position -> tables.get(position).name()).toList());
+                    }
+                }
+                depth--;
+                if (depth >= 0) {
+                    lowLink[path[depth]] = Math.min(lowLink[path[depth]], lowLink[table]);
+                }
+            }
+        }
+        return new ForeignKeyOrder(List.copyOf(ordered), List.copyOf(cycles));
+    }
+
+    private static <T> Map<String, T> index(List<T> elements, Function<T, String> name) {
+        Map<String, T> index = HashMap.newHashMap(elements.size());
+        for (T element : elements) {
+            index.putIfAbsent(name.apply(element), element);
+        }
+        return Map.copyOf(index);
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+
+    /**
+     * A foreign key referencing a table.
+     *
+     * @param table      The table declaring the foreign key
+     * @param foreignKey The foreign key
+     */
+    public record Reference(Table table, TableForeignKey foreignKey) {
+    }
+
+    private record ForeignKeyOrder(List<Table> tables, List<List<String>> cycles) {
+    }
+
+    private static final class Lazy<T> {
+
+        private final Supplier<T> supplier;
+        private volatile T value;
+
+        private Lazy(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        T get() {
+            T result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        result = supplier.get();
+                        value = result;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ch.admin.bit.jeap.dbschema.reader;
+
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the schemas read by {@link #readDatabaseModel(DataSource, String, String)} for a time to live, per
+ * {@link DataSource} and schema name, so that the consumers of the current schema within an application share one
+ * read of the catalog. Concurrent callers missing the cache wait for a single read instead of each walking the
+ * catalog. A failed read is not cached.
+ * <p>
+ * Reads over a given connection and fingerprints are passed to the decorated reader uncached. Use
+ * {@link #refresh} to read over an own connection and update the cache, and {@link #invalidate(DataSource)} after
+ * the schema has been changed, e.g. by a Flyway migration.
+ */
+@Slf4j
+public class CachingDatabaseModelReader implements DatabaseSchemaReader {
+
+    private final DatabaseSchemaReader delegate;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param timeToLive How long a read schema is served from the cache. With zero, only concurrent callers share a
+     *                   read.
+     */
+    public CachingDatabaseModelReader(DatabaseSchemaReader delegate, Duration timeToLive) {
+        this(delegate, timeToLive, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock Source of the current time in the resolution of {@link System#nanoTime()}, for tests
+     */
+    public CachingDatabaseModelReader(DatabaseSchemaReader delegate, Duration timeToLive, LongSupplier nanoClock) {
+        if (timeToLive.isNegative()) {
+            throw new IllegalArgumentException("timeToLive must not be negative");
+        }
+        this.delegate = delegate;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public DatabaseSchema readDatabaseModel(DataSource dataSource, String schemaName, String version) throws SQLException {
+        Key key = new Key(dataSource, schemaName);
+        Entry candidate = new Entry();
+        Entry entry = entries.compute(key, (_, existing) ->
+                existing != null && existing.isUsable(nanoClock.getAsLong()) ? existing : candidate);
+        if (entry == candidate) {
+            log.debug("Reading schema {} into the cache", schemaName);
+            return withVersion(load(key, candidate, () -> delegate.readDatabaseModel(dataSource, schemaName, version)), version);
+        }
+        return withVersion(await(entry), version);
+    }
+
+    /**
+     * Reads the schema with the given loader, e.g. over a connection the caller holds anyway, and caches the result
+     * in place of any cached or ongoing read. Callers of {@link #readDatabaseModel(DataSource, String, String)}
+     * arriving meanwhile wait for this read.
+     */
+    public DatabaseSchema refresh(DataSource dataSource, String schemaName, SchemaLoader loader) throws SQLException {
+        Key key = new Key(dataSource, schemaName);
+        Entry entry = new Entry();
+        entries.put(key, entry);
+        return load(key, entry, loader);
+    }
+
+    /**
+     * Discards the cached schemas of the data source. Reads already ongoing complete, but are not cached.
+     */
+    public void invalidate(DataSource dataSource) {
+        entries.keySet().removeIf(key -> key.dataSource().equals(dataSource));
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    @Override
+    public DatabaseSchema readDatabaseModelFrom(Connection connection, String schemaName, String version) throws SQLException {
+        return delegate.readDatabaseModelFrom(connection, schemaName, version);
+    }
+
+    @Override
+    public String readSchemaFingerprint(Connection connection, String schemaName) throws SQLException {
+        return delegate.readSchemaFingerprint(connection, schemaName);
+    }
+
+    @Override
+    public SortedMap<String, String> readSchemaFingerprints(Connection connection, String schemaPattern) throws SQLException {
+        return delegate.readSchemaFingerprints(connection, schemaPattern);
+    }
+
+    private DatabaseSchema load(Key key, Entry entry, SchemaLoader loader) throws SQLException {
+        try {
+            DatabaseSchema schema = loader.load();
+            entry.expiresAt = nanoClock.getAsLong() + timeToLiveNanos;
+            entry.schema.complete(schema);
+            return schema;
+        } catch (Throwable ex) {
+            // Also on errors, waiting callers would otherwise wait forever for the entry
+            entries.remove(key, entry);
+            entry.schema.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private static DatabaseSchema await(Entry entry) throws SQLException {
+        try {
+            return entry.schema.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the schema being read", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SQLException sqlException) {
+                throw new SQLException(sqlException.getMessage(), sqlException.getSQLState(), sqlException);
+            }
+            throw new IllegalStateException("Failed to read the schema", ex.getCause());
+        }
+    }
+
+    private static DatabaseSchema withVersion(DatabaseSchema schema, String version) {
+        return Objects.equals(schema.version(), version) ? schema : new DatabaseSchema(schema.name(), version, schema.tables());
+    }
+
+    @FunctionalInterface
+    public interface SchemaLoader {
+        DatabaseSchema load() throws SQLException;
+    }
+
+    private record Key(DataSource dataSource, String schemaName) {
+    }
+
+    private static class Entry {
+
+        private final CompletableFuture<DatabaseSchema> schema = new CompletableFuture<>();
+        private volatile long expiresAt;
+
+        /**
+         * @return True while being read, and once read successfully until expired
+         */
+        boolean isUsable(long now) {
+            if (!schema.isDone()) {
+                return true;
+            }
+            return !schema.isCompletedExceptionally() && now - expiresAt < 0;
+        }
+    }
+}
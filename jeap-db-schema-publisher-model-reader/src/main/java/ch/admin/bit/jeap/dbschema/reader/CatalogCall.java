@@ -0,0 +1,21 @@
+package ch.admin.bit.jeap.dbschema.reader;
+
+import java.time.Duration;
+
+/**
+ * A completed call of a {@link java.sql.DatabaseMetaData} method reading the catalog.
+ *
+ * @param method     Name of the method, e.g. {@code getColumns}
+ * @param schemaName Schema (pattern) passed to the method
+ * @param tableName  Table name (pattern) passed to the method
+ * @param duration   Time from the call until its result set was closed, i.e. including fetching the rows
+ * @param rows       Number of rows read from the result set
+ * @param failed     Whether the call or reading its result set threw an exception
+ */
+public record CatalogCall(String method,
+                          String schemaName,
+                          String tableName,
+                          Duration duration,
+                          long rows,
+                          boolean failed) {
+}
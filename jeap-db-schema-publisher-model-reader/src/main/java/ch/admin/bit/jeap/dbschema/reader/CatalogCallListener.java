@@ -0,0 +1,11 @@
+package ch.admin.bit.jeap.dbschema.reader;
+
+/**
+ * Notified of every catalog call made while reading a schema with an instrumented {@link DatabaseModelReader}, e.g.
+ * to record metrics. Called on the reading thread, implementations must therefore be fast and thread-safe.
+ */
+@FunctionalInterface
+public interface CatalogCallListener {
+
+    void catalogCallCompleted(CatalogCall call);
+}
@@ -0,0 +1,63 @@
+package ch.admin.bit.jeap.dbschema.reader;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the catalog calls by method name, for applications without a metrics library such as the CLI.
+ */
+public class CatalogCallStatistics implements CatalogCallListener {
+
+    private final Map<String, MethodAccumulator> accumulators = new ConcurrentHashMap<>();
+
+    @Override
+    public void catalogCallCompleted(CatalogCall call) {
+        accumulators.computeIfAbsent(call.method(), _ -> new MethodAccumulator()).add(call);
+    }
+
+    /**
+     * @return The statistics per method name, sorted by method name
+     */
+    public Map<String, MethodStatistics> snapshot() {
+        Map<String, MethodStatistics> snapshot = new TreeMap<>();
+        accumulators.forEach((method, accumulator) -> snapshot.put(method, accumulator.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * @param calls     Number of calls
+     * @param failures  Number of failed calls
+     * @param rows      Number of rows returned by all calls
+     * @param totalTime Sum of the call durations
+     * @param maxTime   Duration of the slowest call
+     */
+    public record MethodStatistics(long calls, long failures, long rows, Duration totalTime, Duration maxTime) {
+    }
+
+    private static final class MethodAccumulator {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void add(CatalogCall call) {
+            calls.increment();
+            if (call.failed()) {
+                failures.increment();
+            }
+            rows.add(call.rows());
+            totalNanos.add(call.duration().toNanos());
+            maxNanos.accumulate(call.duration().toNanos());
+        }
+
+        private MethodStatistics snapshot() {
+            return new MethodStatistics(calls.sum(), failures.sum(), rows.sum(),
+                    Duration.ofNanos(totalNanos.sum()), Duration.ofNanos(maxNanos.get()));
+        }
+    }
+}
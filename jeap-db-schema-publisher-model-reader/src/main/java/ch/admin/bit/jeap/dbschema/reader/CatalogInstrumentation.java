@@ -0,0 +1,67 @@
+package ch.admin.bit.jeap.dbschema.reader;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Proxy;
+import java.sql.DatabaseMetaData;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Instruments the {@link DatabaseMetaData} used by {@link DatabaseModelReader}. Each call of {@code getTables},
+ * {@code getColumns}, {@code getPrimaryKeys} and {@code getImportedKeys} is timed until its result set is closed,
+ * its rows are counted, and the call is passed to the listeners. Calls taking longer than the slow call threshold are
+ * logged with the table they read. The instrumentation only depends on JDBC, metrics libraries such as Micrometer can
+ * be attached with a {@link CatalogCallListener}, and {@link CatalogCallStatistics} aggregates the calls without one.
+ */
+@Slf4j
+public final class CatalogInstrumentation {
+
+    private static final CatalogInstrumentation DISABLED = new CatalogInstrumentation(null, List.of());
+
+    private final Duration slowCallThreshold;
+    private final List<CatalogCallListener> listeners;
+
+    private CatalogInstrumentation(Duration slowCallThreshold, List<CatalogCallListener> listeners) {
+        this.slowCallThreshold = slowCallThreshold;
+        this.listeners = listeners;
+    }
+
+    /**
+     * @return An instrumentation leaving the {@link DatabaseMetaData} untouched
+     */
+    public static CatalogInstrumentation disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @param slowCallThreshold Calls taking longer are logged as warning, null to not log any call
+     * @param listeners         Notified of every call
+     */
+    public static CatalogInstrumentation of(Duration slowCallThreshold, CatalogCallListener... listeners) {
+        return new CatalogInstrumentation(slowCallThreshold, List.of(listeners));
+    }
+
+    DatabaseMetaData instrument(DatabaseMetaData metaData) {
+        if (this == DISABLED) {
+            return metaData;
+        }
+        return (DatabaseMetaData) Proxy.newProxyInstance(DatabaseMetaData.class.getClassLoader(),
+                new Class<?>[]{DatabaseMetaData.class}, new InstrumentedDatabaseMetaData(metaData, this));
+    }
+
+    void completed(CatalogCall call) {
+        if (slowCallThreshold != null && call.duration().compareTo(slowCallThreshold) > 0) {
+            log.warn("Slow catalog call {} on table {} in schema {} took {} ms and returned {} rows",
+                    call.method(), call.tableName(), call.schemaName(), call.duration().toMillis(), call.rows());
+        }
+        for (CatalogCallListener listener : listeners) {
+            try {
+                listener.catalogCallCompleted(call);
+            } catch (RuntimeException ex) {
+                // Instrumentation must never fail reading the schema
+                log.debug("Catalog call listener failed", ex);
+            }
+        }
+    }
+}
@@ -9,20 +9,131 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.ServiceLoader;
+import java.util.SortedMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Slf4j
-public class DatabaseModelReader {
+public class DatabaseModelReader implements DatabaseSchemaReader {
 
-    private final DatabaseModelFactory databaseModelFactory = new DatabaseModelFactory();
+    private static final SchemaMetadataDialect JDBC_DIALECT = new JdbcMetadataDialect();
 
+    private final SchemaFingerprinter schemaFingerprinter = new SchemaFingerprinter();
+    private final CatalogInstrumentation catalogInstrumentation;
+    private final Supplier<List<SchemaMetadataDialect>> dialectLookup;
+    private volatile List<SchemaMetadataDialect> dialects;
+
+    public DatabaseModelReader() {
+        this(CatalogInstrumentation.disabled());
+    }
+
+    /**
+     * @param catalogInstrumentation Times, counts and logs the catalog calls made while reading
+     */
+    public DatabaseModelReader(CatalogInstrumentation catalogInstrumentation) {
+        this(catalogInstrumentation, DatabaseModelReader::installedDialects);
+    }
+
+    /**
+     * @param dialects Dialects to choose from in the given order, instead of the {@link #installedDialects()}. The
+     *                 generic {@link JdbcMetadataDialect} is used for databases none of them supports.
+     */
+    public DatabaseModelReader(CatalogInstrumentation catalogInstrumentation, List<SchemaMetadataDialect> dialects) {
+        this(catalogInstrumentation, () -> dialects);
+    }
+
+    /**
+     * @param dialects Looks up the dialects to choose from on the first read, so that e.g. the
+     *                 {@link #installedDialects()} are not loaded while an application starts
+     */
+    public DatabaseModelReader(CatalogInstrumentation catalogInstrumentation, Supplier<List<SchemaMetadataDialect>> dialects) {
+        this.catalogInstrumentation = catalogInstrumentation;
+        this.dialectLookup = dialects;
+    }
+
+    /**
+     * @return The dialects registered with {@link ServiceLoader}, e.g. {@link H2InformationSchemaDialect}
+     */
+    public static List<SchemaMetadataDialect> installedDialects() {
+        return ServiceLoader.load(SchemaMetadataDialect.class, DatabaseModelReader.class.getClassLoader()).stream()
+                .map(ServiceLoader.Provider::get)
+                .toList();
+    }
+
+    @Override
     public DatabaseSchema readDatabaseModel(DataSource dataSource, String schemaName, String version) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            return readDatabaseModelFrom(conn, schemaName, version);
+        }
+    }
+
+    /**
+     * Reads the database model using the given connection, which is left open. Allows reading several schemas over
+     * the same connection where no {@link DataSource} is at hand.
+     */
+    @Override
+    public DatabaseSchema readDatabaseModelFrom(Connection connection, String schemaName, String version) throws SQLException {
         log.info("Reading database model from schema: {}", schemaName);
 
-        try (Connection conn = dataSource.getConnection()) {
-            DatabaseMetaData metaData = conn.getMetaData();
-            List<Table> tables = databaseModelFactory.createTableModels(metaData, schemaName);
+        DatabaseMetaData metaData = catalogInstrumentation.instrument(connection.getMetaData());
+        SchemaMetadataDialect dialect = selectDialect(metaData);
+        log.debug("Reading with {}", dialect.getClass().getSimpleName());
+        List<Table> tables = dialect.readTables(metaData, schemaName);
+
+        return new DatabaseSchema(schemaName, version, tables);
+    }
+
+    private SchemaMetadataDialect selectDialect(DatabaseMetaData metaData) throws SQLException {
+        String databaseProductName = metaData.getDatabaseProductName();
+        return dialects().stream()
+                .filter(dialect -> dialect.supports(databaseProductName))
+                .findFirst()
+                .orElse(JDBC_DIALECT);
+    }
 
-            return new DatabaseSchema(schemaName, version, tables);
+    private List<SchemaMetadataDialect> dialects() {
+        List<SchemaMetadataDialect> result = dialects;
+        if (result == null) {
+            synchronized (this) {
+                result = dialects;
+                if (result == null) {
+                    result = Stream.concat(dialectLookup.get().stream(), Stream.of(JDBC_DIALECT)).toList();
+                    dialects = result;
+                }
+            }
         }
+        return result;
+    }
+
+    /**
+     * Reads a fingerprint of the schema structure with one catalog query for the columns and one each for the primary
+     * and foreign keys, or per table on drivers that cannot read the keys of all tables at once. The fingerprint
+     * changes whenever a table, column or key is added, removed, renamed or a column changes its type or nullability.
+     */
+    @Override
+    public String readSchemaFingerprint(Connection connection, String schemaName) throws SQLException {
+        DatabaseMetaData metaData = catalogInstrumentation.instrument(connection.getMetaData());
+        return schemaFingerprinter.fingerprint(metaData, schemaName, readsKeysOfAllTablesAtOnce(metaData));
+    }
+
+    /**
+     * Reads the fingerprints of all schemas matching the pattern, e.g. the schemas of the tenants of a
+     * schema-per-tenant database, with one catalog query for the schemas and one for their columns, plus the queries
+     * for the keys of each schema. The fingerprint of a schema equals the one {@link #readSchemaFingerprint} reads, so
+     * that schemas of the same structure have the same fingerprint.
+     *
+     * @param schemaPattern Schema name pattern as in {@link DatabaseMetaData#getSchemas(String, String)}, i.e.
+     *                      {@code %} and {@code _} are wildcards
+     * @return The fingerprints by schema name, sorted by schema name
+     */
+    @Override
+    public SortedMap<String, String> readSchemaFingerprints(Connection connection, String schemaPattern) throws SQLException {
+        DatabaseMetaData metaData = catalogInstrumentation.instrument(connection.getMetaData());
+        return schemaFingerprinter.fingerprints(metaData, schemaPattern, readsKeysOfAllTablesAtOnce(metaData));
+    }
+
+    private boolean readsKeysOfAllTablesAtOnce(DatabaseMetaData metaData) throws SQLException {
+        return selectDialect(metaData).readsKeysOfAllTablesAtOnce(metaData.getDatabaseProductName());
     }
 }
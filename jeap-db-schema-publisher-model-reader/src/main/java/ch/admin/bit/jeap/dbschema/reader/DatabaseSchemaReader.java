@@ -0,0 +1,35 @@
+package ch.admin.bit.jeap.dbschema.reader;
+
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.SortedMap;
+
+/**
+ * Reads the model and fingerprints of database schemas. Implemented by the {@link DatabaseModelReader} reading the
+ * catalog and by decorators such as the {@link CachingDatabaseModelReader}, which have to implement every method and
+ * therefore cannot pass a method added later to the catalog unnoticed.
+ */
+public interface DatabaseSchemaReader {
+
+    DatabaseSchema readDatabaseModel(DataSource dataSource, String schemaName, String version) throws SQLException;
+
+    /**
+     * Reads the schema over the given connection, which is left open.
+     */
+    DatabaseSchema readDatabaseModelFrom(Connection connection, String schemaName, String version) throws SQLException;
+
+    /**
+     * @return A fingerprint of the tables, columns and keys of the schema, changing whenever its structure changes
+     */
+    String readSchemaFingerprint(Connection connection, String schemaName) throws SQLException;
+
+    /**
+     * @param schemaPattern Schema name pattern in which {@code %} and {@code _} are wildcards
+     * @return The fingerprints of all schemas matching the pattern by schema name, sorted by schema name. Each equals
+     * the one {@link #readSchemaFingerprint} reads.
+     */
+    SortedMap<String, String> readSchemaFingerprints(Connection connection, String schemaPattern) throws SQLException;
+}
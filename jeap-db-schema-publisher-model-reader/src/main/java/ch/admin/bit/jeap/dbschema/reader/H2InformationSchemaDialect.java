@@ -0,0 +1,139 @@
+package ch.admin.bit.jeap.dbschema.reader;
+
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import ch.admin.bit.jeap.dbschema.model.TableForeignKey;
+import ch.admin.bit.jeap.dbschema.model.TablePrimaryKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the tables of an H2 (2.x) schema with four queries of its {@code INFORMATION_SCHEMA}, one each for the
+ * tables, columns, primary keys and foreign keys of all tables, instead of three catalog calls per table.
+ */
+@Slf4j
+public final class H2InformationSchemaDialect implements SchemaMetadataDialect {
+
+    private static final String TABLES_QUERY = """
+            SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES
+            WHERE TABLE_SCHEMA = ? AND TABLE_TYPE = 'BASE TABLE'
+            ORDER BY TABLE_NAME""";
+    // Type names as reported by DatabaseMetaData.getColumns, e.g. INTEGER ARRAY instead of ARRAY and ENUM('A', 'B')
+    // instead of ENUM. Arrays of arrays are reported as ARRAY ARRAY.
+    private static final String COLUMNS_QUERY = """
+            SELECT c.TABLE_NAME, c.COLUMN_NAME, c.IS_NULLABLE,
+                   CASE WHEN c.DATA_TYPE = 'ARRAY' THEN e.DATA_TYPE || ' ARRAY'
+                        WHEN c.DATA_TYPE = 'INTERVAL' THEN 'INTERVAL ' || c.INTERVAL_TYPE
+                        WHEN c.DATA_TYPE = 'ENUM' THEN (
+                            SELECT 'ENUM(' || LISTAGG('''' || REPLACE(v.VALUE_NAME, '''', '''''') || '''', ', ')
+                                   WITHIN GROUP (ORDER BY v.VALUE_ORDINAL) || ')'
+                            FROM INFORMATION_SCHEMA.ENUM_VALUES v
+                            WHERE v.OBJECT_SCHEMA = c.TABLE_SCHEMA AND v.OBJECT_NAME = c.TABLE_NAME
+                              AND v.OBJECT_TYPE = 'TABLE' AND v.ENUM_IDENTIFIER = c.DTD_IDENTIFIER)
+                        ELSE c.DATA_TYPE END AS TYPE_NAME
+            FROM INFORMATION_SCHEMA.COLUMNS c
+            LEFT JOIN INFORMATION_SCHEMA.ELEMENT_TYPES e
+              ON e.OBJECT_SCHEMA = c.TABLE_SCHEMA AND e.OBJECT_NAME = c.TABLE_NAME AND e.OBJECT_TYPE = 'TABLE'
+             AND e.COLLECTION_TYPE_IDENTIFIER = c.DTD_IDENTIFIER
+            WHERE c.TABLE_SCHEMA = ?
+            ORDER BY c.TABLE_NAME, c.ORDINAL_POSITION""";
+    private static final String PRIMARY_KEYS_QUERY = """
+            SELECT c.TABLE_NAME, c.CONSTRAINT_NAME, k.COLUMN_NAME
+            FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS c
+            JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE k
+              ON k.CONSTRAINT_SCHEMA = c.CONSTRAINT_SCHEMA AND k.CONSTRAINT_NAME = c.CONSTRAINT_NAME
+            WHERE c.TABLE_SCHEMA = ? AND c.CONSTRAINT_TYPE = 'PRIMARY KEY'
+            ORDER BY c.TABLE_NAME, k.COLUMN_NAME""";
+    private static final String FOREIGN_KEYS_QUERY = """
+            SELECT k.TABLE_NAME, r.CONSTRAINT_NAME, k.COLUMN_NAME, u.TABLE_NAME AS REFERENCED_TABLE_NAME,
+                   u.COLUMN_NAME AS REFERENCED_COLUMN_NAME
+            FROM INFORMATION_SCHEMA.REFERENTIAL_CONSTRAINTS r
+            JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE k
+              ON k.CONSTRAINT_SCHEMA = r.CONSTRAINT_SCHEMA AND k.CONSTRAINT_NAME = r.CONSTRAINT_NAME
+            JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE u
+              ON u.CONSTRAINT_SCHEMA = r.UNIQUE_CONSTRAINT_SCHEMA AND u.CONSTRAINT_NAME = r.UNIQUE_CONSTRAINT_NAME
+             AND u.ORDINAL_POSITION = k.POSITION_IN_UNIQUE_CONSTRAINT
+            WHERE r.CONSTRAINT_SCHEMA = ?
+            ORDER BY k.TABLE_NAME, r.CONSTRAINT_NAME, k.ORDINAL_POSITION""";
+
+    /**
+     * H2 rejects a table name of {@code null} as invalid parameter value.
+     */
+    @Override
+    public boolean readsKeysOfAllTablesAtOnce(String databaseProductName) {
+        return false;
+    }
+
+    @Override
+    public boolean supports(String databaseProductName) {
+        return "H2".equals(databaseProductName);
+    }
+
+    @Override
+    public List<Table> readTables(DatabaseMetaData metaData, String schemaName) throws SQLException {
+        Connection connection = metaData.getConnection();
+        List<String> tableNames = new ArrayList<>();
+        query(connection, TABLES_QUERY, schemaName, row -> tableNames.add(row.getString("TABLE_NAME")));
+
+        Map<String, List<TableColumn>> columns = new HashMap<>();
+        query(connection, COLUMNS_QUERY, schemaName, row -> columns
+                .computeIfAbsent(row.getString("TABLE_NAME"), _ -> new ArrayList<>())
+                .add(new TableColumn(row.getString("COLUMN_NAME"), row.getString("TYPE_NAME"),
+                        "YES".equalsIgnoreCase(row.getString("IS_NULLABLE")))));
+
+        Map<String, TablePrimaryKey> primaryKeys = new HashMap<>();
+        query(connection, PRIMARY_KEYS_QUERY, schemaName, row -> {
+            String constraintName = row.getString("CONSTRAINT_NAME");
+            primaryKeys.computeIfAbsent(row.getString("TABLE_NAME"), _ -> new TablePrimaryKey(constraintName, new ArrayList<>()))
+                    .columnNames().add(row.getString("COLUMN_NAME"));
+        });
+
+        // Grouped by table, then by foreign key name since a foreign key can span multiple columns
+        Map<String, Map<String, TableForeignKey>> foreignKeys = new HashMap<>();
+        query(connection, FOREIGN_KEYS_QUERY, schemaName, row -> {
+            String referencedTableName = row.getString("REFERENCED_TABLE_NAME");
+            TableForeignKey foreignKey = foreignKeys
+                    .computeIfAbsent(row.getString("TABLE_NAME"), _ -> new LinkedHashMap<>())
+                    .computeIfAbsent(row.getString("CONSTRAINT_NAME"), name ->
+                            new TableForeignKey(name, new ArrayList<>(), referencedTableName, new ArrayList<>()));
+            foreignKey.columnNames().add(row.getString("COLUMN_NAME"));
+            foreignKey.referencedColumnNames().add(row.getString("REFERENCED_COLUMN_NAME"));
+        });
+
+        List<Table> tables = new ArrayList<>(tableNames.size());
+        for (String tableName : tableNames) {
+            tables.add(new Table(tableName,
+                    columns.getOrDefault(tableName, List.of()),
+                    List.copyOf(foreignKeys.getOrDefault(tableName, Map.of()).values()),
+                    primaryKeys.get(tableName)));
+        }
+        log.debug("Collected {} tables", tables.size());
+        return tables;
+    }
+
+    private static void query(Connection connection, String sql, String schemaName, RowHandler rowHandler) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, schemaName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rowHandler.handle(resultSet);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void handle(ResultSet row) throws SQLException;
+    }
+}
@@ -0,0 +1,99 @@
+package ch.admin.bit.jeap.dbschema.reader;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Dynamic proxy handler of {@link DatabaseMetaData} wrapping the result sets of the catalog calls read by
+ * {@link DatabaseModelFactory} and {@link SchemaFingerprinter}. A proxy spares delegating the remaining 170-odd
+ * methods of the interface by hand. All instrumented methods take the schema and the table name as second and third
+ * argument.
+ */
+class InstrumentedDatabaseMetaData implements InvocationHandler {
+
+    private static final Set<String> INSTRUMENTED_METHODS = Set.of("getTables", "getColumns", "getPrimaryKeys", "getImportedKeys");
+
+    private final DatabaseMetaData delegate;
+    private final CatalogInstrumentation instrumentation;
+
+    InstrumentedDatabaseMetaData(DatabaseMetaData delegate, CatalogInstrumentation instrumentation) {
+        this.delegate = delegate;
+        this.instrumentation = instrumentation;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (!INSTRUMENTED_METHODS.contains(method.getName())) {
+            return invokeDelegate(delegate, method, args);
+        }
+        CallRecorder recorder = new CallRecorder(method.getName(), (String) args[1], (String) args[2], System.nanoTime());
+        ResultSet resultSet;
+        try {
+            resultSet = (ResultSet) invokeDelegate(delegate, method, args);
+        } catch (Throwable ex) {
+            recorder.completed(true);
+            throw ex;
+        }
+        return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (resultSetProxy, resultSetMethod, resultSetArgs) -> recorder.invoke(resultSet, resultSetMethod, resultSetArgs));
+    }
+
+    private static Object invokeDelegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Counts the rows of a result set and completes the call once the result set is closed.
+     */
+    private final class CallRecorder {
+        private final String method;
+        private final String schemaName;
+        private final String tableName;
+        private final long startNanos;
+        private long rows;
+        private boolean failed;
+        private boolean completed;
+
+        private CallRecorder(String method, String schemaName, String tableName, long startNanos) {
+            this.method = method;
+            this.schemaName = schemaName;
+            this.tableName = tableName;
+            this.startNanos = startNanos;
+        }
+
+        private Object invoke(ResultSet resultSet, Method resultSetMethod, Object[] args) throws Throwable {
+            try {
+                Object result = invokeDelegate(resultSet, resultSetMethod, args);
+                if ("next".equals(resultSetMethod.getName()) && Boolean.TRUE.equals(result)) {
+                    rows++;
+                }
+                return result;
+            } catch (Throwable ex) {
+                failed = true;
+                throw ex;
+            } finally {
+                if ("close".equals(resultSetMethod.getName())) {
+                    completed(failed);
+                }
+            }
+        }
+
+        private void completed(boolean failed) {
+            if (!completed) {
+                completed = true;
+                instrumentation.completed(new CatalogCall(method, schemaName, tableName,
+                        Duration.ofNanos(System.nanoTime() - startNanos), rows, failed));
+            }
+        }
+    }
+}
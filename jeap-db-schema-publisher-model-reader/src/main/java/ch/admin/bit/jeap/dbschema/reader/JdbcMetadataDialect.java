@@ -0,0 +1,38 @@
+package ch.admin.bit.jeap.dbschema.reader;
+
+import ch.admin.bit.jeap.dbschema.model.Table;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the tables with the standard {@link DatabaseMetaData} calls, which every JDBC driver supports: one call for
+ * the tables, then one each for the columns, primary key and foreign keys of every table. Used for all databases
+ * without a more specific dialect.
+ */
+public final class JdbcMetadataDialect implements SchemaMetadataDialect {
+
+    /**
+     * Drivers rejecting a table name of {@code null} in the key calls as invalid argument.
+     */
+    private static final Set<String> PRODUCTS_READING_KEYS_PER_TABLE = Set.of("H2", "MySQL");
+
+    private final DatabaseModelFactory databaseModelFactory = new DatabaseModelFactory();
+
+    @Override
+    public boolean supports(String databaseProductName) {
+        return true;
+    }
+
+    @Override
+    public boolean readsKeysOfAllTablesAtOnce(String databaseProductName) {
+        return !PRODUCTS_READING_KEYS_PER_TABLE.contains(databaseProductName);
+    }
+
+    @Override
+    public List<Table> readTables(DatabaseMetaData metaData, String schemaName) throws SQLException {
+        return databaseModelFactory.createTableModels(metaData, schemaName);
+    }
+}
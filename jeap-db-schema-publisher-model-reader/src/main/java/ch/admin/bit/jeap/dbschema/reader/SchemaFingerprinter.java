@@ -0,0 +1,150 @@
+package ch.admin.bit.jeap.dbschema.reader;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Computes a fingerprint of everything the model of a schema contains: the columns of all tables with a single catalog
+ * query, and the primary and foreign keys with one query each. This is a small fraction of the cost of reading the full
+ * model, which needs several queries per table. Drivers that cannot read the keys of all tables at once are asked per
+ * table for the keys: those whose dialect says so, such as H2, and those rejecting it with a
+ * {@link SQLFeatureNotSupportedException}, which is remembered. Any other failure is rethrown, so that e.g. a timeout
+ * does not switch all later fingerprints to the queries per table.
+ */
+@Slf4j
+class SchemaFingerprinter {
+
+    private static final char SEPARATOR = '\u001f';
+    private static final char ROW_SEPARATOR = '\u001e';
+
+    private volatile boolean keysOfAllTablesAtOnceSupported = true;
+
+    /**
+     * @param keysOfAllTablesAtOnce Whether the dialect of the driver reads the keys of all tables at once
+     */
+    String fingerprint(DatabaseMetaData metaData, String schemaName, boolean keysOfAllTablesAtOnce) throws SQLException {
+        MessageDigest digest = sha256();
+        Set<String> tableNames = new TreeSet<>();
+        try (ResultSet columns = metaData.getColumns(null, schemaName, "%", "%")) {
+            while (columns.next()) {
+                tableNames.add(columns.getString("TABLE_NAME"));
+                digest.update(columnRow(columns));
+            }
+        }
+        updateWithKeys(digest, metaData, schemaName, tableNames, keysOfAllTablesAtOnce);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Computes the fingerprints of all schemas matching the pattern with one query for the schemas and one for the
+     * columns of all of them, plus the queries for the keys of each schema. The rows do not contain the schema name,
+     * so schemas of the same structure have the same fingerprint.
+     */
+    SortedMap<String, String> fingerprints(DatabaseMetaData metaData, String schemaPattern,
+                                           boolean keysOfAllTablesAtOnce) throws SQLException {
+        Map<String, MessageDigest> digests = new TreeMap<>();
+        Map<String, Set<String>> tableNamesBySchema = new TreeMap<>();
+        // Also yields the schemas without tables, for which the columns query returns no rows
+        try (ResultSet schemas = metaData.getSchemas(null, schemaPattern)) {
+            while (schemas.next()) {
+                digests.put(schemas.getString("TABLE_SCHEM"), sha256());
+            }
+        }
+        try (ResultSet columns = metaData.getColumns(null, schemaPattern, "%", "%")) {
+            while (columns.next()) {
+                String schemaName = columns.getString("TABLE_SCHEM");
+                tableNamesBySchema.computeIfAbsent(schemaName, _ -> new TreeSet<>()).add(columns.getString("TABLE_NAME"));
+                digests.computeIfAbsent(schemaName, _ -> sha256()).update(columnRow(columns));
+            }
+        }
+        SortedMap<String, String> fingerprints = new TreeMap<>();
+        for (Map.Entry<String, MessageDigest> digest : digests.entrySet()) {
+            updateWithKeys(digest.getValue(), metaData, digest.getKey(),
+                    tableNamesBySchema.getOrDefault(digest.getKey(), Set.of()), keysOfAllTablesAtOnce);
+            fingerprints.put(digest.getKey(), HexFormat.of().formatHex(digest.getValue().digest()));
+        }
+        return fingerprints;
+    }
+
+    private void updateWithKeys(MessageDigest digest, DatabaseMetaData metaData, String schemaName,
+                                Set<String> tableNames, boolean keysOfAllTablesAtOnce) throws SQLException {
+        List<String> rows = null;
+        if (keysOfAllTablesAtOnce && keysOfAllTablesAtOnceSupported) {
+            try {
+                rows = keyRows(metaData, schemaName, null);
+            } catch (SQLFeatureNotSupportedException ex) {
+                log.debug("Driver cannot read the keys of all tables at once, reading them per table: {}", ex.getMessage());
+                keysOfAllTablesAtOnceSupported = false;
+            }
+        }
+        if (rows == null) {
+            rows = new ArrayList<>();
+            for (String tableName : tableNames) {
+                rows.addAll(keyRows(metaData, schemaName, tableName));
+            }
+        }
+        // Drivers order the keys of all tables differently than those of a single table
+        rows.sort(null);
+        rows.forEach(row -> digest.update(row.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param tableName The table to read the keys of, or {@code null} for all tables of the schema
+     */
+    private static List<String> keyRows(DatabaseMetaData metaData, String schemaName, String tableName) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (ResultSet primaryKeys = metaData.getPrimaryKeys(null, schemaName, tableName)) {
+            while (primaryKeys.next()) {
+                rows.add("P" + SEPARATOR +
+                        primaryKeys.getString("TABLE_NAME") + SEPARATOR +
+                        primaryKeys.getString("PK_NAME") + SEPARATOR +
+                        primaryKeys.getString("COLUMN_NAME") + SEPARATOR +
+                        primaryKeys.getInt("KEY_SEQ") + ROW_SEPARATOR);
+            }
+        }
+        try (ResultSet foreignKeys = metaData.getImportedKeys(null, schemaName, tableName)) {
+            while (foreignKeys.next()) {
+                rows.add("F" + SEPARATOR +
+                        foreignKeys.getString("FKTABLE_NAME") + SEPARATOR +
+                        foreignKeys.getString("FK_NAME") + SEPARATOR +
+                        foreignKeys.getString("FKCOLUMN_NAME") + SEPARATOR +
+                        foreignKeys.getString("PKTABLE_NAME") + SEPARATOR +
+                        foreignKeys.getString("PKCOLUMN_NAME") + SEPARATOR +
+                        foreignKeys.getInt("KEY_SEQ") + ROW_SEPARATOR);
+            }
+        }
+        return rows;
+    }
+
+    private static byte[] columnRow(ResultSet columns) throws SQLException {
+        String row = columns.getString("TABLE_NAME") + SEPARATOR +
+                columns.getString("COLUMN_NAME") + SEPARATOR +
+                columns.getString("TYPE_NAME") + SEPARATOR +
+                columns.getString("IS_NULLABLE") + SEPARATOR +
+                columns.getInt("ORDINAL_POSITION") + ROW_SEPARATOR;
+        return row.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ch.admin.bit.jeap.dbschema.reader;
+
+import ch.admin.bit.jeap.dbschema.model.Table;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reads the tables of a schema from the catalog of a specific database product, e.g. with a few set-based queries of
+ * its {@code INFORMATION_SCHEMA} instead of the per-table {@link DatabaseMetaData} calls of the generic
+ * {@link JdbcMetadataDialect}. {@link DatabaseModelReader} uses the first dialect supporting
+ * {@link DatabaseMetaData#getDatabaseProductName()}.
+ * <p>
+ * Dialects are discovered with {@link java.util.ServiceLoader}, i.e. by listing them in
+ * {@code META-INF/services/ch.admin.bit.jeap.dbschema.reader.SchemaMetadataDialect}, or passed to the
+ * {@link DatabaseModelReader}. The publisher starter also uses all beans of this type. A dialect must read the same
+ * model as the generic dialect: tables in name order, columns in ordinal order, primary key columns in name order and
+ * type names as reported by the JDBC driver.
+ */
+public interface SchemaMetadataDialect {
+
+    /**
+     * @param databaseProductName As reported by {@link DatabaseMetaData#getDatabaseProductName()}, e.g. {@code H2}
+     */
+    boolean supports(String databaseProductName);
+
+    /**
+     * @param metaData   Metadata of the connection to read from, its connection can be used to run queries. Catalog
+     *                   calls on it are instrumented if the reader is, queries on its connection are not.
+     * @param schemaName Name of the schema to read
+     */
+    List<Table> readTables(DatabaseMetaData metaData, String schemaName) throws SQLException;
+
+    /**
+     * @param databaseProductName As passed to {@link #supports(String)}
+     * @return Whether {@link DatabaseMetaData#getPrimaryKeys} and {@link DatabaseMetaData#getImportedKeys} return the
+     * keys of all tables of a schema for a table name of {@code null}, which the schema fingerprint uses. If not, the
+     * fingerprint reads the keys per table. Dialects of drivers rejecting a table name of {@code null} with an
+     * exception other than {@link java.sql.SQLFeatureNotSupportedException} have to return {@code false}.
+     */
+    default boolean readsKeysOfAllTablesAtOnce(String databaseProductName) {
+        return true;
+    }
+}
@@ -17,4 +17,10 @@ public interface ArchitectureRepositoryService {
      */
     @PostExchange(value = "/api/dbschemas", contentType = MediaType.APPLICATION_JSON_VALUE)
     void publishDbSchema(@RequestBody CreateOrUpdateDbSchemaDto dto);
+
+    /**
+     * Publishes the schemas of a schema-per-tenant database, replacing the schemas published for the component.
+     */
+    @PostExchange(value = "/api/dbschemas/tenants", contentType = MediaType.APPLICATION_JSON_VALUE)
+    void publishTenantDbSchemas(@RequestBody TenantDbSchemasDto dto);
 }
@@ -0,0 +1,39 @@
+package ch.admin.bit.jeap.dbschema.archrepo.client;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.service.annotation.DeleteExchange;
+import org.springframework.web.service.annotation.PostExchange;
+import org.springframework.web.service.annotation.PutExchange;
+
+/**
+ * Paginated upload of a database schema too large for a single
+ * {@link ArchitectureRepositoryService#publishDbSchema(CreateOrUpdateDbSchemaDto)} request. The archrepo collects the
+ * pages of an upload separately and only replaces the published schema once the upload is committed, so that a
+ * failed page can be sent again on its own. An upload that is neither committed nor aborted is discarded by the
+ * archrepo after a while.
+ * <p>
+ * The content types are declared explicitly for the same reason as in {@link ArchitectureRepositoryService}.
+ */
+public interface DbSchemaUploadService {
+
+    @PostExchange(value = "/api/dbschemas/uploads", contentType = MediaType.APPLICATION_JSON_VALUE,
+            accept = MediaType.APPLICATION_JSON_VALUE)
+    DbSchemaUploadDto beginUpload(@RequestBody BeginDbSchemaUploadDto dto);
+
+    /**
+     * Sends the page with the given number, starting at 0. Sending a page again replaces it.
+     */
+    @PutExchange(value = "/api/dbschemas/uploads/{uploadId}/pages/{pageNumber}", contentType = MediaType.APPLICATION_JSON_VALUE)
+    void uploadPage(@PathVariable("uploadId") String uploadId, @PathVariable("pageNumber") int pageNumber, @RequestBody DbSchemaUploadPageDto page);
+
+    /**
+     * Replaces the published schema with the one assembled from all pages of the upload.
+     */
+    @PostExchange("/api/dbschemas/uploads/{uploadId}/commit")
+    void commitUpload(@PathVariable("uploadId") String uploadId);
+
+    @DeleteExchange("/api/dbschemas/uploads/{uploadId}")
+    void abortUpload(@PathVariable("uploadId") String uploadId);
+}
@@ -0,0 +1,40 @@
+package ch.admin.bit.jeap.dbschema.archrepo.client;
+
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link OAuth2ClientCredentialsRestClientInitializer}: obtains an access token with the
+ * client credentials flow, or the cached one, and adds it as bearer token to the request.
+ */
+public class OAuth2ClientCredentialsExchangeFilterFunction implements ExchangeFilterFunction {
+
+    private final ReactiveOAuth2AuthorizedClientManager authorizedClientManager;
+    private final ClientRegistration clientRegistration;
+
+    public OAuth2ClientCredentialsExchangeFilterFunction(ReactiveOAuth2AuthorizedClientManager authorizedClientManager, ClientRegistration clientRegistration) {
+        this.authorizedClientManager = authorizedClientManager;
+        this.clientRegistration = clientRegistration;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        final String clientRegistrationId = this.clientRegistration.getRegistrationId();
+        final OAuth2AuthorizeRequest authorizeRequest = OAuth2AuthorizeRequest
+                .withClientRegistrationId(clientRegistrationId)
+                .principal(this.clientRegistration.getClientId())
+                .build();
+        return authorizedClientManager.authorize(authorizeRequest)
+                .switchIfEmpty(Mono.error(() ->
+                        new IllegalStateException("client credentials flow on " + clientRegistrationId + " failed, client is null")))
+                .flatMap(authorizedClient -> next.exchange(ClientRequest.from(request)
+                        .headers(headers -> headers.setBearerAuth(authorizedClient.getAccessToken().getTokenValue()))
+                        .build()));
+    }
+}
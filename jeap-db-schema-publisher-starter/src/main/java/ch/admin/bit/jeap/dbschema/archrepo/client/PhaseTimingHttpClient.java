@@ -0,0 +1,217 @@
+package ch.admin.bit.jeap.dbschema.archrepo.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HttpClient} decorator that records how long the phases of a request with a body take. The JDK client does
+ * not expose connection events, so the phases are derived from the lifecycle of the request body publisher:
+ * <ul>
+ *     <li>{@code connect}: from sending until the client subscribes to the body, i.e. DNS lookup, TCP/TLS handshake
+ *     or acquiring a pooled connection, plus writing the request headers</li>
+ *     <li>{@code request-write}: from the body subscription until the whole body has been handed to the client</li>
+ *     <li>{@code response-wait}: from the end of the body until the response headers have been received</li>
+ * </ul>
+ * Requests without a body and requests answered before their body was fully written are not recorded.
+ */
+public class PhaseTimingHttpClient extends HttpClient {
+
+    static final String TIMER_NAME = "jeap-publish-database-schema-http";
+    static final String TAG_PHASE = "phase";
+    static final String PHASE_CONNECT = "connect";
+    static final String PHASE_REQUEST_WRITE = "request-write";
+    static final String PHASE_RESPONSE_WAIT = "response-wait";
+
+    private static final long NOT_REACHED = Long.MIN_VALUE;
+
+    private final HttpClient delegate;
+    private final MeterRegistry meterRegistry;
+
+    public PhaseTimingHttpClient(HttpClient delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler)
+            throws IOException, InterruptedException {
+        PhaseRecorder recorder = new PhaseRecorder();
+        HttpResponse<T> response = delegate.send(recorder.instrument(request), responseBodyHandler);
+        recorder.responseReceived();
+        return response;
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                            HttpResponse.BodyHandler<T> responseBodyHandler) {
+        return sendAsync(request, responseBodyHandler, null);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                            HttpResponse.BodyHandler<T> responseBodyHandler,
+                                                            HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        PhaseRecorder recorder = new PhaseRecorder();
+        CompletableFuture<HttpResponse<T>> responseFuture =
+                delegate.sendAsync(recorder.instrument(request), responseBodyHandler, pushPromiseHandler);
+        // Return the delegate's future itself rather than a dependent stage, cancelling it must abort the exchange
+        responseFuture.thenRun(recorder::responseReceived);
+        return responseFuture;
+    }
+
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+        return delegate.cookieHandler();
+    }
+
+    @Override
+    public Optional<Duration> connectTimeout() {
+        return delegate.connectTimeout();
+    }
+
+    @Override
+    public Redirect followRedirects() {
+        return delegate.followRedirects();
+    }
+
+    @Override
+    public Optional<ProxySelector> proxy() {
+        return delegate.proxy();
+    }
+
+    @Override
+    public SSLContext sslContext() {
+        return delegate.sslContext();
+    }
+
+    @Override
+    public SSLParameters sslParameters() {
+        return delegate.sslParameters();
+    }
+
+    @Override
+    public Optional<Authenticator> authenticator() {
+        return delegate.authenticator();
+    }
+
+    @Override
+    public Version version() {
+        return delegate.version();
+    }
+
+    @Override
+    public Optional<Executor> executor() {
+        return delegate.executor();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public void shutdownNow() {
+        delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean awaitTermination(Duration duration) throws InterruptedException {
+        return delegate.awaitTermination(duration);
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private void record(String phase, long nanos) {
+        Timer.builder(TIMER_NAME)
+                .tag(TAG_PHASE, phase)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private final class PhaseRecorder {
+
+        private final long started = System.nanoTime();
+        private volatile long bodySubscribed = NOT_REACHED;
+        private volatile long bodyWritten = NOT_REACHED;
+
+        HttpRequest instrument(HttpRequest request) {
+            return request.bodyPublisher()
+                    .filter(publisher -> publisher.contentLength() != 0)
+                    .map(publisher -> HttpRequest.newBuilder(request, (name, value) -> true)
+                            .method(request.method(), new TimedBodyPublisher(publisher, this))
+                            .build())
+                    .orElse(request);
+        }
+
+        void responseReceived() {
+            long received = System.nanoTime();
+            if (bodySubscribed == NOT_REACHED || bodyWritten == NOT_REACHED) {
+                return;
+            }
+            record(PHASE_CONNECT, bodySubscribed - started);
+            record(PHASE_REQUEST_WRITE, bodyWritten - bodySubscribed);
+            record(PHASE_RESPONSE_WAIT, received - bodyWritten);
+        }
+    }
+
+    private record TimedBodyPublisher(HttpRequest.BodyPublisher delegate,
+                                      PhaseRecorder recorder) implements HttpRequest.BodyPublisher {
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            recorder.bodySubscribed = System.nanoTime();
+            delegate.subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscriber.onSubscribe(subscription);
+                }
+
+                @Override
+                public void onNext(ByteBuffer item) {
+                    subscriber.onNext(item);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    subscriber.onError(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    recorder.bodyWritten = System.nanoTime();
+                    subscriber.onComplete();
+                }
+            });
+        }
+    }
+}
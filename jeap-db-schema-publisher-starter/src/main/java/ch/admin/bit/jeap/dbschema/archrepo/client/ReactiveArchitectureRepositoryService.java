@@ -0,0 +1,23 @@
+package ch.admin.bit.jeap.dbschema.archrepo.client;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.service.annotation.PostExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking variant of {@link ArchitectureRepositoryService}, backed by a {@code WebClient} in WebFlux
+ * applications.
+ */
+public interface ReactiveArchitectureRepositoryService {
+
+    /**
+     * Publishes the database schema to the architecture repository once subscribed.
+     * <p>
+     * The content type is declared explicitly for the same reason as in
+     * {@link ArchitectureRepositoryService#publishDbSchema(CreateOrUpdateDbSchemaDto)}: the {@code WebClient} may be
+     * derived from the application's shared {@code WebClient.Builder} and its codecs.
+     */
+    @PostExchange(value = "/api/dbschemas", contentType = MediaType.APPLICATION_JSON_VALUE)
+    Mono<Void> publishDbSchema(@RequestBody CreateOrUpdateDbSchemaDto dto);
+}
@@ -3,6 +3,9 @@ package ch.admin.bit.jeap.dbschema.publisher;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 import static ch.admin.bit.jeap.dbschema.publisher.ArchRepoProperties.PREFIX;
 
 @ConfigurationProperties(prefix = PREFIX)
@@ -25,15 +28,226 @@ class ArchRepoProperties {
      * If true (default), the publisher will send the schema to the archrepo as long as an archrepo URL is set.
      */
     private boolean enabled = true;
+    /**
+     * When to publish the schema at startup: {@code application-ready} (default) once the application is ready, or
+     * {@code flyway-migration} as soon as Flyway has migrated the schema, overlapping with the rest of the startup.
+     * Falls back to {@code application-ready} if Flyway does not run.
+     */
+    private Trigger trigger = Trigger.APPLICATION_READY;
 
     private DbSchemaProperties database = new DbSchemaProperties();
 
+    private HttpProperties http = new HttpProperties();
+
+    private UploadProperties upload = new UploadProperties();
+
+    private SpoolProperties spool = new SpoolProperties();
+
+    private DriftDetectionProperties driftDetection = new DriftDetectionProperties();
+
+    private ElectionProperties election = new ElectionProperties();
+
+    private StartupProperties startup = new StartupProperties();
+
+    private RateLimitProperties rateLimit = new RateLimitProperties();
+
+    private ShutdownProperties shutdown = new ShutdownProperties();
+
     public String getSchemaName() {
         return database.getSchemaName();
     }
 
+    /**
+     * @return The tenant schema pattern if tenant mode is enabled, otherwise {@code null}
+     */
+    public String getTenantSchemaPattern() {
+        return database.isTenantModeEnabled() ? database.getTenantSchemaPattern() : null;
+    }
+
     @Data
     public static class DbSchemaProperties {
         private String schemaName = "data";
+        /**
+         * If set and tenant mode is enabled, the schemas matching this pattern, e.g. {@code tenant%}, are published as
+         * the schemas of a schema-per-tenant database instead of the schema {@code schema-name}: a template with the
+         * structure most tenants share, the list of these tenants and the schemas of the tenants that differ.
+         * {@code %} and {@code _} are wildcards as in SQL {@code LIKE} patterns.
+         */
+        private String tenantSchemaPattern;
+        /**
+         * If true, the schemas matching {@code tenant-schema-pattern} are published in tenant mode. Requires an
+         * archrepo providing the endpoint {@code /api/dbschemas/tenants}, which the archrepo releases so far do not.
+         */
+        private boolean tenantModeEnabled;
+        /**
+         * If true, every catalog call made while reading the schema is timed and counted, and recorded as metric if a
+         * {@code MeterRegistry} is present.
+         */
+        private boolean instrumentCatalogCalls = false;
+        /**
+         * Instrumented catalog calls taking longer are logged as warning with the table they read.
+         */
+        private Duration slowCatalogCallThreshold = Duration.ofMillis(500);
+        /**
+         * If set and the publication is traced, reading the columns of each table with at least this many columns is
+         * recorded as span of its own.
+         */
+        private Integer tableSpanMinColumns;
+        /**
+         * If set, schemas read through the {@code DatabaseSchemaReader} bean are cached for this long and shared by all
+         * its consumers. Publications always read the current schema and update the cache, which is invalidated after
+         * each Flyway migration.
+         */
+        private Duration cacheTimeToLive;
+    }
+
+    @Data
+    public static class HttpProperties {
+        /**
+         * The HTTP transport used to call the archrepo. {@code shared} (default) derives the client from the
+         * application's {@code RestClient.Builder}, inheriting its request factory, timeouts and interceptors.
+         * {@code dedicated} uses an own JDK {@code HttpClient} (HTTP/2, pooled connections) with the timeouts below
+         * and records the connect, request-write and response-wait phases of each upload as metrics.
+         */
+        private Transport transport = Transport.SHARED;
+        /**
+         * Connect timeout of the dedicated transport.
+         */
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        /**
+         * Read timeout of the dedicated transport, i.e. the maximum time to wait for the archrepo response.
+         */
+        private Duration readTimeout = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class UploadProperties {
+        /**
+         * If true, schemas with more than {@code page-size} tables are uploaded in pages. Requires an archrepo
+         * providing the endpoints {@code /api/dbschemas/uploads}, which the archrepo releases so far do not.
+         */
+        private boolean enabled;
+        /**
+         * If set and the paginated upload is enabled, schemas with more tables are uploaded in pages of this many
+         * tables: the upload is begun, the pages are sent and the upload is committed, upon which the archrepo
+         * replaces the schema. If not set (default), the schema is sent in a single request.
+         */
+        private Integer pageSize;
+        /**
+         * Maximum number of pages sent at once.
+         */
+        private int pageConcurrency = 4;
+        /**
+         * Attempts to send a page or the commit before the upload fails. Only I/O errors and server errors are retried.
+         */
+        private int pageAttempts = 3;
+        /**
+         * Delay before sending a failed page or commit again, doubled after each failed attempt.
+         */
+        private Duration pageRetryBackoff = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class SpoolProperties {
+        /**
+         * Directory in which publications that could not be delivered to the archrepo are kept until they have been
+         * delivered, e.g. on a persistent volume. If not set (default), failed publications are not retried.
+         */
+        private Path directory;
+        /**
+         * Delay before the first retry of a spooled publication. Doubled after each failed retry.
+         */
+        private Duration initialBackoff = Duration.ofSeconds(30);
+        /**
+         * Upper bound for the delay between retries of a spooled publication.
+         */
+        private Duration maxBackoff = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class DriftDetectionProperties {
+        /**
+         * If true, the schema is checked periodically for changes made at runtime (e.g. DDL applied manually or
+         * migrations run by another replica) and republished when it has changed. Default false.
+         */
+        private boolean enabled;
+        /**
+         * Interval between two checks.
+         */
+        private Duration interval = Duration.ofMinutes(15);
+        /**
+         * Maximum random delay added to each interval, spreading the checks of many replicas over time.
+         */
+        private Duration jitter = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class ElectionProperties {
+        /**
+         * If true, only one replica publishes a component version: the replica that acquires a database lock named
+         * after the component and version, unless the same schema has already been published for that version. The
+         * others skip their publication. Default false.
+         */
+        private boolean enabled;
+        /**
+         * Table holding the locks on databases other than PostgreSQL, which uses advisory locks. The table must be
+         * created by the application.
+         */
+        private String lockTable = "db_schema_publisher_lock";
+        /**
+         * Age after which a lock in the lock table is considered abandoned by a replica that died while publishing.
+         */
+        private Duration lockTimeout = Duration.ofMinutes(10);
+        /**
+         * Table recording the fingerprint of the schema last published for each component version, on all databases.
+         * Replicas skip their publication while the schema still has that fingerprint. The table must be created by
+         * the application.
+         */
+        private String publicationTable = "db_schema_publisher_publication";
+    }
+
+    @Data
+    public static class StartupProperties {
+        /**
+         * Delay between the application being ready and the first publication.
+         */
+        private Duration initialDelay = Duration.ZERO;
+        /**
+         * Maximum random delay added to the initial delay, spreading the publications of services restarted together
+         * over time.
+         */
+        private Duration jitter = Duration.ZERO;
+    }
+
+    @Data
+    public static class RateLimitProperties {
+        /**
+         * Maximum number of publications started per minute, shared by all publishers in the JVM. If not set
+         * (default), publications are not limited.
+         */
+        private Integer publicationsPerMinute;
+        /**
+         * Number of publications that may start at once before the limit applies.
+         */
+        private int burst = 1;
+    }
+
+    @Data
+    public static class ShutdownProperties {
+        /**
+         * How long a publication in flight when the application shuts down may take to stop after being interrupted.
+         * Its database connection is aborted afterwards, so that closing the connection pool is not held up.
+         */
+        private Duration gracePeriod = Duration.ofSeconds(5);
+    }
+
+    public enum Trigger {
+        APPLICATION_READY,
+        FLYWAY_MIGRATION
+    }
+
+    public enum Transport {
+        SHARED,
+        DEDICATED
     }
 }
@@ -0,0 +1,91 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs an asynchronous task such that at most one run is in flight. Triggers arriving while a run is in flight are
+ * merged into a single pending run, which starts once the current run has completed. Triggering never blocks and is
+ * never rejected, so it is safe from any thread and any number of times.
+ */
+@Slf4j
+class CoalescingTaskRunner {
+
+    private final Supplier<CompletableFuture<Void>> task;
+    private final Executor executor;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private boolean running;
+    private CompletableFuture<Void> pendingRun;
+
+    CoalescingTaskRunner(Supplier<CompletableFuture<Void>> task, Executor executor) {
+        this.task = task;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts a run, or marks a run as pending if one is in flight.
+     *
+     * @return A future completing with the run that covers this trigger
+     */
+    CompletableFuture<Void> trigger() {
+        lock.lock();
+        try {
+            if (running) {
+                if (pendingRun == null) {
+                    pendingRun = new CompletableFuture<>();
+                }
+                log.debug("Run in flight, coalescing trigger into the pending run");
+                return pendingRun;
+            }
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+        CompletableFuture<Void> run = new CompletableFuture<>();
+        start(run);
+        return run;
+    }
+
+    private void start(CompletableFuture<Void> run) {
+        try {
+            executor.execute(() -> runTask(run));
+        } catch (RuntimeException ex) {
+            completed(run, ex);
+        }
+    }
+
+    private void runTask(CompletableFuture<Void> run) {
+        CompletableFuture<Void> result;
+        try {
+            result = task.get();
+        } catch (RuntimeException ex) {
+            result = CompletableFuture.failedFuture(ex);
+        }
+        result.whenComplete((_, ex) -> completed(run, ex));
+    }
+
+    private void completed(CompletableFuture<Void> run, Throwable ex) {
+        CompletableFuture<Void> next;
+        lock.lock();
+        try {
+            next = pendingRun;
+            pendingRun = null;
+            running = next != null;
+        } finally {
+            lock.unlock();
+        }
+        if (ex == null) {
+            run.complete(null);
+        } else {
+            run.completeExceptionally(ex);
+        }
+        if (next != null) {
+            start(next);
+        }
+    }
+}
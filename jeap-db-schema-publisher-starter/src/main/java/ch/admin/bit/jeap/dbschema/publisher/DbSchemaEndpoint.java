@@ -0,0 +1,39 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.publisher.PublicationStatistics.PublicationReport;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+/**
+ * Actuator endpoint {@code /actuator/dbschema}. Reading it returns the statistics of the latest publication, writing
+ * to it (HTTP POST) triggers a republication of the schema and returns without waiting for its completion.
+ */
+@Endpoint(id = "dbschema")
+class DbSchemaEndpoint {
+
+    private final DbSchemaPublisher dbSchemaPublisher;
+    private final PublicationStatistics statistics;
+
+    DbSchemaEndpoint(DbSchemaPublisher dbSchemaPublisher, PublicationStatistics statistics) {
+        this.dbSchemaPublisher = dbSchemaPublisher;
+        this.statistics = statistics;
+    }
+
+    @ReadOperation
+    public DbSchemaDescriptor statistics() {
+        return new DbSchemaDescriptor(statistics.isRunning(), statistics.getLastPublication());
+    }
+
+    @WriteOperation
+    public void republish() {
+        dbSchemaPublisher.publishDatabaseSchemaAsync();
+    }
+
+    /**
+     * @param running         Whether a publication is in flight
+     * @param lastPublication The latest completed publication, null if none has completed yet
+     */
+    record DbSchemaDescriptor(boolean running, PublicationReport lastPublication) {
+    }
+}
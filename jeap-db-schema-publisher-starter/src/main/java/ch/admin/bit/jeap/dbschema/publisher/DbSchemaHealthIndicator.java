@@ -0,0 +1,35 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.publisher.PublicationStatistics.PublicationReport;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+
+/**
+ * Reports the outcome of the latest publication: {@code UNKNOWN} until a publication has completed and {@code UP}
+ * afterwards, with the outcome and the error of a failed publication in the details. A failed publication never
+ * reports {@code DOWN}: it would turn the aggregate health of the application down, and with it load balancers and
+ * monitors polling it, although the application itself works.
+ */
+class DbSchemaHealthIndicator implements HealthIndicator {
+
+    private final PublicationStatistics statistics;
+
+    DbSchemaHealthIndicator(PublicationStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public Health health() {
+        PublicationReport lastPublication = statistics.getLastPublication();
+        if (lastPublication == null) {
+            return Health.unknown().withDetail("running", statistics.isRunning()).build();
+        }
+        Health.Builder builder = Health.up()
+                .withDetail("outcome", lastPublication.outcome())
+                .withDetail("finishedAt", lastPublication.finishedAt());
+        if (lastPublication.error() != null) {
+            builder.withDetail("error", lastPublication.error());
+        }
+        return builder.build();
+    }
+}
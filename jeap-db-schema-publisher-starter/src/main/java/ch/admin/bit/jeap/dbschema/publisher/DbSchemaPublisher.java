@@ -2,19 +2,29 @@ package ch.admin.bit.jeap.dbschema.publisher;
 
 import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
 import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.TenantDbSchemasDto;
+import ch.admin.bit.jeap.dbschema.diff.SchemaChanges;
+import ch.admin.bit.jeap.dbschema.diff.SchemaDiff;
 import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
-import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.publisher.TenantSchemaReader.TenantSchemas;
+import ch.admin.bit.jeap.dbschema.reader.CachingDatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.reader.CachingDatabaseModelReader.SchemaLoader;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseSchemaReader;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 
 @Slf4j
-class DbSchemaPublisher {
-
-    static final String DB_SCHEMA_PUBLISHER_TASK_EXECUTOR = "dbSchemaPublisherTaskExecutor";
+class DbSchemaPublisher implements AutoCloseable {
 
     private static final String TIMER_NAME = "jeap-publish-database-schema";
     private static final String SPAN_NAME = "publish-db-schema";
@@ -23,17 +33,42 @@ class DbSchemaPublisher {
     private final ArchRepoProperties properties;
     private final ArchitectureRepositoryService architectureRepositoryService;
     private final DataSource dataSource;
-    private final DatabaseModelReader databaseModelReader;
+    private final DatabaseSchemaReader databaseModelReader;
     private final AppVersionProvider appVersionProvider;
     private final TracingTimer tracingTimer;
+    private final PublicationSpool publicationSpool;
+    private final PublisherElection publisherElection;
+    private final PublicationRateLimiter rateLimiter;
+    private final PublicationStatistics statistics;
+    private final TenantSchemaReader tenantSchemaReader;
+    private final CoalescingTaskRunner publishRunner;
+    private volatile DatabaseSchema lastPublishedSchema;
+    private volatile Thread publicationThread;
+    private volatile Connection publicationConnection;
+    private volatile boolean closed;
 
     DbSchemaPublisher(String applicationName,
                       ArchRepoProperties properties,
                       ArchitectureRepositoryService architectureRepositoryService,
                       DataSource dataSource,
-                      DatabaseModelReader databaseModelReader,
+                      DatabaseSchemaReader databaseModelReader,
                       AppVersionProvider appVersionProvider,
                       TracingTimer tracingTimer) {
+        this(applicationName, properties, architectureRepositoryService, dataSource, databaseModelReader,
+                appVersionProvider, tracingTimer, null, null, null, new PublicationStatistics());
+    }
+
+    DbSchemaPublisher(String applicationName,
+                      ArchRepoProperties properties,
+                      ArchitectureRepositoryService architectureRepositoryService,
+                      DataSource dataSource,
+                      DatabaseSchemaReader databaseModelReader,
+                      AppVersionProvider appVersionProvider,
+                      TracingTimer tracingTimer,
+                      PublicationSpool publicationSpool,
+                      PublisherElection publisherElection,
+                      PublicationRateLimiter rateLimiter,
+                      PublicationStatistics statistics) {
         this.applicationName = applicationName;
         this.properties = properties;
         this.architectureRepositoryService = architectureRepositoryService;
@@ -41,33 +76,234 @@ class DbSchemaPublisher {
         this.databaseModelReader = databaseModelReader;
         this.appVersionProvider = appVersionProvider;
         this.tracingTimer = tracingTimer;
+        this.publicationSpool = publicationSpool;
+        this.publisherElection = publisherElection;
+        this.rateLimiter = rateLimiter;
+        this.statistics = statistics;
+        this.tenantSchemaReader = properties.getTenantSchemaPattern() != null ?
+                new TenantSchemaReader(databaseModelReader) : null;
+        this.publishRunner = new CoalescingTaskRunner(this::publishTracedAndTimed, publisherExecutor());
     }
 
-    @Async(DB_SCHEMA_PUBLISHER_TASK_EXECUTOR)
+    /**
+     * Publishes the database schema on a virtual thread. At most one publication is in flight, triggers arriving
+     * meanwhile are merged into a single follow-up publication.
+     */
     public CompletableFuture<Void> publishDatabaseSchemaAsync() {
-        return tracingTimer.traceAndTime(SPAN_NAME, TIMER_NAME, () -> {
-            try {
-                publishDatabaseSchema();
-                return CompletableFuture.completedFuture(null);
-            } catch (Exception _) {
-                String errorMessage = "Failed to publish database schema";
-                log.error(errorMessage);
-                return CompletableFuture.failedFuture(new IllegalStateException(errorMessage));
+        return publishRunner.trigger();
+    }
+
+    private CompletableFuture<Void> publishTracedAndTimed() {
+        // Set before checking closed, so that close() either sees the thread or the thread sees closed
+        publicationThread = Thread.currentThread();
+        try {
+            if (closed) {
+                return CompletableFuture.failedFuture(new CancellationException("Publisher closed"));
             }
-        });
+            if (rateLimiter != null) {
+                try {
+                    rateLimiter.acquire();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return CompletableFuture.failedFuture(closed ? cancelled(ex) : ex);
+                }
+            }
+            return tracingTimer.traceAndTime(SPAN_NAME, TIMER_NAME, () -> {
+                statistics.started();
+                try {
+                    publishDatabaseSchema();
+                    statistics.completed(null);
+                    return CompletableFuture.completedFuture(null);
+                } catch (Exception ex) {
+                    if (closed) {
+                        statistics.cancelled();
+                        log.info("Database schema publication cancelled by shutdown");
+                        return CompletableFuture.failedFuture(cancelled(ex));
+                    }
+                    statistics.completed(ex);
+                    String errorMessage = "Failed to publish database schema";
+                    log.error(errorMessage, ex);
+                    return CompletableFuture.failedFuture(new IllegalStateException(errorMessage, ex));
+                }
+            });
+        } finally {
+            publicationThread = null;
+            // Clears the interrupt of a cancellation that arrived after the publication had completed
+            Thread.interrupted();
+        }
+    }
+
+    private static CancellationException cancelled(Exception cause) {
+        CancellationException cancellation = new CancellationException("Publication cancelled by shutdown");
+        cancellation.initCause(cause);
+        return cancellation;
+    }
+
+    /**
+     * Cancels the publication in flight, if any, and rejects later ones. The publisher thread is interrupted, which
+     * also interrupts its blocking JDBC and HTTP socket I/O, as it is a virtual thread. If the publication has not
+     * stopped within the grace period, its database connection is aborted, so that the connection pool can be
+     * closed without waiting for it.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Thread thread = publicationThread;
+        if (thread == null) {
+            return;
+        }
+        Duration gracePeriod = properties.getShutdown().getGracePeriod();
+        log.info("Cancelling database schema publication in flight, grace period {}", gracePeriod);
+        thread.interrupt();
+        try {
+            if (!thread.join(gracePeriod)) {
+                abortConnection(gracePeriod);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            abortConnection(gracePeriod);
+        }
+    }
+
+    private void abortConnection(Duration gracePeriod) {
+        Connection connection = publicationConnection;
+        if (connection == null) {
+            return;
+        }
+        log.warn("Database schema publication did not stop within {}, aborting its database connection", gracePeriod);
+        try {
+            connection.abort(Thread::startVirtualThread);
+        } catch (SQLException | RuntimeException ex) {
+            log.warn("Failed to abort database connection of the publication: {}", ex.getMessage());
+        }
+    }
+
+    private static SimpleAsyncTaskExecutor publisherExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("db-schema-publisher-");
+        executor.setVirtualThreads(true);
+        // Continues the trace of the trigger, e.g. of a request to the dbschema actuator endpoint
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        return executor;
     }
 
     void publishDatabaseSchema() throws SQLException {
         log.debug("Reading database schema from {} schema", properties.getSchemaName());
-        DatabaseSchema databaseSchema = databaseModelReader.readDatabaseModel(
-                dataSource,
-                properties.getSchemaName(),
-                appVersionProvider.getVersion());
+        String version = appVersionProvider.getVersion();
+        Runnable upload;
+        try (Connection connection = acquireConnection()) {
+            publicationConnection = connection;
+            if (publisherElection != null) {
+                // The lock is held on the connection, which therefore stays open during the upload
+                publishAsElectedPublisher(connection, version);
+                return;
+            }
+            upload = read(connection, version);
+        } finally {
+            publicationConnection = null;
+        }
+        upload.run();
+    }
+
+    private void publishAsElectedPublisher(Connection connection, String version) throws SQLException {
+        String lockName = applicationName + ":" + version;
+        if (!publisherElection.tryAcquire(connection, lockName)) {
+            statistics.skipped();
+            return;
+        }
+        try {
+            // Read again by the next replica acquiring the lock, which skips its publication if it is unchanged
+            String fingerprint = readSchemaFingerprint(connection);
+            if (publisherElection.isPublished(connection, lockName, fingerprint)) {
+                statistics.skipped();
+                return;
+            }
+            read(connection, version).run();
+            publisherElection.markPublished(connection, lockName, fingerprint);
+        } finally {
+            publisherElection.release(connection, lockName);
+        }
+    }
+
+    private String readSchemaFingerprint(Connection connection) throws SQLException {
+        String tenantSchemaPattern = properties.getTenantSchemaPattern();
+        return tenantSchemaPattern != null ?
+                databaseModelReader.readSchemaFingerprints(connection, tenantSchemaPattern).toString() :
+                databaseModelReader.readSchemaFingerprint(connection, properties.getSchemaName());
+    }
+
+    /**
+     * Reads the schema, or the tenant schemas in tenant mode, and returns their upload.
+     */
+    private Runnable read(Connection connection, String version) throws SQLException {
+        if (tenantSchemaReader != null) {
+            TenantSchemas tenantSchemas = readTenantSchemas(connection, version);
+            return () -> publish(tenantSchemas);
+        }
+        DatabaseSchema databaseSchema = readDatabaseSchema(connection, version);
+        return () -> publish(databaseSchema);
+    }
+
+    private Connection acquireConnection() throws SQLException {
+        return statistics.inPhase(PublicationStatistics.PHASE_CONNECTION_ACQUISITION, dataSource::getConnection);
+    }
+
+    private DatabaseSchema readDatabaseSchema(Connection connection, String version) throws SQLException {
+        String schemaName = properties.getSchemaName();
+        SchemaLoader loader = () -> databaseModelReader.readDatabaseModelFrom(connection, schemaName, version);
+        // Publications always read the current schema, and share it with the other consumers of a cache
+        DatabaseSchema databaseSchema = statistics.inPhase(PublicationStatistics.PHASE_CATALOG_READ, () ->
+                databaseModelReader instanceof CachingDatabaseModelReader cache ?
+                        cache.refresh(dataSource, schemaName, loader) : loader.load());
+        statistics.schemaRead(schemaName, databaseSchema.tables().size(),
+                databaseSchema.tables().stream().mapToInt(table -> table.columns().size()).sum());
+        return databaseSchema;
+    }
+
+    private TenantSchemas readTenantSchemas(Connection connection, String version) throws SQLException {
+        String schemaPattern = properties.getTenantSchemaPattern();
+        TenantSchemas tenantSchemas = statistics.inPhase(PublicationStatistics.PHASE_CATALOG_READ, () ->
+                tenantSchemaReader.read(connection, schemaPattern, version));
+        List<Table> tables = tenantSchemas.representatives().stream()
+                .flatMap(schema -> schema.tables().stream())
+                .toList();
+        statistics.schemaRead(schemaPattern, tables.size(), tables.stream().mapToInt(table -> table.columns().size()).sum());
+        return tenantSchemas;
+    }
 
+    /**
+     * Tenant schemas are not spooled, the next publication repeats a failed one.
+     */
+    private void publish(TenantSchemas tenantSchemas) {
+        TenantDbSchemasDto dto = new TenantDbSchemasDto(applicationName, tenantSchemas.template(),
+                tenantSchemas.tenants(), tenantSchemas.outliers());
+        log.info("Publishing tenant schemas DTO: componentName={}, tenantCount={}, outlierCount={} to {} with client registration {}",
+                dto.systemComponentName(), dto.tenants().size(), dto.outliers().size(), properties.getUrl(),
+                properties.getOauthClient());
+        architectureRepositoryService.publishTenantDbSchemas(dto);
+        log.info("Published tenant database schemas successfully");
+    }
+
+    private void publish(DatabaseSchema databaseSchema) {
+        logChangesSinceLastPublication(databaseSchema);
         CreateOrUpdateDbSchemaDto dto = new CreateOrUpdateDbSchemaDto(applicationName, databaseSchema);
         log.info("Publishing schema DTO: componentName={}, tableCount={} to {} with client registration {}",
                 dto.systemComponentName(), dto.schema().tables().size(), properties.getUrl(), properties.getOauthClient());
-        architectureRepositoryService.publishDbSchema(dto);
+        if (publicationSpool != null) {
+            publicationSpool.publish(dto);
+        } else {
+            architectureRepositoryService.publishDbSchema(dto);
+        }
+        lastPublishedSchema = databaseSchema;
         log.info("Published database schema successfully");
     }
+
+    private void logChangesSinceLastPublication(DatabaseSchema databaseSchema) {
+        DatabaseSchema previousSchema = lastPublishedSchema;
+        if (previousSchema != null) {
+            SchemaChanges changes = SchemaDiff.between(previousSchema, databaseSchema);
+            if (!changes.isEmpty()) {
+                log.info("Database schema changed since the last publication: {}", changes.summary());
+            }
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.health.autoconfigure.contributor.ConditionalOnEnabledHealthIndicator;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes the {@code dbschema} actuator endpoint and health indicator if Spring Boot Actuator is on the classpath.
+ * The endpoint must be exposed like any other endpoint, e.g. with
+ * <pre>management.endpoints.web.exposure.include=health,dbschema</pre>
+ */
+@AutoConfiguration(after = DbSchemaPublisherAutoConfiguration.class)
+@ConditionalOnClass(Endpoint.class)
+@ConditionalOnBean(DbSchemaPublisher.class)
+public class DbSchemaPublisherActuatorAutoConfiguration {
+
+    @Bean
+    @ConditionalOnAvailableEndpoint
+    public DbSchemaEndpoint dbSchemaEndpoint(DbSchemaPublisher dbSchemaPublisher,
+                                             PublicationStatistics dbSchemaPublicationStatistics) {
+        return new DbSchemaEndpoint(dbSchemaPublisher, dbSchemaPublicationStatistics);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(HealthIndicator.class)
+    static class HealthIndicatorConfiguration {
+
+        // The health contributor is named after the bean without the HealthIndicator suffix, i.e. "dbschema"
+        @Bean
+        @ConditionalOnEnabledHealthIndicator("dbschema")
+        public DbSchemaHealthIndicator dbschemaHealthIndicator(PublicationStatistics dbSchemaPublicationStatistics) {
+            return new DbSchemaHealthIndicator(dbSchemaPublicationStatistics);
+        }
+    }
+}
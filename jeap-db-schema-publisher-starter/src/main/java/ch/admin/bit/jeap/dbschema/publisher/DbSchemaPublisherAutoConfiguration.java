@@ -1,75 +1,213 @@
 package ch.admin.bit.jeap.dbschema.publisher;
 
 import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.DbSchemaUploadService;
 import ch.admin.bit.jeap.dbschema.archrepo.client.OAuth2ClientCredentialsRestClientInitializer;
+import ch.admin.bit.jeap.dbschema.archrepo.client.OAuth2ClientCredentialsExchangeFilterFunction;
+import ch.admin.bit.jeap.dbschema.archrepo.client.PhaseTimingHttpClient;
+import ch.admin.bit.jeap.dbschema.archrepo.client.ReactiveArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.reader.CachingDatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.reader.CatalogCallListener;
+import ch.admin.bit.jeap.dbschema.reader.CatalogInstrumentation;
 import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseSchemaReader;
+import ch.admin.bit.jeap.dbschema.reader.SchemaMetadataDialect;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.tracing.Tracer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.info.BuildProperties;
 import org.springframework.boot.info.GitProperties;
 import org.springframework.boot.jdbc.autoconfigure.DataSourceAutoConfiguration;
 import org.springframework.context.annotation.Bean;
-import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
 import org.springframework.security.oauth2.client.*;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.support.RestClientAdapter;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.support.WebClientAdapter;
 import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+import reactor.core.scheduler.Schedulers;
 
 import javax.sql.DataSource;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
 
 /**
  * Enabling the DB schema upload to the architecture repository (archrepo) requires setting the property
  * <pre>jeap.archrepo.url</pre> to the URL of the archrepo service.
  * This autoconfiguration is can be completely disabled (for example in tests) by setting the property <pre>jeap.archrepo.enabled=false</pre>.
  */
+@Slf4j
 @AutoConfiguration(after = DataSourceAutoConfiguration.class)
 @EnableConfigurationProperties(ArchRepoProperties.class)
+@ImportRuntimeHints(DbSchemaPublisherRuntimeHints.class)
 @ConditionalOnProperty(prefix = ArchRepoProperties.PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
-@EnableAsync
 public class DbSchemaPublisherAutoConfiguration {
 
     @Bean
-    public DatabaseModelReader databaseModelReader() {
-        return new DatabaseModelReader();
+    public DatabaseModelReader databaseModelReader(ArchRepoProperties properties,
+                                                   @Autowired(required = false) MeterRegistry meterRegistry,
+                                                   @Autowired(required = false) Tracer tracer,
+                                                   ObjectProvider<SchemaMetadataDialect> dialects) {
+        ArchRepoProperties.DbSchemaProperties database = properties.getDatabase();
+        List<CatalogCallListener> listeners = new ArrayList<>();
+        if (database.isInstrumentCatalogCalls() && meterRegistry != null) {
+            listeners.add(new MicrometerCatalogCallListener(meterRegistry));
+        }
+        if (database.getTableSpanMinColumns() != null && tracer != null) {
+            listeners.add(new TracingCatalogCallListener(tracer, database.getTableSpanMinColumns(), Clock.systemUTC()));
+        }
+        CatalogInstrumentation catalogInstrumentation;
+        if (!database.isInstrumentCatalogCalls() && listeners.isEmpty()) {
+            catalogInstrumentation = CatalogInstrumentation.disabled();
+        } else {
+            Duration slowCallThreshold = database.isInstrumentCatalogCalls() ? database.getSlowCatalogCallThreshold() : null;
+            catalogInstrumentation = CatalogInstrumentation.of(slowCallThreshold, listeners.toArray(CatalogCallListener[]::new));
+        }
+        // Dialects defined by the application take precedence over those installed with the ServiceLoader. Both are
+        // looked up by the first read, after the application has started.
+        return new DatabaseModelReader(catalogInstrumentation, () ->
+                Stream.concat(dialects.orderedStream(), DatabaseModelReader.installedDialects().stream()).toList());
+    }
+
+    /**
+     * Takes precedence over the {@link DatabaseModelReader} for all consumers of a {@link DatabaseSchemaReader}, while
+     * the {@link DatabaseModelReader} bean remains available and always reads the catalog.
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = ArchRepoProperties.PREFIX, name = "database.cache-time-to-live")
+    public CachingDatabaseModelReader cachingDatabaseModelReader(ArchRepoProperties properties,
+                                                                 DatabaseModelReader databaseModelReader) {
+        return new CachingDatabaseModelReader(databaseModelReader, properties.getDatabase().getCacheTimeToLive());
+    }
+
+    @Bean
+    public PublicationStatistics dbSchemaPublicationStatistics(@Autowired(required = false) MeterRegistry meterRegistry,
+                                                               @Autowired(required = false) Tracer tracer) {
+        return new PublicationStatistics(new PublicationMetrics(meterRegistry), tracer, Clock.systemUTC());
     }
 
     @Bean
     @ConditionalOnProperty(prefix = ArchRepoProperties.PREFIX, name = "url")
+    @ConditionalOnMissingBean(ReactiveArchitectureRepositoryService.class)
     public ArchitectureRepositoryService architectureRepositoryService(ClientRegistrationRepository clientRegistrationRepository,
                                                                        OAuth2AuthorizedClientService clientService,
-                                                                       RestClient.Builder builder,
-                                                                       ArchRepoProperties properties) {
-
+                                                                       ObjectProvider<RestClient.Builder> builder,
+                                                                       ArchRepoProperties properties,
+                                                                       PublicationStatistics dbSchemaPublicationStatistics,
+                                                                       @Autowired(required = false) MeterRegistry meterRegistry) {
+        // Validated on startup, while the client is only created by the first publication
+        validateUrl(properties);
+        validateUpload(properties.getUpload());
         ClientRegistration clientRegistration = clientRegistrationRepository.findByRegistrationId(properties.getOauthClient());
         if (clientRegistration == null) {
-            throw new IllegalStateException("No OAuth2 client registration found with id: " + properties.getOauthClient() +
-                    ". Please ensure that the client registration is configured correctly at jeap.archrepo.oauth-client and that " +
-                    "an oauth client has been registered in the spring security configuration at spring.security.oauth2.client.registration." + properties.getOauthClient());
+            throw missingClientRegistration(properties);
         }
 
-        OAuth2ClientCredentialsRestClientInitializer initializer =
-                new OAuth2ClientCredentialsRestClientInitializer(
-                        authorizedClientManager(clientRegistrationRepository, clientService),
-                        clientRegistration);
+        return new LazyArchitectureRepositoryService(() -> {
+            OAuth2ClientCredentialsRestClientInitializer initializer =
+                    new OAuth2ClientCredentialsRestClientInitializer(
+                            authorizedClientManager(clientRegistrationRepository, clientService),
+                            clientRegistration);
+
+            PublicationHttpPhaseRecorder phaseRecorder = new PublicationHttpPhaseRecorder(dbSchemaPublicationStatistics, initializer);
+            RestClient.Builder restClientBuilder = properties.getHttp().getTransport() == ArchRepoProperties.Transport.DEDICATED ?
+                    dedicatedRestClientBuilder(properties.getHttp(), meterRegistry) :
+                    builder.getObject().clone();
+            RestClient restClient = restClientBuilder
+                    .baseUrl(properties.getUrl())
+                    .requestInitializer(phaseRecorder)
+                    .requestInterceptor(phaseRecorder)
+                    .build();
 
-        RestClient restClient = builder.clone()
-                .baseUrl(properties.getUrl())
-                .requestInitializer(initializer)
+            HttpServiceProxyFactory proxyFactory = HttpServiceProxyFactory
+                    .builderFor(RestClientAdapter.create(restClient))
+                    .build();
+            ArchitectureRepositoryService architectureRepositoryService = proxyFactory.createClient(ArchitectureRepositoryService.class);
+            return isPaginatedUploadEnabled(properties.getUpload()) ?
+                    new PaginatedArchitectureRepositoryService(architectureRepositoryService,
+                            proxyFactory.createClient(DbSchemaUploadService.class), properties.getUpload(),
+                            dbSchemaPublicationStatistics) :
+                    architectureRepositoryService;
+        });
+    }
+
+    /**
+     * A builder independent of the application's shared {@code RestClient.Builder}: the archrepo client then neither
+     * inherits the request factory, timeouts and interceptors nor the message converters of the host application.
+     */
+    private static RestClient.Builder dedicatedRestClientBuilder(ArchRepoProperties.HttpProperties httpProperties,
+                                                                 MeterRegistry meterRegistry) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(httpProperties.getConnectTimeout())
                 .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(
+                meterRegistry != null ? new PhaseTimingHttpClient(httpClient, meterRegistry) : httpClient);
+        requestFactory.setReadTimeout(httpProperties.getReadTimeout());
+        return RestClient.builder().requestFactory(requestFactory);
+    }
 
-        return HttpServiceProxyFactory
-                .builderFor(RestClientAdapter.create(restClient))
-                .build()
-                .createClient(ArchitectureRepositoryService.class);
+    private static void validateUrl(ArchRepoProperties properties) {
+        URI url;
+        try {
+            url = new URI(properties.getUrl());
+        } catch (URISyntaxException ex) {
+            throw new IllegalStateException("Invalid archrepo URL at jeap.archrepo.url: " + properties.getUrl(), ex);
+        }
+        if (!url.isAbsolute()) {
+            throw new IllegalStateException("The archrepo URL at jeap.archrepo.url must be absolute: " + properties.getUrl());
+        }
+    }
+
+    private static boolean isPaginatedUploadEnabled(ArchRepoProperties.UploadProperties upload) {
+        return upload.isEnabled() && upload.getPageSize() != null;
+    }
+
+    private static void validateUpload(ArchRepoProperties.UploadProperties upload) {
+        if (upload.getPageSize() != null && !upload.isEnabled()) {
+            log.warn("jeap.archrepo.upload.page-size is ignored, the paginated upload requires an archrepo providing " +
+                    "/api/dbschemas/uploads and has to be enabled with jeap.archrepo.upload.enabled=true");
+        }
+        if (upload.getPageSize() != null && upload.getPageSize() < 1) {
+            throw new IllegalStateException("jeap.archrepo.upload.page-size must be positive: " + upload.getPageSize());
+        }
+        if (upload.getPageConcurrency() < 1 || upload.getPageAttempts() < 1) {
+            throw new IllegalStateException("jeap.archrepo.upload.page-concurrency and page-attempts must be positive");
+        }
+    }
+
+    private static IllegalStateException missingClientRegistration(ArchRepoProperties properties) {
+        return new IllegalStateException("No OAuth2 client registration found with id: " + properties.getOauthClient() +
+                ". Please ensure that the client registration is configured correctly at jeap.archrepo.oauth-client and that " +
+                "an oauth client has been registered in the spring security configuration at spring.security.oauth2.client.registration." + properties.getOauthClient());
     }
 
     private OAuth2AuthorizedClientManager authorizedClientManager(ClientRegistrationRepository clientRegistrationRepository,
@@ -80,37 +218,177 @@ public class DbSchemaPublisherAutoConfiguration {
         return authorizedClientManager;
     }
 
+    @Bean
+    @ConditionalOnProperty(prefix = ArchRepoProperties.PREFIX, name = "spool.directory")
+    @ConditionalOnBean(ArchitectureRepositoryService.class)
+    public PublicationSpool dbSchemaPublicationSpool(ArchRepoProperties properties,
+                                                     ArchitectureRepositoryService architectureRepositoryService,
+                                                     @Value("${spring.application.name}") String applicationName) {
+        return new PublicationSpool(applicationName, properties.getSpool(), architectureRepositoryService,
+                virtualThreadTaskScheduler("db-schema-spool-"));
+    }
+
     @Bean
     @ConditionalOnBean({DataSource.class, ArchitectureRepositoryService.class})
     public DbSchemaPublisher dbSchemaPublisher(ArchRepoProperties properties,
                                                ArchitectureRepositoryService architectureRepositoryService,
                                                DataSource dataSource,
-                                               DatabaseModelReader databaseModelReader,
+                                               DatabaseSchemaReader databaseModelReader,
                                                @Value("${spring.application.name}") String applicationName,
                                                @Autowired(required = false) BuildProperties buildProperties,
                                                @Autowired(required = false) GitProperties gitProperties,
                                                @Autowired(required = false) Tracer tracer,
-                                               @Autowired(required = false) MeterRegistry meterRegistry) {
+                                               @Autowired(required = false) MeterRegistry meterRegistry,
+                                               PublicationStatistics dbSchemaPublicationStatistics,
+                                               @Autowired(required = false) PublicationSpool publicationSpool) {
+        if (properties.getDatabase().getTenantSchemaPattern() != null && !properties.getDatabase().isTenantModeEnabled()) {
+            log.warn("jeap.archrepo.database.tenant-schema-pattern is ignored, tenant mode requires an archrepo providing " +
+                    "/api/dbschemas/tenants and has to be enabled with jeap.archrepo.database.tenant-mode-enabled=true");
+        }
+        PublisherElection publisherElection = properties.getElection().isEnabled() ?
+                new PublisherElection(properties.getElection(), meterRegistry) : null;
+        PublicationRateLimiter rateLimiter = properties.getRateLimit().getPublicationsPerMinute() != null ?
+                PublicationRateLimiter.shared(properties.getRateLimit()) : null;
         return new DbSchemaPublisher(applicationName, properties, architectureRepositoryService,
                 dataSource, databaseModelReader, new AppVersionProvider(buildProperties, gitProperties),
-                new TracingTimer(tracer, meterRegistry));
+                new TracingTimer(tracer, meterRegistry), publicationSpool, publisherElection, rateLimiter,
+                dbSchemaPublicationStatistics);
     }
 
     @Bean
+    @ConditionalOnProperty(prefix = ArchRepoProperties.PREFIX, name = "drift-detection.enabled", havingValue = "true")
     @ConditionalOnBean(DbSchemaPublisher.class)
-    public DbSchemaPublisherEventListener dbSchemaPublisherEventListener(DbSchemaPublisher dbSchemaPublisher) {
-        return new DbSchemaPublisherEventListener(dbSchemaPublisher);
+    public SchemaDriftMonitor schemaDriftMonitor(DbSchemaPublisher dbSchemaPublisher,
+                                                DataSource dataSource,
+                                                DatabaseSchemaReader databaseModelReader,
+                                                ArchRepoProperties properties) {
+        return new SchemaDriftMonitor(dbSchemaPublisher, dataSource, databaseModelReader, properties,
+                virtualThreadTaskScheduler("db-schema-drift-"), jitterRandom());
     }
 
-    @Bean(DbSchemaPublisher.DB_SCHEMA_PUBLISHER_TASK_EXECUTOR)
+    @Bean
     @ConditionalOnBean(DbSchemaPublisher.class)
-    public ThreadPoolTaskExecutor dbSchemaPublisherTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(0);
-        executor.setMaxPoolSize(1);
-        executor.setQueueCapacity(1);
-        executor.setThreadNamePrefix("db-schema-publisher-");
-        executor.initialize();
-        return executor;
+    public DbSchemaPublisherEventListener dbSchemaPublisherEventListener(DbSchemaPublisher dbSchemaPublisher,
+                                                                         @Autowired(required = false) SchemaDriftMonitor schemaDriftMonitor,
+                                                                         ArchRepoProperties properties) {
+        return new DbSchemaPublisherEventListener(dbSchemaPublisher, schemaDriftMonitor, properties.getStartup(),
+                virtualThreadTaskScheduler("db-schema-startup-"), jitterRandom());
+    }
+
+    /**
+     * Publishes with the {@link ReactiveDbSchemaPublisher} in a reactive web application, i.e. if WebFlux is on the
+     * classpath but Spring MVC is not. Other applications with WebFlux on the classpath, e.g. command line runners
+     * using a {@code WebClient}, publish with the blocking publisher. OAuth clients are registered with Spring
+     * Security's reactive {@code ReactiveClientRegistrationRepository} in a reactive web application.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.web.reactive.function.client.WebClient")
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    static class ReactivePublisherConfiguration {
+
+        @Bean
+        @ConditionalOnProperty(prefix = ArchRepoProperties.PREFIX, name = "url")
+        public ReactiveArchitectureRepositoryService reactiveArchitectureRepositoryService(ReactiveClientRegistrationRepository clientRegistrationRepository,
+                                                                                           ReactiveOAuth2AuthorizedClientService clientService,
+                                                                                           ObjectProvider<WebClient.Builder> builder,
+                                                                                           ArchRepoProperties properties,
+                                                                                           @Autowired(required = false) MeterRegistry meterRegistry) {
+            // Resolved once on startup, the registrations configured with Spring Boot are kept in memory
+            validateUrl(properties);
+            ClientRegistration clientRegistration = clientRegistrationRepository.findByRegistrationId(properties.getOauthClient()).block();
+            if (clientRegistration == null) {
+                throw missingClientRegistration(properties);
+            }
+
+            return new LazyReactiveArchitectureRepositoryService(() -> {
+                AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager authorizedClientManager =
+                        new AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager(clientRegistrationRepository, clientService);
+                authorizedClientManager.setAuthorizedClientProvider(
+                        ReactiveOAuth2AuthorizedClientProviderBuilder.builder().clientCredentials().build());
+
+                WebClient.Builder webClientBuilder = properties.getHttp().getTransport() == ArchRepoProperties.Transport.DEDICATED ?
+                        dedicatedWebClientBuilder(properties.getHttp(), meterRegistry) :
+                        builder.getIfAvailable(WebClient::builder).clone();
+                WebClient webClient = webClientBuilder
+                        .baseUrl(properties.getUrl())
+                        .filter(new OAuth2ClientCredentialsExchangeFilterFunction(authorizedClientManager, clientRegistration))
+                        .build();
+
+                return HttpServiceProxyFactory
+                        .builderFor(WebClientAdapter.create(webClient))
+                        .build()
+                        .createClient(ReactiveArchitectureRepositoryService.class);
+            });
+        }
+
+        private static WebClient.Builder dedicatedWebClientBuilder(ArchRepoProperties.HttpProperties httpProperties,
+                                                                   MeterRegistry meterRegistry) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(httpProperties.getConnectTimeout())
+                    .build();
+            JdkClientHttpConnector connector = new JdkClientHttpConnector(
+                    meterRegistry != null ? new PhaseTimingHttpClient(httpClient, meterRegistry) : httpClient);
+            connector.setReadTimeout(httpProperties.getReadTimeout());
+            return WebClient.builder().clientConnector(connector);
+        }
+
+        @Bean
+        @ConditionalOnBean({DataSource.class, ReactiveArchitectureRepositoryService.class})
+        public ReactiveDbSchemaPublisher reactiveDbSchemaPublisher(ArchRepoProperties properties,
+                                                                   ReactiveArchitectureRepositoryService reactiveArchitectureRepositoryService,
+                                                                   DataSource dataSource,
+                                                                   DatabaseSchemaReader databaseModelReader,
+                                                                   @Value("${spring.application.name}") String applicationName,
+                                                                   @Autowired(required = false) BuildProperties buildProperties,
+                                                                   @Autowired(required = false) GitProperties gitProperties,
+                                                                   @Autowired(required = false) MeterRegistry meterRegistry) {
+            return new ReactiveDbSchemaPublisher(applicationName, properties, reactiveArchitectureRepositoryService,
+                    dataSource, databaseModelReader, new AppVersionProvider(buildProperties, gitProperties),
+                    meterRegistry, Schedulers.boundedElastic(), jitterRandom());
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.flywaydb.core.api.callback.Callback")
+    @ConditionalOnProperty(prefix = ArchRepoProperties.PREFIX, name = "database.cache-time-to-live")
+    static class FlywayCacheInvalidationConfiguration {
+
+        // Resolved lazily: nested configurations are processed before the reader bean is registered
+        @Bean
+        public SchemaCacheFlywayCallback dbSchemaCacheFlywayCallback(ObjectProvider<DatabaseSchemaReader> databaseModelReader) {
+            return new SchemaCacheFlywayCallback(databaseModelReader);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.flywaydb.core.api.callback.Callback")
+    @ConditionalOnProperty(prefix = ArchRepoProperties.PREFIX, name = "trigger", havingValue = "flyway-migration")
+    static class FlywayTriggerConfiguration {
+
+        // Resolved lazily: nested configurations are processed before the listener bean is registered
+        @Bean
+        public DbSchemaPublisherFlywayCallback dbSchemaPublisherFlywayCallback(ObjectProvider<DbSchemaPublisherEventListener> dbSchemaPublisherEventListener) {
+            return new DbSchemaPublisherFlywayCallback(dbSchemaPublisherEventListener);
+        }
+    }
+
+    /**
+     * {@link RandomGenerator#getDefault()} looks its algorithm up with the {@code ServiceLoader}, which fails in
+     * native images and in class loaders of AOT-processed contexts. The jitter needs no particular algorithm.
+     */
+    private static RandomGenerator jitterRandom() {
+        return new Random();
+    }
+
+    /**
+     * Schedulers of the publisher are not exposed as {@code TaskScheduler} beans, which would change the scheduler
+     * picked by {@code @EnableScheduling} in the application.
+     */
+    private static SimpleAsyncTaskScheduler virtualThreadTaskScheduler(String threadNamePrefix) {
+        SimpleAsyncTaskScheduler taskScheduler = new SimpleAsyncTaskScheduler();
+        taskScheduler.setVirtualThreads(true);
+        taskScheduler.setThreadNamePrefix(threadNamePrefix);
+        return taskScheduler;
     }
 }
@@ -3,18 +3,91 @@ package ch.admin.bit.jeap.dbschema.publisher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+import java.util.random.RandomGenerator;
 
 @Slf4j
-class DbSchemaPublisherEventListener {
+class DbSchemaPublisherEventListener implements AutoCloseable {
 
     private final DbSchemaPublisher dbSchemaPublisher;
+    private final SchemaDriftMonitor schemaDriftMonitor;
+    private final ArchRepoProperties.StartupProperties startupProperties;
+    private final TaskScheduler taskScheduler;
+    private final RandomGenerator random;
+
+    private ScheduledFuture<?> scheduledPublication;
+    private boolean publicationStarted;
 
-    public DbSchemaPublisherEventListener(DbSchemaPublisher dbSchemaPublisher) {
+    public DbSchemaPublisherEventListener(DbSchemaPublisher dbSchemaPublisher,
+                                          SchemaDriftMonitor schemaDriftMonitor,
+                                          ArchRepoProperties.StartupProperties startupProperties,
+                                          TaskScheduler taskScheduler,
+                                          RandomGenerator random) {
         this.dbSchemaPublisher = dbSchemaPublisher;
+        this.schemaDriftMonitor = schemaDriftMonitor;
+        this.startupProperties = startupProperties;
+        this.taskScheduler = taskScheduler;
+        this.random = random;
     }
 
     @EventListener(ApplicationReadyEvent.class)
     public void publishSchemaOnStartup() {
-        dbSchemaPublisher.publishDatabaseSchemaAsync();
+        startPublication();
+    }
+
+    /**
+     * Starts the first publication, unless another trigger (e.g. the end of the Flyway migration, or the
+     * {@code ApplicationReadyEvent} of a child context) has started it already.
+     */
+    synchronized void startPublication() {
+        if (publicationStarted) {
+            log.debug("Database schema publication already started");
+            return;
+        }
+        publicationStarted = true;
+        Duration delay = startupDelay();
+        if (delay.isZero()) {
+            publish();
+        } else {
+            // Spread the publications of services restarted together, e.g. by a platform upgrade
+            log.info("Publishing database schema in {}", delay);
+            scheduledPublication = taskScheduler.schedule(this::publish, Instant.now().plus(delay));
+        }
+    }
+
+    private void publish() {
+        if (schemaDriftMonitor != null) {
+            // The first check of the monitor publishes the schema
+            schemaDriftMonitor.start();
+        } else {
+            dbSchemaPublisher.publishDatabaseSchemaAsync();
+        }
+    }
+
+    private Duration startupDelay() {
+        Duration jitter = startupProperties.getJitter();
+        long jitterMillis = jitter.isPositive() ? random.nextLong(jitter.toMillis() + 1) : 0;
+        return startupProperties.getInitialDelay().plusMillis(jitterMillis);
+    }
+
+    /**
+     * Cancels a delayed publication that has not started yet when the application shuts down.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduledPublication != null) {
+            scheduledPublication.cancel(true);
+        }
+        if (taskScheduler instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ex) {
+                log.debug("Failed to close startup task scheduler", ex);
+            }
+        }
     }
 }
@@ -0,0 +1,53 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Starts the publication as soon as Flyway has migrated the schema, overlapping with the rest of the context startup
+ * instead of waiting for the application to be ready. Registered if {@code jeap.archrepo.trigger=flyway-migration}.
+ */
+@Slf4j
+class DbSchemaPublisherFlywayCallback implements Callback {
+
+    private final ObjectProvider<DbSchemaPublisherEventListener> dbSchemaPublisherEventListener;
+
+    DbSchemaPublisherFlywayCallback(ObjectProvider<DbSchemaPublisherEventListener> dbSchemaPublisherEventListener) {
+        this.dbSchemaPublisherEventListener = dbSchemaPublisherEventListener;
+    }
+
+    @Override
+    public boolean supports(Event event, Context context) {
+        // Unlike AFTER_MIGRATE, this event carries the result of the migration
+        return event == Event.AFTER_MIGRATE_OPERATION_FINISH;
+    }
+
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return true;
+    }
+
+    @Override
+    public void handle(Event event, Context context) {
+        if (!(context.getOperationResult() instanceof MigrateResult result) || !result.success) {
+            // Publish the schema the application ends up with once it is ready
+            return;
+        }
+        if (result.migrationsExecuted > 0) {
+            log.info("Flyway applied {} migration(s) to schema {}, publishing database schema version {}",
+                    result.migrationsExecuted, result.schemaName, result.targetSchemaVersion);
+        } else {
+            log.info("Flyway found schema {} up to date, publishing database schema", result.schemaName);
+        }
+        dbSchemaPublisherEventListener.ifAvailable(DbSchemaPublisherEventListener::startPublication);
+    }
+
+    @Override
+    public String getCallbackName() {
+        return "jeap-db-schema-publisher";
+    }
+}
@@ -0,0 +1,51 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.BeginDbSchemaUploadDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.DbSchemaUploadDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.DbSchemaUploadPageDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.DbSchemaUploadService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.ReactiveArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.TenantDbSchemasDto;
+import ch.admin.bit.jeap.dbschema.reader.H2InformationSchemaDialect;
+import ch.admin.bit.jeap.dbschema.reader.SchemaMetadataDialect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Hints for running the publisher in a native image. Jackson serializes the upload payload and the spooled files by
+ * reflection, the archrepo clients are JDK proxies of their HTTP interface, and the metadata dialects are loaded with
+ * the {@code ServiceLoader}.
+ */
+class DbSchemaPublisherRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final String REACTOR_MONO_CLASS_NAME = "reactor.core.publisher.Mono";
+
+    private final BindingReflectionHintsRegistrar bindingReflectionHintsRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // Includes the schema model records the payload is made of
+        bindingReflectionHintsRegistrar.registerReflectionHints(hints.reflection(), CreateOrUpdateDbSchemaDto.class,
+                BeginDbSchemaUploadDto.class, DbSchemaUploadDto.class, DbSchemaUploadPageDto.class, TenantDbSchemasDto.class);
+
+        registerHttpServiceProxy(hints, ArchitectureRepositoryService.class);
+        registerHttpServiceProxy(hints, DbSchemaUploadService.class);
+        if (ClassUtils.isPresent(REACTOR_MONO_CLASS_NAME, classLoader)) {
+            registerHttpServiceProxy(hints, ReactiveArchitectureRepositoryService.class);
+        }
+
+        hints.resources().registerPattern("META-INF/services/" + SchemaMetadataDialect.class.getName());
+        hints.reflection().registerType(H2InformationSchemaDialect.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+
+    private static void registerHttpServiceProxy(RuntimeHints hints, Class<?> serviceType) {
+        hints.reflection().registerType(serviceType, MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.proxies().registerJdkProxy(AopProxyUtils.completeJdkProxyInterfaces(serviceType));
+    }
+}
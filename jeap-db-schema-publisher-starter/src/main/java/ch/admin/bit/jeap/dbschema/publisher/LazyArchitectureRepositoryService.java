@@ -0,0 +1,59 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.TenantDbSchemasDto;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.Supplier;
+
+/**
+ * Creates the archrepo client, i.e. the OAuth client manager, the {@code RestClient} and the HTTP interface proxy, on
+ * its first use. This is on the publisher thread after the application has started, instead of during the refresh of
+ * the application context. If the creation fails, the next publication tries again.
+ */
+@Slf4j
+class LazyArchitectureRepositoryService implements ArchitectureRepositoryService, AutoCloseable {
+
+    private final Supplier<ArchitectureRepositoryService> factory;
+    private volatile ArchitectureRepositoryService delegate;
+
+    LazyArchitectureRepositoryService(Supplier<ArchitectureRepositoryService> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public void publishDbSchema(CreateOrUpdateDbSchemaDto dto) {
+        delegate().publishDbSchema(dto);
+    }
+
+    @Override
+    public void publishTenantDbSchemas(TenantDbSchemasDto dto) {
+        delegate().publishTenantDbSchemas(dto);
+    }
+
+    /**
+     * Closes the client, if created and holding resources such as the threads of a paginated upload.
+     */
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private ArchitectureRepositoryService delegate() {
+        ArchitectureRepositoryService result = delegate;
+        if (result == null) {
+            synchronized (this) {
+                result = delegate;
+                if (result == null) {
+                    log.debug("Creating archrepo client");
+                    result = factory.get();
+                    delegate = result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,43 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.ReactiveArchitectureRepositoryService;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Reactive counterpart of {@link LazyArchitectureRepositoryService}: creates the {@code WebClient} and the HTTP
+ * interface proxy when the first upload is subscribed to, which is on the scheduler that has read the schema.
+ */
+@Slf4j
+class LazyReactiveArchitectureRepositoryService implements ReactiveArchitectureRepositoryService {
+
+    private final Supplier<ReactiveArchitectureRepositoryService> factory;
+    private volatile ReactiveArchitectureRepositoryService delegate;
+
+    LazyReactiveArchitectureRepositoryService(Supplier<ReactiveArchitectureRepositoryService> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public Mono<Void> publishDbSchema(CreateOrUpdateDbSchemaDto dto) {
+        return Mono.defer(() -> delegate().publishDbSchema(dto));
+    }
+
+    private ReactiveArchitectureRepositoryService delegate() {
+        ReactiveArchitectureRepositoryService result = delegate;
+        if (result == null) {
+            synchronized (this) {
+                result = delegate;
+                if (result == null) {
+                    log.debug("Creating reactive archrepo client");
+                    result = factory.get();
+                    delegate = result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,37 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.reader.CatalogCall;
+import ch.admin.bit.jeap.dbschema.reader.CatalogCallListener;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records the catalog calls of the {@code DatabaseModelReader} as timer and row count summary per method.
+ */
+class MicrometerCatalogCallListener implements CatalogCallListener {
+
+    static final String TIMER_NAME = "jeap-publish-database-schema-catalog-call";
+    static final String ROWS_SUMMARY_NAME = "jeap-publish-database-schema-catalog-rows";
+    static final String TAG_METHOD = "method";
+    static final String TAG_STATUS = "status";
+
+    private final MeterRegistry meterRegistry;
+
+    MicrometerCatalogCallListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void catalogCallCompleted(CatalogCall call) {
+        Timer.builder(TIMER_NAME)
+                .tag(TAG_METHOD, call.method())
+                .tag(TAG_STATUS, call.failed() ? "error" : "success")
+                .register(meterRegistry)
+                .record(call.duration());
+        DistributionSummary.builder(ROWS_SUMMARY_NAME)
+                .tag(TAG_METHOD, call.method())
+                .register(meterRegistry)
+                .record(call.rows());
+    }
+}
@@ -0,0 +1,192 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.BeginDbSchemaUploadDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.DbSchemaUploadPageDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.DbSchemaUploadService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.TenantDbSchemasDto;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.model.Table;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Uploads schemas with more tables than the page size in pages with the {@link DbSchemaUploadService}: the upload is
+ * begun, the pages are sent with bounded concurrency and the upload is committed, upon which the archrepo replaces
+ * the published schema. A page or commit failing with a server or connection error is retried on its own with
+ * exponential backoff. If a page still fails, the pages not sent yet are skipped, and if a page or the commit still
+ * fails, the upload is aborted and the publication fails with its error. The pages record their phases and payload
+ * on the run of the publication in the {@link PublicationStatistics}. Smaller schemas are published with a single
+ * request of the wrapped {@link ArchitectureRepositoryService}, as are the schemas of a schema-per-tenant database.
+ */
+@Slf4j
+class PaginatedArchitectureRepositoryService implements ArchitectureRepositoryService, AutoCloseable {
+
+    private static final Duration PAGE_TERMINATION_TIMEOUT = Duration.ofSeconds(5);
+
+    private final ArchitectureRepositoryService singleRequestService;
+    private final DbSchemaUploadService uploadService;
+    private final int pageSize;
+    private final int pageAttempts;
+    private final Duration pageRetryBackoff;
+    private final PublicationStatistics statistics;
+    private final SimpleAsyncTaskExecutor pageExecutor;
+
+    PaginatedArchitectureRepositoryService(ArchitectureRepositoryService singleRequestService,
+                                           DbSchemaUploadService uploadService,
+                                           ArchRepoProperties.UploadProperties properties,
+                                           PublicationStatistics statistics) {
+        this.singleRequestService = singleRequestService;
+        this.uploadService = uploadService;
+        this.pageSize = properties.getPageSize();
+        this.pageAttempts = properties.getPageAttempts();
+        this.pageRetryBackoff = properties.getPageRetryBackoff();
+        this.statistics = statistics;
+        this.pageExecutor = pageExecutor(properties.getPageConcurrency());
+    }
+
+    @Override
+    public void publishDbSchema(CreateOrUpdateDbSchemaDto dto) {
+        DatabaseSchema schema = dto.schema();
+        if (schema.tables().size() <= pageSize) {
+            singleRequestService.publishDbSchema(dto);
+            return;
+        }
+        List<List<Table>> pages = paginate(schema.tables());
+        String uploadId = uploadService.beginUpload(new BeginDbSchemaUploadDto(dto.systemComponentName(),
+                schema.name(), schema.version(), schema.tables().size(), pages.size())).uploadId();
+        log.info("Uploading {} tables in {} pages with upload {}", schema.tables().size(), pages.size(), uploadId);
+        try {
+            uploadPages(uploadId, pages);
+            withRetries("commit of upload " + uploadId, () -> uploadService.commitUpload(uploadId));
+        } catch (RuntimeException ex) {
+            abort(uploadId);
+            throw ex;
+        }
+        log.debug("Committed upload {}", uploadId);
+    }
+
+    @Override
+    public void publishTenantDbSchemas(TenantDbSchemasDto dto) {
+        singleRequestService.publishTenantDbSchemas(dto);
+    }
+
+    private List<List<Table>> paginate(List<Table> tables) {
+        List<List<Table>> pages = new ArrayList<>();
+        for (int from = 0; from < tables.size(); from += pageSize) {
+            pages.add(tables.subList(from, Math.min(from + pageSize, tables.size())));
+        }
+        return pages;
+    }
+
+    private void uploadPages(String uploadId, List<List<Table>> pages) {
+        List<Future<?>> uploads = new ArrayList<>();
+        boolean completed = false;
+        try {
+            for (int pageNumber = 0; pageNumber < pages.size() && !anyFailed(uploads); pageNumber++) {
+                int number = pageNumber;
+                DbSchemaUploadPageDto page = new DbSchemaUploadPageDto(pages.get(pageNumber));
+                // Blocks while the concurrency limit is reached
+                uploads.add(pageExecutor.submit(statistics.onRunOfCurrentThread(() -> uploadPage(uploadId, number, page))));
+            }
+            for (Future<?> upload : uploads) {
+                upload.get();
+            }
+            completed = true;
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while uploading the pages of upload " + uploadId, ex);
+        } finally {
+            if (!completed) {
+                uploads.forEach(upload -> upload.cancel(true));
+            }
+        }
+    }
+
+    private static boolean anyFailed(List<Future<?>> uploads) {
+        return uploads.stream().anyMatch(upload -> upload.state() == Future.State.FAILED);
+    }
+
+    private void uploadPage(String uploadId, int pageNumber, DbSchemaUploadPageDto page) {
+        withRetries("page " + pageNumber + " of upload " + uploadId, () -> uploadService.uploadPage(uploadId, pageNumber, page));
+    }
+
+    /**
+     * Sends a request of the upload up to {@code page-attempts} times, after {@code page-retry-backoff} doubled with
+     * each attempt.
+     */
+    private void withRetries(String request, Runnable send) {
+        Duration backoff = pageRetryBackoff;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                send.run();
+                return;
+            } catch (RuntimeException ex) {
+                if (attempt >= pageAttempts || !isRetryable(ex)) {
+                    // Rethrown as is, so that the publication fails with the status of the archrepo's response
+                    log.warn("Failed to send {} after {} attempt(s): {}", request, attempt, ex.getMessage());
+                    throw ex;
+                }
+                log.warn("Failed to send {}, retrying in {}: {}", request, backoff, ex.getMessage());
+                statistics.pageRetried();
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while retrying " + request, ex);
+            }
+            backoff = backoff.multipliedBy(2);
+        }
+    }
+
+    /**
+     * Only I/O errors, including timeouts, and server errors are retried. Sending the same request again after a client
+     * error or any other failure, e.g. of the serialization, would fail the same way.
+     */
+    private static boolean isRetryable(RuntimeException ex) {
+        return ex instanceof ResourceAccessException || ex instanceof HttpServerErrorException;
+    }
+
+    private void abort(String uploadId) {
+        if (Thread.currentThread().isInterrupted()) {
+            // Left to expire on the archrepo, the application is shutting down
+            return;
+        }
+        try {
+            uploadService.abortUpload(uploadId);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to abort upload {}: {}", uploadId, ex.getMessage());
+        }
+    }
+
+    /**
+     * Waits for the page uploads still running, e.g. of a publication cancelled by the shutdown.
+     */
+    @Override
+    public void close() {
+        pageExecutor.close();
+    }
+
+    private static SimpleAsyncTaskExecutor pageExecutor(int pageConcurrency) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("db-schema-upload-page-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(pageConcurrency);
+        executor.setTaskTerminationTimeout(PAGE_TERMINATION_TIMEOUT.toMillis());
+        // Traces the pages as part of the publication
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        return executor;
+    }
+}
@@ -0,0 +1,66 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInitializer;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Records the phases of the upload to the archrepo in the {@link PublicationStatistics}. {@code RestClient} first
+ * runs the request initializers, then serializes the body into a buffer and finally passes the buffered body to the
+ * interceptors. Registered as both, this recorder therefore measures
+ * <ul>
+ *     <li>{@code token-fetch}: the wrapped initializer obtaining the OAuth access token</li>
+ *     <li>{@code serialization}: from the end of the initializers until the body reaches the interceptor</li>
+ *     <li>{@code upload}: the HTTP exchange</li>
+ * </ul>
+ * and the size and SHA-256 fingerprint of the serialized schema. When traced, each phase becomes a child span of the
+ * publication span.
+ */
+class PublicationHttpPhaseRecorder implements ClientHttpRequestInitializer, ClientHttpRequestInterceptor {
+
+    private static final String SERIALIZATION_PHASE_ATTRIBUTE = PublicationHttpPhaseRecorder.class.getName() + ".serializationPhase";
+
+    private final PublicationStatistics statistics;
+    private final ClientHttpRequestInitializer tokenInitializer;
+
+    PublicationHttpPhaseRecorder(PublicationStatistics statistics, ClientHttpRequestInitializer tokenInitializer) {
+        this.statistics = statistics;
+        this.tokenInitializer = tokenInitializer;
+    }
+
+    @Override
+    public void initialize(ClientHttpRequest request) {
+        statistics.inPhase(PublicationStatistics.PHASE_TOKEN_FETCH, () -> {
+            tokenInitializer.initialize(request);
+            return null;
+        });
+        // Only recorded by the interceptor, which does not run if the serialization fails
+        request.getAttributes().put(SERIALIZATION_PHASE_ATTRIBUTE,
+                statistics.phaseStarted(PublicationStatistics.PHASE_SERIALIZATION));
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (request.getAttributes().get(SERIALIZATION_PHASE_ATTRIBUTE) instanceof PublicationStatistics.PendingPhase serializationPhase) {
+            statistics.phaseEnded(serializationPhase);
+        }
+        statistics.payloadSent(body.length, fingerprint(body));
+        return statistics.inPhase(PublicationStatistics.PHASE_UPLOAD, () -> execution.execute(request, body));
+    }
+
+    private static String fingerprint(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
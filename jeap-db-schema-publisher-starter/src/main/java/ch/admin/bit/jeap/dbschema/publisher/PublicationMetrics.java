@@ -0,0 +1,83 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+
+/**
+ * Meters breaking a publication down beyond the overall {@code jeap-publish-database-schema} timer: a timer per
+ * phase, the size of the schema and of the payload, the failures by exception class and the publications cancelled
+ * by a shutdown. Like for {@link TracingTimer}, the meter registry is optional and nothing is recorded without it.
+ */
+class PublicationMetrics {
+
+    static final String PHASE_TIMER_NAME = "jeap-publish-database-schema-phase";
+    static final String TABLES_SUMMARY_NAME = "jeap-publish-database-schema-tables";
+    static final String COLUMNS_SUMMARY_NAME = "jeap-publish-database-schema-columns";
+    static final String PAYLOAD_SUMMARY_NAME = "jeap-publish-database-schema-payload";
+    static final String ERROR_COUNTER_NAME = "jeap-publish-database-schema-errors";
+    static final String CANCELLED_COUNTER_NAME = "jeap-publish-database-schema-cancelled";
+    static final String PAGE_RETRIES_COUNTER_NAME = "jeap-publish-database-schema-page-retries";
+    static final String TAG_PHASE = "phase";
+    static final String TAG_EXCEPTION = "exception";
+
+    private final MeterRegistry meterRegistry;
+
+    PublicationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    void phaseCompleted(String phase, Duration duration) {
+        if (meterRegistry != null) {
+            Timer.builder(PHASE_TIMER_NAME)
+                    .tag(TAG_PHASE, phase)
+                    .register(meterRegistry)
+                    .record(duration);
+        }
+    }
+
+    void schemaRead(int tableCount, int columnCount) {
+        if (meterRegistry != null) {
+            DistributionSummary.builder(TABLES_SUMMARY_NAME)
+                    .register(meterRegistry)
+                    .record(tableCount);
+            DistributionSummary.builder(COLUMNS_SUMMARY_NAME)
+                    .register(meterRegistry)
+                    .record(columnCount);
+        }
+    }
+
+    void payloadSent(long payloadBytes) {
+        if (meterRegistry != null) {
+            DistributionSummary.builder(PAYLOAD_SUMMARY_NAME)
+                    .baseUnit("bytes")
+                    .register(meterRegistry)
+                    .record(payloadBytes);
+        }
+    }
+
+    void failed(Throwable error) {
+        if (meterRegistry != null) {
+            meterRegistry.counter(ERROR_COUNTER_NAME, TAG_EXCEPTION, exceptionTag(error)).increment();
+        }
+    }
+
+    void cancelled() {
+        if (meterRegistry != null) {
+            meterRegistry.counter(CANCELLED_COUNTER_NAME).increment();
+        }
+    }
+
+    void pageRetried() {
+        if (meterRegistry != null) {
+            meterRegistry.counter(PAGE_RETRIES_COUNTER_NAME).increment();
+        }
+    }
+
+    private static String exceptionTag(Throwable error) {
+        String simpleName = error.getClass().getSimpleName();
+        return simpleName.isEmpty() ? error.getClass().getName() : simpleName;
+    }
+}
@@ -0,0 +1,44 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+
+import java.time.Duration;
+
+/**
+ * A running phase of a publication, started by {@link PublicationStatistics#startPhase}. Closing it records its
+ * duration and ends its span.
+ */
+final class PublicationPhase implements AutoCloseable {
+
+    private final PublicationStatistics statistics;
+    private final String phase;
+    private final Span span;
+    private final Tracer.SpanInScope spanInScope;
+    private final long startNanos = System.nanoTime();
+
+    PublicationPhase(PublicationStatistics statistics, String phase, Span span, Tracer.SpanInScope spanInScope) {
+        this.statistics = statistics;
+        this.phase = phase;
+        this.span = span;
+        this.spanInScope = spanInScope;
+    }
+
+    void failed(Throwable ex) {
+        if (span != null) {
+            span.error(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        Duration duration = Duration.ofNanos(System.nanoTime() - startNanos);
+        if (spanInScope != null) {
+            spanInScope.close();
+        }
+        if (span != null) {
+            span.end();
+        }
+        statistics.phaseCompleted(phase, duration);
+    }
+}
@@ -0,0 +1,78 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket limiting how many publications start per minute. Limiters are shared by all publishers in the JVM
+ * configured with the same limits, e.g. the publishers of several application contexts, so that the limit applies to
+ * the JVM as a whole.
+ */
+class PublicationRateLimiter {
+
+    private static final Map<Limits, PublicationRateLimiter> SHARED_LIMITERS = new ConcurrentHashMap<>();
+    private static final long NANOS_PER_MINUTE = Duration.ofMinutes(1).toNanos();
+
+    private final long nanosPerPermit;
+    private final int burst;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double permits;
+    private long refilledAt;
+
+    PublicationRateLimiter(int permitsPerMinute, int burst, LongSupplier nanoClock) {
+        if (permitsPerMinute < 1 || burst < 1) {
+            throw new IllegalStateException("Publication rate limit and burst must be at least 1");
+        }
+        this.nanosPerPermit = NANOS_PER_MINUTE / permitsPerMinute;
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        this.permits = burst;
+        this.refilledAt = nanoClock.getAsLong();
+    }
+
+    static PublicationRateLimiter shared(ArchRepoProperties.RateLimitProperties properties) {
+        Limits limits = new Limits(properties.getPublicationsPerMinute(), properties.getBurst());
+        return SHARED_LIMITERS.computeIfAbsent(limits,
+                _ -> new PublicationRateLimiter(limits.permitsPerMinute(), limits.burst(), System::nanoTime));
+    }
+
+    /**
+     * Blocks until a permit is available.
+     */
+    void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes a permit if one is available.
+     *
+     * @return 0 if a permit has been taken, otherwise the time in nanoseconds until the next permit is available
+     */
+    long tryAcquire() {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            permits = Math.min(burst, permits + (double) (now - refilledAt) / nanosPerPermit);
+            refilledAt = now;
+            if (permits >= 1) {
+                permits--;
+                return 0;
+            }
+            return Math.max(1, (long) ((1 - permits) * nanosPerPermit));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Limits(int permitsPerMinute, int burst) {
+    }
+}
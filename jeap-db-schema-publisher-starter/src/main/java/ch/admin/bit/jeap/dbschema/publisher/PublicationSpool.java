@@ -0,0 +1,252 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.client.HttpClientErrorException;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Durable on-disk spool for publications that could not be delivered to the archrepo. Uploads go through
+ * {@link #publish(CreateOrUpdateDbSchemaDto)}: if the upload fails, the payload is written gzip-compressed to
+ * {@code <directory>/<component>/<version>-<hash>.json.gz} and a background drain retries it with exponential backoff
+ * while the application runs. Only the newest payload of the component is kept, an identical payload is not
+ * written twice, and a successful upload discards whatever is still pending. A payload that can never be published
+ * is not retried but renamed to {@code .failed}. Uploads and drains never run concurrently, so a spooled payload can
+ * never overwrite a newer schema in the archrepo.
+ */
+@Slf4j
+class PublicationSpool implements AutoCloseable {
+
+    private static final String FILE_SUFFIX = ".json.gz";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String FAILED_FILE_SUFFIX = ".failed";
+    private static final int HASH_LENGTH = 16;
+
+    private final Path componentDirectory;
+    private final ArchitectureRepositoryService architectureRepositoryService;
+    private final TaskScheduler taskScheduler;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final ReentrantLock uploadLock = new ReentrantLock();
+
+    private Duration backoff;
+    private ScheduledFuture<?> scheduledDrain;
+
+    PublicationSpool(String componentName,
+                     ArchRepoProperties.SpoolProperties properties,
+                     ArchitectureRepositoryService architectureRepositoryService,
+                     TaskScheduler taskScheduler) {
+        this.componentDirectory = properties.getDirectory().resolve(sanitize(componentName));
+        this.architectureRepositoryService = architectureRepositoryService;
+        this.taskScheduler = taskScheduler;
+        this.initialBackoff = properties.getInitialBackoff();
+        this.maxBackoff = properties.getMaxBackoff();
+        this.backoff = initialBackoff;
+    }
+
+    /**
+     * Uploads the DTO. On failure, the DTO is spooled and the failure rethrown, unless the archrepo rejected it with a
+     * client error, which a retry would not change.
+     */
+    void publish(CreateOrUpdateDbSchemaDto dto) {
+        uploadLock.lock();
+        try {
+            architectureRepositoryService.publishDbSchema(dto);
+            discardPending();
+        } catch (HttpClientErrorException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            spool(dto);
+            throw ex;
+        } finally {
+            uploadLock.unlock();
+        }
+    }
+
+    void drain() {
+        synchronized (this) {
+            scheduledDrain = null;
+        }
+        uploadLock.lock();
+        try {
+            pendingFiles().stream().findFirst().ifPresent(this::publishSpooled);
+        } finally {
+            uploadLock.unlock();
+        }
+        if (!pendingFiles().isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Retries I/O and server errors with backoff. A file that cannot be read, e.g. a corrupt one or one written by an
+     * incompatible version, and a payload the archrepo rejects with a client error can never be published and are
+     * set aside instead.
+     */
+    private void publishSpooled(Path file) {
+        CreateOrUpdateDbSchemaDto dto;
+        try {
+            dto = read(file);
+        } catch (IOException | JacksonException ex) {
+            setAside(file, "cannot be read", ex);
+            return;
+        }
+        try {
+            log.info("Publishing spooled database schema {}", file);
+            architectureRepositoryService.publishDbSchema(dto);
+            Files.deleteIfExists(file);
+            log.info("Published spooled database schema successfully");
+            synchronized (this) {
+                backoff = initialBackoff;
+            }
+        } catch (HttpClientErrorException ex) {
+            setAside(file, "was rejected by the archrepo", ex);
+        } catch (Exception ex) {
+            synchronized (this) {
+                Duration doubled = backoff.multipliedBy(2);
+                backoff = doubled.compareTo(maxBackoff) > 0 ? maxBackoff : doubled;
+            }
+            log.warn("Failed to publish spooled database schema, retrying in {}: {}", backoff, ex.getMessage());
+        }
+    }
+
+    /**
+     * Renames the file to {@code <name>.failed}, which is no longer drained but kept for analysis.
+     */
+    private void setAside(Path file, String reason, Exception ex) {
+        Path failedFile = file.resolveSibling(file.getFileName() + FAILED_FILE_SUFFIX);
+        try {
+            Files.move(file, failedFile, StandardCopyOption.REPLACE_EXISTING);
+            log.error("Spooled database schema {} {}, moved it to {} instead of retrying it", file, reason, failedFile, ex);
+        } catch (IOException moveEx) {
+            log.error("Spooled database schema {} {}, deleting it instead of retrying it", file, reason, ex);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException deleteEx) {
+                log.error("Failed to delete spooled database schema {}", file, deleteEx);
+            }
+        }
+        synchronized (this) {
+            backoff = initialBackoff;
+        }
+    }
+
+    List<Path> pendingFiles() {
+        if (!Files.isDirectory(componentDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(componentDirectory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX)).toList();
+        } catch (IOException ex) {
+            log.warn("Failed to list spooled database schemas in {}", componentDirectory, ex);
+            return List.of();
+        }
+    }
+
+    private void spool(CreateOrUpdateDbSchemaDto dto) {
+        try {
+            byte[] json = jsonMapper.writeValueAsBytes(dto);
+            Path file = componentDirectory.resolve(sanitize(dto.schema().version()) + "-" + hash(json) + FILE_SUFFIX);
+            if (!Files.exists(file)) {
+                write(file, json);
+            }
+            // Keep only the newest payload of the component
+            for (Path pending : pendingFiles()) {
+                if (!pending.equals(file)) {
+                    Files.deleteIfExists(pending);
+                }
+            }
+            log.info("Spooled database schema to {} for later publication", file);
+            synchronized (this) {
+                backoff = initialBackoff;
+            }
+            scheduleDrain();
+        } catch (Exception ex) {
+            log.error("Failed to spool database schema in {}", componentDirectory, ex);
+        }
+    }
+
+    private void write(Path file, byte[] json) throws IOException {
+        Files.createDirectories(componentDirectory);
+        Path tempFile = file.resolveSibling(file.getFileName() + TEMP_FILE_SUFFIX);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tempFile))) {
+            out.write(json);
+        }
+        try {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException _) {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private CreateOrUpdateDbSchemaDto read(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return jsonMapper.readValue(in, CreateOrUpdateDbSchemaDto.class);
+        }
+    }
+
+    private void discardPending() {
+        for (Path pending : pendingFiles()) {
+            try {
+                Files.deleteIfExists(pending);
+                log.debug("Discarded spooled database schema {} superseded by a successful publication", pending);
+            } catch (IOException ex) {
+                log.warn("Failed to discard spooled database schema {}", pending, ex);
+            }
+        }
+    }
+
+    private synchronized void scheduleDrain() {
+        if (scheduledDrain != null && !scheduledDrain.isDone()) {
+            return;
+        }
+        scheduledDrain = taskScheduler.schedule(this::drain, Instant.now().plus(backoff));
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduledDrain != null) {
+            scheduledDrain.cancel(true);
+        }
+        if (taskScheduler instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ex) {
+                log.debug("Failed to close spool task scheduler", ex);
+            }
+        }
+    }
+
+    private static String sanitize(String name) {
+        return name == null ? "na" : name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static String hash(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(digest).substring(0, HASH_LENGTH);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the statistics of the latest publication for the {@code dbschema} actuator endpoint and health indicator,
+ * and forwards all recordings to the {@link PublicationMetrics}. A publication records its phases and payload on the
+ * run started by its own thread, and on threads running tasks passed the run with {@link #onRunOfCurrentThread},
+ * such as the pages of a paginated upload. Recordings from other threads, for example from the spool uploading in the
+ * background, only end up in the metrics. The durations of a phase and the sizes of the payloads sent several times
+ * by a run are summed up.
+ * <p>
+ * Within a traced publication, each phase is a child span of the {@code publish-db-schema} span, which carries the
+ * schema name, table and column count and payload size as attributes. The span is captured when the run starts, as
+ * the span current while recording may e.g. be the one of an HTTP request. Outside a trace no spans are created.
+ */
+class PublicationStatistics {
+
+    static final String OUTCOME_SUCCESS = "success";
+    static final String OUTCOME_SKIPPED = "skipped";
+    static final String OUTCOME_ERROR = "error";
+    static final String OUTCOME_CANCELLED = "cancelled";
+
+    static final String PHASE_CONNECTION_ACQUISITION = "connection-acquisition";
+    static final String PHASE_CATALOG_READ = "catalog-read";
+    static final String PHASE_TOKEN_FETCH = "token-fetch";
+    static final String PHASE_SERIALIZATION = "serialization";
+    static final String PHASE_UPLOAD = "upload";
+
+    static final String PHASE_SPAN_NAME_PREFIX = "publish-db-schema-";
+    static final String ATTRIBUTE_SCHEMA_NAME = "db.schema.name";
+    static final String ATTRIBUTE_TABLES = "db.schema.tables";
+    static final String ATTRIBUTE_COLUMNS = "db.schema.columns";
+    static final String ATTRIBUTE_PAYLOAD_BYTES = "db.schema.payload.bytes";
+
+    private final PublicationMetrics metrics;
+    private final Tracer tracer;
+    private final Clock clock;
+
+    private final ThreadLocal<Run> passedRun = new ThreadLocal<>();
+
+    private volatile Run currentRun;
+    private volatile PublicationReport lastPublication;
+
+    PublicationStatistics() {
+        this(new PublicationMetrics(null), null, Clock.systemUTC());
+    }
+
+    PublicationStatistics(PublicationMetrics metrics, Tracer tracer, Clock clock) {
+        this.metrics = metrics;
+        this.tracer = tracer;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts the run of a publication, within the {@code publish-db-schema} span if traced.
+     */
+    void started() {
+        currentRun = new Run(clock.instant(), Thread.currentThread(), currentSpan());
+    }
+
+    /**
+     * Runs the action as phase, with its span in scope.
+     */
+    <T, E extends Exception> T inPhase(String phase, PhaseAction<T, E> action) throws E {
+        try (PublicationPhase publicationPhase = startPhase(phase)) {
+            try {
+                return action.run();
+            } catch (Exception ex) {
+                publicationPhase.failed(ex);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Starts a phase ending when the returned phase is closed, with its span in scope.
+     */
+    PublicationPhase startPhase(String phase) {
+        Span span = tracer != null && tracer.currentSpan() != null ?
+                tracer.nextSpan().name(PHASE_SPAN_NAME_PREFIX + phase).start() : null;
+        Tracer.SpanInScope spanInScope = span != null ? tracer.withSpan(span) : null;
+        return new PublicationPhase(this, phase, span, spanInScope);
+    }
+
+    /**
+     * Marks the start of a phase spanning several callbacks, of which the last one may never run. Nothing is opened
+     * until {@link #phaseEnded} records the phase with its span, so an abandoned phase leaks neither span nor timer.
+     */
+    PendingPhase phaseStarted(String phase) {
+        return new PendingPhase(phase, clock.instant(), System.nanoTime());
+    }
+
+    void phaseEnded(PendingPhase pendingPhase) {
+        Duration duration = Duration.ofNanos(System.nanoTime() - pendingPhase.startNanos());
+        long startMicros = ChronoUnit.MICROS.between(Instant.EPOCH, pendingPhase.startedAt());
+        Run run = runOfCurrentThread();
+        // Not the current span, which may be the span of the HTTP request ending the phase
+        Span parent = run != null ? run.span : currentSpan();
+        if (parent != null) {
+            tracer.spanBuilder()
+                    .setParent(parent.context())
+                    .name(PHASE_SPAN_NAME_PREFIX + pendingPhase.phase())
+                    .startTimestamp(startMicros, TimeUnit.MICROSECONDS)
+                    .start()
+                    .end();
+        }
+        phaseCompleted(pendingPhase.phase(), duration);
+    }
+
+    /**
+     * @return The task running on the run of the calling thread, for a task of the publication running on another
+     * thread
+     */
+    Runnable onRunOfCurrentThread(Runnable task) {
+        Run run = runOfCurrentThread();
+        if (run == null) {
+            return task;
+        }
+        return () -> {
+            passedRun.set(run);
+            try {
+                task.run();
+            } finally {
+                passedRun.remove();
+            }
+        };
+    }
+
+    void phaseCompleted(String phase, Duration duration) {
+        metrics.phaseCompleted(phase, duration);
+        Run run = runOfCurrentThread();
+        if (run != null) {
+            synchronized (run) {
+                run.phaseDurationsMillis.merge(phase, duration.toMillis(), Long::sum);
+            }
+        }
+    }
+
+    void schemaRead(String schemaName, int tableCount, int columnCount) {
+        metrics.schemaRead(tableCount, columnCount);
+        Run run = runOfCurrentThread();
+        if (run != null) {
+            if (run.span != null) {
+                run.span.tag(ATTRIBUTE_SCHEMA_NAME, schemaName)
+                        .tag(ATTRIBUTE_TABLES, tableCount)
+                        .tag(ATTRIBUTE_COLUMNS, columnCount);
+            }
+            run.tableCount = tableCount;
+            run.columnCount = columnCount;
+        }
+    }
+
+    void payloadSent(long payloadBytes, String payloadFingerprint) {
+        metrics.payloadSent(payloadBytes);
+        Run run = runOfCurrentThread();
+        if (run != null) {
+            synchronized (run) {
+                run.payloadBytes = run.payloadBytes != null ? run.payloadBytes + payloadBytes : payloadBytes;
+                run.payloadFingerprints.add(payloadFingerprint);
+                // Called by the HTTP interceptor, in which the current span may be the span of the request
+                if (run.span != null) {
+                    run.span.tag(ATTRIBUTE_PAYLOAD_BYTES, run.payloadBytes);
+                }
+            }
+        }
+    }
+
+    void pageRetried() {
+        metrics.pageRetried();
+    }
+
+    void skipped() {
+        Run run = runOfCurrentThread();
+        if (run != null) {
+            run.skipped = true;
+        }
+    }
+
+    void completed(Throwable error) {
+        if (error != null) {
+            metrics.failed(error);
+        }
+        Run run = runOfCurrentThread();
+        if (run != null) {
+            finish(run, error != null ? OUTCOME_ERROR : run.skipped ? OUTCOME_SKIPPED : OUTCOME_SUCCESS, error);
+        }
+    }
+
+    /**
+     * Completes a publication cancelled by the shutdown of the application, which is not counted as failure.
+     */
+    void cancelled() {
+        metrics.cancelled();
+        Run run = runOfCurrentThread();
+        if (run != null) {
+            finish(run, OUTCOME_CANCELLED, null);
+        }
+    }
+
+    private void finish(Run run, String outcome, Throwable error) {
+        synchronized (run) {
+            lastPublication = new PublicationReport(run.startedAt, clock.instant(), outcome,
+                    Collections.unmodifiableMap(new LinkedHashMap<>(run.phaseDurationsMillis)), run.tableCount,
+                    run.columnCount, run.payloadBytes, payloadFingerprint(run.payloadFingerprints),
+                    error != null ? describe(error) : null);
+        }
+        currentRun = null;
+    }
+
+    /**
+     * @return The fingerprint of the only payload, or of the sorted fingerprints of several payloads, e.g. of the
+     * requests of a paginated upload
+     */
+    private static String payloadFingerprint(List<String> payloadFingerprints) {
+        if (payloadFingerprints.size() <= 1) {
+            return payloadFingerprints.isEmpty() ? null : payloadFingerprints.getFirst();
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            payloadFingerprints.stream().sorted().forEach(fingerprint ->
+                    digest.update(fingerprint.getBytes(StandardCharsets.US_ASCII)));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    boolean isRunning() {
+        return currentRun != null;
+    }
+
+    /**
+     * @return The report of the latest completed publication, or null if no publication has completed yet
+     */
+    PublicationReport getLastPublication() {
+        return lastPublication;
+    }
+
+    private Span currentSpan() {
+        return tracer != null ? tracer.currentSpan() : null;
+    }
+
+    private Run runOfCurrentThread() {
+        Run run = currentRun;
+        return run != null && (run.thread == Thread.currentThread() || run == passedRun.get()) ? run : null;
+    }
+
+    private static String describe(Throwable error) {
+        return error.getMessage() != null ?
+                error.getClass().getName() + ": " + error.getMessage() :
+                error.getClass().getName();
+    }
+
+    @FunctionalInterface
+    interface PhaseAction<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    record PendingPhase(String phase, Instant startedAt, long startNanos) {
+    }
+
+    record PublicationReport(Instant startedAt,
+                             Instant finishedAt,
+                             String outcome,
+                             Map<String, Long> phaseDurationsMillis,
+                             Integer tableCount,
+                             Integer columnCount,
+                             Long payloadBytes,
+                             String payloadFingerprint,
+                             String error) {
+    }
+
+    private static final class Run {
+        private final Instant startedAt;
+        private final Thread thread;
+        private final Span span;
+        private final Map<String, Long> phaseDurationsMillis = new LinkedHashMap<>();
+        private final List<String> payloadFingerprints = new ArrayList<>();
+        private Integer tableCount;
+        private Integer columnCount;
+        private Long payloadBytes;
+        private boolean skipped;
+
+        private Run(Instant startedAt, Thread thread, Span span) {
+            this.startedAt = startedAt;
+            this.thread = thread;
+            this.span = span;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Elects a single replica to publish a given component version. The replica that acquires the lock named after the
+ * component and version publishes, the others skip their publication. The lock is held for the duration of the
+ * publication on the connection used to read the schema:
+ * <ul>
+ *     <li>on PostgreSQL, as session-level advisory lock ({@code pg_try_advisory_lock})</li>
+ *     <li>on other databases, as row in a lock table created by the application, see {@code docs/configuration.md}</li>
+ * </ul>
+ * A completed publication is recorded with the fingerprint of the published schema in the publication table, which
+ * the application creates on all databases. Replicas acquiring the lock later skip their publication as long as the
+ * schema still has that fingerprint, so that a component version is published once across the fleet, and again only
+ * if its schema has changed.
+ */
+@Slf4j
+class PublisherElection {
+
+    static final String SKIPPED_COUNTER_NAME = "jeap-publish-database-schema-skipped";
+    static final String TAG_REASON = "reason";
+    static final String REASON_NOT_LEADER = "not-leader";
+    static final String REASON_ALREADY_PUBLISHED = "already-published";
+
+    private static final String POSTGRESQL = "PostgreSQL";
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION_CLASS = "23";
+    private static final Pattern TABLE_NAME_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    private final String lockTable;
+    private final String publicationTable;
+    private final Duration lockTimeout;
+    private final MeterRegistry meterRegistry;
+
+    PublisherElection(ArchRepoProperties.ElectionProperties properties, MeterRegistry meterRegistry) {
+        if (!TABLE_NAME_PATTERN.matcher(properties.getLockTable()).matches()) {
+            throw new IllegalStateException("Invalid lock table name: " + properties.getLockTable());
+        }
+        if (!TABLE_NAME_PATTERN.matcher(properties.getPublicationTable()).matches()) {
+            throw new IllegalStateException("Invalid publication table name: " + properties.getPublicationTable());
+        }
+        this.lockTable = properties.getLockTable();
+        this.publicationTable = properties.getPublicationTable();
+        this.lockTimeout = properties.getLockTimeout();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @return true if this replica won the election and holds the lock on the given connection until {@link #release}
+     */
+    boolean tryAcquire(Connection connection, String lockName) throws SQLException {
+        boolean acquired = isPostgreSql(connection) ?
+                tryAcquireAdvisoryLock(connection, lockName) :
+                tryAcquireTableLock(connection, lockName);
+        if (!acquired) {
+            log.info("Another replica is publishing the database schema for {}, skipping publication", lockName);
+            if (meterRegistry != null) {
+                meterRegistry.counter(SKIPPED_COUNTER_NAME, TAG_REASON, REASON_NOT_LEADER).increment();
+            }
+        }
+        return acquired;
+    }
+
+    /**
+     * @param fingerprint Fingerprint of the schema about to be published, as read by the holder of the lock
+     * @return true if the schema with the given fingerprint has already been published under the lock name
+     */
+    boolean isPublished(Connection connection, String lockName, String fingerprint) throws SQLException {
+        String publishedFingerprint;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT fingerprint FROM " + publicationTable + " WHERE publication_key = ?")) {
+            statement.setString(1, lockName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                publishedFingerprint = resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+        commitIfNeeded(connection);
+        boolean published = digest(fingerprint).equals(publishedFingerprint);
+        if (published) {
+            log.info("The database schema for {} has already been published, skipping publication", lockName);
+            if (meterRegistry != null) {
+                meterRegistry.counter(SKIPPED_COUNTER_NAME, TAG_REASON, REASON_ALREADY_PUBLISHED).increment();
+            }
+        }
+        return published;
+    }
+
+    /**
+     * Records the publication of the schema with the given fingerprint. Called while holding the lock, so that no
+     * other replica records a publication under the same lock name concurrently.
+     */
+    void markPublished(Connection connection, String lockName, String fingerprint) throws SQLException {
+        Timestamp now = Timestamp.from(Instant.now());
+        int updated;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE " + publicationTable + " SET fingerprint = ?, published_at = ? WHERE publication_key = ?")) {
+            statement.setString(1, digest(fingerprint));
+            statement.setTimestamp(2, now);
+            statement.setString(3, lockName);
+            updated = statement.executeUpdate();
+        }
+        if (updated == 0) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO " + publicationTable + " (publication_key, fingerprint, published_at) VALUES (?, ?, ?)")) {
+                statement.setString(1, lockName);
+                statement.setString(2, digest(fingerprint));
+                statement.setTimestamp(3, now);
+                statement.executeUpdate();
+            }
+        }
+        commitIfNeeded(connection);
+    }
+
+    void release(Connection connection, String lockName) throws SQLException {
+        if (isPostgreSql(connection)) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+                statement.setLong(1, advisoryLockKey(lockName));
+                statement.execute();
+            }
+        } else {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM " + lockTable + " WHERE lock_key = ?")) {
+                statement.setString(1, lockName);
+                statement.executeUpdate();
+            }
+            commitIfNeeded(connection);
+        }
+    }
+
+    private boolean tryAcquireAdvisoryLock(Connection connection, String lockName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, advisoryLockKey(lockName));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private boolean tryAcquireTableLock(Connection connection, String lockName) throws SQLException {
+        // Remove the lock of a replica that died while publishing
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM " + lockTable + " WHERE lock_key = ? AND locked_at < ?")) {
+            statement.setString(1, lockName);
+            statement.setTimestamp(2, Timestamp.from(Instant.now().minus(lockTimeout)));
+            statement.executeUpdate();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO " + lockTable + " (lock_key, locked_at) VALUES (?, ?)")) {
+            statement.setString(1, lockName);
+            statement.setTimestamp(2, Timestamp.from(Instant.now()));
+            statement.executeUpdate();
+            commitIfNeeded(connection);
+            return true;
+        } catch (SQLException ex) {
+            if (ex.getSQLState() != null && ex.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION_CLASS)) {
+                rollbackIfNeeded(connection);
+                return false;
+            }
+            throw ex;
+        }
+    }
+
+    private static boolean isPostgreSql(Connection connection) throws SQLException {
+        return POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName());
+    }
+
+    private static void commitIfNeeded(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    private static void rollbackIfNeeded(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+        }
+    }
+
+    /**
+     * Fits fingerprints of any length, e.g. those of all tenant schemas, into the fingerprint column.
+     */
+    private static String digest(String fingerprint) {
+        return HexFormat.of().formatHex(sha256(fingerprint));
+    }
+
+    static long advisoryLockKey(String lockName) {
+        return ByteBuffer.wrap(sha256(lockName)).getLong();
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.ReactiveArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.reader.CachingDatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.reader.CachingDatabaseModelReader.SchemaLoader;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseSchemaReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.random.RandomGenerator;
+
+/**
+ * Non-blocking counterpart of {@link DbSchemaPublisher} for WebFlux applications. The schema is read over JDBC on a
+ * bounded elastic scheduler and uploaded with the {@link ReactiveArchitectureRepositoryService}, so that neither an
+ * event loop thread nor a thread of the publisher's own blocks.
+ * <p>
+ * Publishes once the application is ready, after the configured startup delay. Spooling, the publisher election,
+ * the rate limit and drift detection are only supported by the blocking publisher.
+ */
+@Slf4j
+class ReactiveDbSchemaPublisher implements AutoCloseable {
+
+    private static final String TIMER_NAME = "jeap-publish-database-schema";
+
+    private final String applicationName;
+    private final ArchRepoProperties properties;
+    private final ReactiveArchitectureRepositoryService architectureRepositoryService;
+    private final DataSource dataSource;
+    private final DatabaseSchemaReader databaseModelReader;
+    private final AppVersionProvider appVersionProvider;
+    private final MeterRegistry meterRegistry;
+    private final PublicationMetrics metrics;
+    private final Scheduler jdbcScheduler;
+    private final RandomGenerator random;
+
+    private Disposable startupPublication;
+
+    ReactiveDbSchemaPublisher(String applicationName,
+                              ArchRepoProperties properties,
+                              ReactiveArchitectureRepositoryService architectureRepositoryService,
+                              DataSource dataSource,
+                              DatabaseSchemaReader databaseModelReader,
+                              AppVersionProvider appVersionProvider,
+                              MeterRegistry meterRegistry,
+                              Scheduler jdbcScheduler,
+                              RandomGenerator random) {
+        this.applicationName = applicationName;
+        this.properties = properties;
+        this.architectureRepositoryService = architectureRepositoryService;
+        this.dataSource = dataSource;
+        this.databaseModelReader = databaseModelReader;
+        this.appVersionProvider = appVersionProvider;
+        this.meterRegistry = meterRegistry;
+        this.metrics = new PublicationMetrics(meterRegistry);
+        this.jdbcScheduler = jdbcScheduler;
+        this.random = random;
+    }
+
+    /**
+     * Starts the first publication, unless the {@code ApplicationReadyEvent} of another context has started it
+     * already. Failures are logged and counted, not propagated.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void publishSchemaOnStartup() {
+        if (startupPublication != null) {
+            log.debug("Database schema publication already started");
+            return;
+        }
+        Duration delay = startupDelay();
+        Mono<Void> publication = publishDatabaseSchema();
+        if (!delay.isZero()) {
+            log.info("Publishing database schema in {}", delay);
+            publication = Mono.delay(delay).then(publication);
+        }
+        startupPublication = publication.subscribe(_ -> {
+        }, _ -> {
+        });
+    }
+
+    /**
+     * @return A publication of the database schema, starting once subscribed. Fails with an
+     * {@link IllegalStateException} if the schema could not be read or uploaded.
+     */
+    Mono<Void> publishDatabaseSchema() {
+        return Mono.defer(() -> {
+                    AtomicReference<Connection> readingConnection = new AtomicReference<>();
+                    return Mono.fromCallable(() -> readDatabaseSchema(readingConnection))
+                            .subscribeOn(jdbcScheduler)
+                            .doOnCancel(() -> abortConnection(readingConnection.get()));
+                })
+                .flatMap(this::publish)
+                .doOnError(ex -> {
+                    metrics.failed(ex);
+                    log.error("Failed to publish database schema", ex);
+                })
+                .onErrorMap(ex -> new IllegalStateException("Failed to publish database schema", ex))
+                .doOnCancel(() -> {
+                    metrics.cancelled();
+                    log.info("Database schema publication cancelled");
+                })
+                .transform(this::timed);
+    }
+
+    private DatabaseSchema readDatabaseSchema(AtomicReference<Connection> readingConnection) throws SQLException {
+        String schemaName = properties.getSchemaName();
+        String version = appVersionProvider.getVersion();
+        log.debug("Reading database schema from {} schema", schemaName);
+        DatabaseSchema databaseSchema;
+        try (Connection connection = dataSource.getConnection()) {
+            readingConnection.set(connection);
+            SchemaLoader loader = () -> databaseModelReader.readDatabaseModelFrom(connection, schemaName, version);
+            // Publications always read the current schema, and share it with the other consumers of a cache
+            databaseSchema = databaseModelReader instanceof CachingDatabaseModelReader cache ?
+                    cache.refresh(dataSource, schemaName, loader) : loader.load();
+        } finally {
+            readingConnection.set(null);
+        }
+        metrics.schemaRead(databaseSchema.tables().size(),
+                databaseSchema.tables().stream().mapToInt(table -> table.columns().size()).sum());
+        return databaseSchema;
+    }
+
+    private Mono<Void> publish(DatabaseSchema databaseSchema) {
+        CreateOrUpdateDbSchemaDto dto = new CreateOrUpdateDbSchemaDto(applicationName, databaseSchema);
+        log.info("Publishing schema DTO: componentName={}, tableCount={} to {} with client registration {}",
+                dto.systemComponentName(), dto.schema().tables().size(), properties.getUrl(), properties.getOauthClient());
+        return architectureRepositoryService.publishDbSchema(dto)
+                .doOnSuccess(_ -> log.info("Published database schema successfully"));
+    }
+
+    private Mono<Void> timed(Mono<Void> publication) {
+        if (meterRegistry == null) {
+            return publication;
+        }
+        // Recorded before the outcome is signalled downstream, unlike with doFinally
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return publication
+                    .doOnSuccess(_ -> stopTimer(sample, TracingTimer.STATUS_SUCCESS))
+                    .doOnError(_ -> stopTimer(sample, TracingTimer.STATUS_ERROR))
+                    .doOnCancel(() -> stopTimer(sample, TracingTimer.STATUS_CANCELLED));
+        });
+    }
+
+    private void stopTimer(Timer.Sample sample, String status) {
+        sample.stop(meterRegistry.timer(TIMER_NAME, TracingTimer.TAG_STATUS, status));
+    }
+
+    private Duration startupDelay() {
+        ArchRepoProperties.StartupProperties startup = properties.getStartup();
+        Duration jitter = startup.getJitter();
+        long jitterMillis = jitter.isPositive() ? random.nextLong(jitter.toMillis() + 1) : 0;
+        return startup.getInitialDelay().plusMillis(jitterMillis);
+    }
+
+    /**
+     * Aborts the connection of a cancelled publication still reading the catalog. The bounded elastic scheduler runs
+     * on platform threads, whose blocking JDBC I/O is not interrupted.
+     */
+    private static void abortConnection(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        log.info("Aborting the database connection of the cancelled publication");
+        try {
+            connection.abort(Thread::startVirtualThread);
+        } catch (SQLException | RuntimeException ex) {
+            log.warn("Failed to abort database connection of the publication: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Cancels the startup publication if it is still delayed or in flight. Cancelling aborts the database connection
+     * reading the catalog, or the upload.
+     */
+    @Override
+    public synchronized void close() {
+        if (startupPublication != null) {
+            startupPublication.dispose();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.reader.CachingDatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseSchemaReader;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Invalidates the cached schemas after each Flyway migration, successful or not, as the migration may have changed
+ * the schema. Registered if {@code jeap.archrepo.database.cache-time-to-live} is set. All data sources are
+ * invalidated, Flyway may migrate through a data source of its own.
+ */
+@Slf4j
+class SchemaCacheFlywayCallback implements Callback {
+
+    private final ObjectProvider<DatabaseSchemaReader> databaseModelReader;
+
+    SchemaCacheFlywayCallback(ObjectProvider<DatabaseSchemaReader> databaseModelReader) {
+        this.databaseModelReader = databaseModelReader;
+    }
+
+    @Override
+    public boolean supports(Event event, Context context) {
+        return event == Event.AFTER_MIGRATE_OPERATION_FINISH;
+    }
+
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return true;
+    }
+
+    @Override
+    public void handle(Event event, Context context) {
+        if (databaseModelReader.getIfAvailable() instanceof CachingDatabaseModelReader cache) {
+            log.debug("Flyway migration finished, invalidating cached database schemas");
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public String getCallbackName() {
+        return "jeap-db-schema-publisher-cache";
+    }
+}
@@ -0,0 +1,122 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.reader.DatabaseSchemaReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+import java.util.random.RandomGenerator;
+
+/**
+ * Periodically compares a cheap fingerprint of the schema (see {@link DatabaseSchemaReader#readSchemaFingerprint})
+ * with the fingerprint at the time of the last successful publication, and republishes only if they differ. Each
+ * check is delayed by the configured interval plus a random jitter so that the replicas of a fleet do not check in
+ * lockstep. The first check runs right away. Until a publication has succeeded the schema counts as drifted, so the
+ * first check publishes it and a failed publication is repeated by the next check. In tenant mode, the fingerprints of
+ * all tenant schemas are compared (see {@link DatabaseSchemaReader#readSchemaFingerprints}).
+ */
+@Slf4j
+class SchemaDriftMonitor implements AutoCloseable {
+
+    private final DbSchemaPublisher dbSchemaPublisher;
+    private final DataSource dataSource;
+    private final DatabaseSchemaReader databaseModelReader;
+    private final String schemaName;
+    private final String tenantSchemaPattern;
+    private final Duration interval;
+    private final Duration jitter;
+    private final TaskScheduler taskScheduler;
+    private final RandomGenerator random;
+
+    private volatile boolean published;
+    private volatile String publishedFingerprint;
+    private ScheduledFuture<?> scheduledCheck;
+    private boolean started;
+    private boolean closed;
+
+    SchemaDriftMonitor(DbSchemaPublisher dbSchemaPublisher,
+                       DataSource dataSource,
+                       DatabaseSchemaReader databaseModelReader,
+                       ArchRepoProperties properties,
+                       TaskScheduler taskScheduler,
+                       RandomGenerator random) {
+        this.dbSchemaPublisher = dbSchemaPublisher;
+        this.dataSource = dataSource;
+        this.databaseModelReader = databaseModelReader;
+        this.schemaName = properties.getSchemaName();
+        this.tenantSchemaPattern = properties.getTenantSchemaPattern();
+        this.interval = properties.getDriftDetection().getInterval();
+        this.jitter = properties.getDriftDetection().getJitter();
+        this.taskScheduler = taskScheduler;
+        this.random = random;
+    }
+
+    synchronized void start() {
+        // Child contexts publish their own ApplicationReadyEvent, only the first one starts the checks
+        if (!started) {
+            started = true;
+            schedule(Instant.now());
+        }
+    }
+
+    void check() {
+        String fingerprint = readFingerprint();
+        if (published && (fingerprint == null || fingerprint.equals(publishedFingerprint))) {
+            log.debug("No database schema drift detected");
+            scheduleNextCheck();
+            return;
+        }
+        if (published) {
+            log.info("Database schema drift detected, republishing database schema");
+        }
+        dbSchemaPublisher.publishDatabaseSchemaAsync().whenComplete((_, ex) -> {
+            if (ex == null) {
+                publishedFingerprint = fingerprint;
+                published = true;
+            }
+            scheduleNextCheck();
+        });
+    }
+
+    private String readFingerprint() {
+        try (Connection connection = dataSource.getConnection()) {
+            if (tenantSchemaPattern != null) {
+                return databaseModelReader.readSchemaFingerprints(connection, tenantSchemaPattern).toString();
+            }
+            return databaseModelReader.readSchemaFingerprint(connection, schemaName);
+        } catch (Exception ex) {
+            log.warn("Failed to read database schema fingerprint: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    private void scheduleNextCheck() {
+        long jitterMillis = jitter.isPositive() ? random.nextLong(jitter.toMillis() + 1) : 0;
+        schedule(Instant.now().plus(interval).plusMillis(jitterMillis));
+    }
+
+    private synchronized void schedule(Instant time) {
+        if (!closed) {
+            scheduledCheck = taskScheduler.schedule(this::check, time);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (scheduledCheck != null) {
+            scheduledCheck.cancel(true);
+        }
+        if (taskScheduler instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ex) {
+                log.debug("Failed to close drift detection task scheduler", ex);
+            }
+        }
+    }
+}
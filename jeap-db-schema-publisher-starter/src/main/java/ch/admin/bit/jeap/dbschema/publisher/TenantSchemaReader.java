@@ -0,0 +1,65 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseSchemaReader;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the schemas of a schema-per-tenant database, which are mostly of the same structure. The fingerprints of all
+ * tenant schemas are read with a single catalog query (see {@link DatabaseSchemaReader#readSchemaFingerprints}), and
+ * only one schema per distinct fingerprint is read in full. The structure shared by most tenants becomes the template,
+ * the schemas of the other tenants are the outliers.
+ */
+@Slf4j
+class TenantSchemaReader {
+
+    private final DatabaseSchemaReader databaseModelReader;
+
+    TenantSchemaReader(DatabaseSchemaReader databaseModelReader) {
+        this.databaseModelReader = databaseModelReader;
+    }
+
+    TenantSchemas read(Connection connection, String schemaPattern, String version) throws SQLException {
+        Map<String, List<String>> tenantsByFingerprint = new LinkedHashMap<>();
+        databaseModelReader.readSchemaFingerprints(connection, schemaPattern).forEach((schemaName, fingerprint) ->
+                tenantsByFingerprint.computeIfAbsent(fingerprint, _ -> new ArrayList<>()).add(schemaName));
+        if (tenantsByFingerprint.isEmpty()) {
+            throw new IllegalStateException("No schema matches the tenant schema pattern " + schemaPattern);
+        }
+        log.info("Found {} tenant schemas of {} distinct structures matching {}",
+                tenantsByFingerprint.values().stream().mapToInt(List::size).sum(), tenantsByFingerprint.size(), schemaPattern);
+
+        // The schema names are sorted, so that ties are broken by the first tenant
+        List<List<String>> structures = tenantsByFingerprint.values().stream()
+                .sorted(Comparator.<List<String>>comparingInt(List::size).reversed())
+                .toList();
+        List<DatabaseSchema> representatives = new ArrayList<>();
+        List<DatabaseSchema> outliers = new ArrayList<>();
+        for (List<String> tenants : structures) {
+            DatabaseSchema representative = databaseModelReader.readDatabaseModelFrom(connection, tenants.getFirst(), version);
+            representatives.add(representative);
+            if (representatives.size() > 1) {
+                tenants.forEach(tenant -> outliers.add(new DatabaseSchema(tenant, version, representative.tables())));
+            }
+        }
+        return new TenantSchemas(representatives.getFirst(), structures.getFirst(), outliers, representatives);
+    }
+
+    /**
+     * @param template        The schema of the first of the tenants sharing the most common structure
+     * @param tenants         The tenants sharing the structure of the template
+     * @param outliers        The schemas of the other tenants
+     * @param representatives The schemas read in full, one per distinct structure
+     */
+    record TenantSchemas(DatabaseSchema template, List<String> tenants, List<DatabaseSchema> outliers,
+                         List<DatabaseSchema> representatives) {
+    }
+}
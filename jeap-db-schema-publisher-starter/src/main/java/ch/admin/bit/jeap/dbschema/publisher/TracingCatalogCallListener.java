@@ -0,0 +1,52 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.reader.CatalogCall;
+import ch.admin.bit.jeap.dbschema.reader.CatalogCallListener;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds a span for reading the columns of each table with at least the given number of columns to the
+ * {@code catalog-read} span, so that large tables slowing down the publication stand out in a trace. The calls are
+ * reported once completed, the spans are therefore created afterwards with the timestamps of the call.
+ */
+class TracingCatalogCallListener implements CatalogCallListener {
+
+    static final String SPAN_NAME = "publish-db-schema-read-table";
+    static final String ATTRIBUTE_TABLE_NAME = "db.schema.table";
+
+    private static final String GET_COLUMNS = "getColumns";
+
+    private final Tracer tracer;
+    private final int minColumns;
+    private final Clock clock;
+
+    TracingCatalogCallListener(Tracer tracer, int minColumns, Clock clock) {
+        this.tracer = tracer;
+        this.minColumns = minColumns;
+        this.clock = clock;
+    }
+
+    @Override
+    public void catalogCallCompleted(CatalogCall call) {
+        Span parent = tracer.currentSpan();
+        if (parent == null || !GET_COLUMNS.equals(call.method()) || call.rows() < minColumns) {
+            return;
+        }
+        long endMicros = ChronoUnit.MICROS.between(Instant.EPOCH, clock.instant());
+        long startMicros = endMicros - call.duration().toNanos() / 1000;
+        Span span = tracer.spanBuilder()
+                .setParent(parent.context())
+                .name(SPAN_NAME)
+                .startTimestamp(startMicros, TimeUnit.MICROSECONDS)
+                .start();
+        span.tag(ATTRIBUTE_TABLE_NAME, call.tableName())
+                .tag(PublicationStatistics.ATTRIBUTE_COLUMNS, call.rows());
+        span.end(endMicros, TimeUnit.MICROSECONDS);
+    }
+}
@@ -5,21 +5,24 @@ import io.micrometer.core.instrument.Timer;
 import io.micrometer.tracing.Span;
 import io.micrometer.tracing.Tracer;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Supplier;
 
 /**
  * Utility class for tracing and timing operations using Micrometer Tracing and Micrometer.
  * It provides a method to execute an action while tracing it with a span and timing it with
- * a timer. The timer records the duration of the action and its success or failure status.
+ * a timer. The timer records the duration of the action and its success, failure or cancellation status.
  * This class is designed to be used in asynchronous contexts, and tracing/metrics are fully
  * optional, allowing for graceful degradation if the tracer or meter registry is not available.
  */
 class TracingTimer {
 
-    private static final String TAG_STATUS = "status";
-    private static final String STATUS_SUCCESS = "success";
-    private static final String STATUS_ERROR = "error";
+    static final String TAG_STATUS = "status";
+    static final String STATUS_SUCCESS = "success";
+    static final String STATUS_ERROR = "error";
+    static final String STATUS_CANCELLED = "cancelled";
     private static final String NON_EXCEPTION_FAILURE_MESSAGE = "Synchronous non-exception failure while invoking action";
 
     private final Tracer tracer;
@@ -77,11 +80,16 @@ class TracingTimer {
 
     private void stopTimer(String timerName, Timer.Sample sample, Throwable ex) {
         if (sample != null) {
-            String status = (ex != null) ? STATUS_ERROR : STATUS_SUCCESS;
+            String status = (ex == null) ? STATUS_SUCCESS : isCancellation(ex) ? STATUS_CANCELLED : STATUS_ERROR;
             sample.stop(meterRegistry.timer(timerName, TAG_STATUS, status));
         }
     }
 
+    private static boolean isCancellation(Throwable ex) {
+        return ex instanceof CancellationException ||
+                ex instanceof CompletionException && ex.getCause() instanceof CancellationException;
+    }
+
     private static void endSpan(Span span, Throwable ex) {
         if (span == null) {
             return;
@@ -0,0 +1,123 @@
+package ch.admin.bit.jeap.dbschema.archrepo.client;
+
+import ch.admin.bit.jeap.dbschema.DbSchemaPublisherTestApplication;
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryServiceDedicatedTransportTest.YamlHttpMessageConverterConfiguration;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceAutoConfiguration;
+import org.springframework.boot.micrometer.metrics.test.autoconfigure.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.converter.yaml.JacksonYamlHttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.concurrent.TimeUnit;
+
+import static ch.admin.bit.jeap.dbschema.archrepo.client.ArchRepoTestFixtures.*;
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(classes = {DbSchemaPublisherTestApplication.class, YamlHttpMessageConverterConfiguration.class},
+        properties = {
+                "jeap.archrepo.http.transport=dedicated",
+                "jeap.archrepo.http.read-timeout=1s"})
+@EnableAutoConfiguration(exclude = {DataSourceAutoConfiguration.class})
+@ActiveProfiles("test")
+@AutoConfigureMetrics
+class ArchitectureRepositoryServiceDedicatedTransportTest {
+
+    private static final int RESPONSE_DELAY_MILLIS = 200;
+
+    static WireMockServer wireMockServer = new WireMockServer(wireMockConfig()
+            .dynamicPort()
+            .http2PlainDisabled(true));
+
+    @Autowired
+    private ArchitectureRepositoryService architectureRepositoryService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Registered to prove that the dedicated transport does not inherit the converters of the host application.
+     */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class YamlHttpMessageConverterConfiguration {
+
+        @Bean
+        JacksonYamlHttpMessageConverter yamlHttpMessageConverter() {
+            return new JacksonYamlHttpMessageConverter();
+        }
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        wireMockServer.start();
+        registry.add("wiremock.port", () -> wireMockServer.port());
+        registry.add("jeap.archrepo.url", () -> "http://localhost:" + wireMockServer.port());
+    }
+
+    @BeforeEach
+    void setUpStubs() {
+        wireMockServer.resetAll();
+        stubOAuthTokenEndpoint(wireMockServer);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    void publishDbSchema_whenDedicatedTransport_thenPublishesJsonAndRecordsPhaseTimers() {
+        wireMockServer.stubFor(post(urlEqualTo(API_DBSCHEMAS_PATH))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(RESPONSE_DELAY_MILLIS)));
+        CreateOrUpdateDbSchemaDto dto = new CreateOrUpdateDbSchemaDto(TEST_APP, testDatabaseSchema());
+
+        assertThatCode(() -> architectureRepositoryService.publishDbSchema(dto)).doesNotThrowAnyException();
+
+        var requests = wireMockServer.findAll(postRequestedFor(urlEqualTo(API_DBSCHEMAS_PATH)));
+        assertThat(requests).hasSize(1);
+        assertThat(requests.getFirst().getHeader(CONTENT_TYPE_HEADER)).isEqualTo(APPLICATION_JSON);
+        assertThat(requests.getFirst().getHeader("Authorization")).isEqualTo("Bearer test-token");
+
+        assertThat(phaseTimer(PhaseTimingHttpClient.PHASE_CONNECT).count()).isOne();
+        assertThat(phaseTimer(PhaseTimingHttpClient.PHASE_REQUEST_WRITE).count()).isOne();
+        Timer responseWait = phaseTimer(PhaseTimingHttpClient.PHASE_RESPONSE_WAIT);
+        assertThat(responseWait.count()).isOne();
+        assertThat(responseWait.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(RESPONSE_DELAY_MILLIS);
+    }
+
+    @Test
+    void publishDbSchema_whenResponseExceedsReadTimeout_thenFails() {
+        wireMockServer.stubFor(post(urlEqualTo(API_DBSCHEMAS_PATH))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(3000)));
+        CreateOrUpdateDbSchemaDto dto = new CreateOrUpdateDbSchemaDto(TEST_APP, testDatabaseSchema());
+
+        assertThatThrownBy(() -> architectureRepositoryService.publishDbSchema(dto))
+                .isInstanceOf(ResourceAccessException.class);
+    }
+
+    private Timer phaseTimer(String phase) {
+        return meterRegistry.get(PhaseTimingHttpClient.TIMER_NAME)
+                .tag(PhaseTimingHttpClient.TAG_PHASE, phase)
+                .timer();
+    }
+}
@@ -0,0 +1,184 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.reader.CachingDatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseSchemaReader;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticCatalog;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CachingDatabaseModelReaderTest {
+
+    private static final int CALLS_PER_READ_OF_10_TABLES = 1 + 3 * 10;
+
+    private final SyntheticCatalog catalog = new SyntheticCatalog(SyntheticSchema.of(10));
+    private final DataSource dataSource = catalog.dataSource();
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final CachingDatabaseModelReader reader =
+            new CachingDatabaseModelReader(new DatabaseModelReader(), Duration.ofMinutes(5), nanoTime::get);
+
+    @Test
+    void readDatabaseModel_whenCached_thenServedWithRequestedVersion() throws SQLException {
+        DatabaseSchema first = reader.readDatabaseModel(dataSource, "data", "1.0");
+        DatabaseSchema second = reader.readDatabaseModel(dataSource, "data", "1.1");
+
+        assertThat(catalog.getCatalogCalls()).isEqualTo(CALLS_PER_READ_OF_10_TABLES);
+        assertThat(second.tables()).isSameAs(first.tables());
+        assertThat(second.version()).isEqualTo("1.1");
+    }
+
+    @Test
+    void readDatabaseModel_whenExpired_thenReadsAgain() throws SQLException {
+        reader.readDatabaseModel(dataSource, "data", "1.0");
+        nanoTime.addAndGet(Duration.ofMinutes(5).toNanos());
+        reader.readDatabaseModel(dataSource, "data", "1.0");
+
+        assertThat(catalog.getCatalogCalls()).isEqualTo(2 * CALLS_PER_READ_OF_10_TABLES);
+    }
+
+    @Test
+    void readDatabaseModel_whenConcurrent_thenSharesSingleRead() throws Exception {
+        SyntheticCatalog slowCatalog = new SyntheticCatalog(SyntheticSchema.of(10), Duration.ofMillis(2));
+        DataSource slowDataSource = slowCatalog.dataSource();
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<DatabaseSchema>> reads = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            reads.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                    return reader.readDatabaseModel(slowDataSource, "data", "1.0");
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }, command -> Thread.ofVirtual().start(command)));
+        }
+
+        start.countDown();
+
+        assertThat(reads).allSatisfy(read -> assertThat(read.get().tables()).hasSize(10));
+        assertThat(slowCatalog.getCatalogCalls()).isEqualTo(CALLS_PER_READ_OF_10_TABLES);
+    }
+
+    @Test
+    void invalidate_thenReadsAgain() throws SQLException {
+        reader.readDatabaseModel(dataSource, "data", "1.0");
+        reader.readDatabaseModel(dataSource, "audit", "1.0");
+
+        reader.invalidate(dataSource);
+        reader.readDatabaseModel(dataSource, "data", "1.0");
+
+        assertThat(catalog.getCatalogCalls()).isEqualTo(2 * CALLS_PER_READ_OF_10_TABLES + 1);
+    }
+
+    @Test
+    void readDatabaseModel_whenReadFails_thenNotCached() throws SQLException {
+        DatabaseModelReader delegate = mock(DatabaseModelReader.class);
+        SQLException failure = new SQLException("connection refused");
+        DatabaseSchema schema = new DatabaseSchema("data", "1.0", List.of());
+        when(delegate.readDatabaseModel(any(), any(), any())).thenThrow(failure).thenReturn(schema);
+        CachingDatabaseModelReader failingReader = new CachingDatabaseModelReader(delegate, Duration.ofMinutes(5));
+
+        assertThatThrownBy(() -> failingReader.readDatabaseModel(dataSource, "data", "1.0")).isSameAs(failure);
+
+        assertThat(failingReader.readDatabaseModel(dataSource, "data", "1.0")).isSameAs(schema);
+    }
+
+    @Test
+    void readDatabaseModel_whenReadFailsWithError_thenNotCached() throws SQLException {
+        DatabaseModelReader delegate = mock(DatabaseModelReader.class);
+        StackOverflowError failure = new StackOverflowError();
+        DatabaseSchema schema = new DatabaseSchema("data", "1.0", List.of());
+        when(delegate.readDatabaseModel(any(), any(), any())).thenThrow(failure).thenReturn(schema);
+        CachingDatabaseModelReader failingReader = new CachingDatabaseModelReader(delegate, Duration.ofMinutes(5));
+
+        assertThatThrownBy(() -> failingReader.readDatabaseModel(dataSource, "data", "1.0")).isSameAs(failure);
+
+        assertThat(failingReader.readDatabaseModel(dataSource, "data", "1.0")).isSameAs(schema);
+        verify(delegate, times(2)).readDatabaseModel(any(), any(), any());
+    }
+
+    @Test
+    void readSchemaFingerprints_delegatesUncached() throws SQLException {
+        DatabaseSchemaReader delegate = mock(DatabaseSchemaReader.class);
+        SortedMap<String, String> fingerprints = new TreeMap<>(Map.of("TENANT_A", "f1"));
+        when(delegate.readSchemaFingerprints(any(), any())).thenReturn(fingerprints);
+        CachingDatabaseModelReader cachingReader = new CachingDatabaseModelReader(delegate, Duration.ofMinutes(5));
+
+        assertThat(cachingReader.readSchemaFingerprints(null, "TENANT%")).isSameAs(fingerprints);
+        assertThat(cachingReader.readSchemaFingerprints(null, "TENANT%")).isSameAs(fingerprints);
+
+        verify(delegate, times(2)).readSchemaFingerprints(null, "TENANT%");
+    }
+
+    @Test
+    void publication_readsCurrentSchemaAndUpdatesCache() throws SQLException {
+        reader.readDatabaseModel(dataSource, "data", "na");
+        DbSchemaPublisher publisher = new DbSchemaPublisher("test-app", new ArchRepoProperties(),
+                mock(ArchitectureRepositoryService.class), dataSource, reader,
+                new AppVersionProvider(null, null), new TracingTimer(null, null));
+
+        publisher.publishDatabaseSchemaAsync().join();
+        reader.readDatabaseModel(dataSource, "data", "na");
+
+        assertThat(catalog.getCatalogCalls()).isEqualTo(2 * CALLS_PER_READ_OF_10_TABLES);
+    }
+
+    @Test
+    void autoConfiguration_whenTimeToLiveSet_thenCachePrimaryNextToModelReader() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(DbSchemaPublisherAutoConfiguration.class))
+                .withPropertyValues("jeap.archrepo.database.cache-time-to-live=5m")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(DatabaseModelReader.class);
+                    assertThat(context.getBean(DatabaseModelReader.class)).isNotInstanceOf(CachingDatabaseModelReader.class);
+                    assertThat(context.getBean(DatabaseSchemaReader.class)).isInstanceOf(CachingDatabaseModelReader.class);
+                });
+    }
+
+    @Test
+    void autoConfiguration_whenTimeToLiveNotSet_thenModelReaderOnly() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(DbSchemaPublisherAutoConfiguration.class))
+                .run(context -> {
+                    assertThat(context).doesNotHaveBean(CachingDatabaseModelReader.class);
+                    assertThat(context.getBean(DatabaseSchemaReader.class)).isInstanceOf(DatabaseModelReader.class);
+                });
+    }
+
+    @Test
+    void flywayCallback_invalidatesCache() throws SQLException {
+        reader.readDatabaseModel(dataSource, "data", "1.0");
+        SchemaCacheFlywayCallback callback = new SchemaCacheFlywayCallback(
+                new StaticListableBeanFactory(Map.of("reader", reader)).getBeanProvider(DatabaseSchemaReader.class));
+
+        assertThat(callback.supports(Event.AFTER_MIGRATE_OPERATION_FINISH, mock(Context.class))).isTrue();
+        callback.handle(Event.AFTER_MIGRATE_OPERATION_FINISH, mock(Context.class));
+        reader.readDatabaseModel(dataSource, "data", "1.0");
+
+        assertThat(catalog.getCatalogCalls()).isEqualTo(2 * CALLS_PER_READ_OF_10_TABLES);
+    }
+}
@@ -0,0 +1,133 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.reader.CatalogCall;
+import ch.admin.bit.jeap.dbschema.reader.CatalogCallStatistics;
+import ch.admin.bit.jeap.dbschema.reader.CatalogCallStatistics.MethodStatistics;
+import ch.admin.bit.jeap.dbschema.reader.CatalogInstrumentation;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.reader.SchemaMetadataDialect;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogInstrumentationTest {
+
+    private static final String SCHEMA_NAME = "PUBLIC";
+    // The catalog calls instrumented are those of the generic dialect, H2 would otherwise be read with its own
+    private static final List<SchemaMetadataDialect> JDBC_DIALECT_ONLY = List.of();
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:catalog-instrumentation");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(100))");
+            statement.execute("CREATE TABLE sessions (id BIGINT PRIMARY KEY, user_id BIGINT REFERENCES users(id))");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void readDatabaseModelFrom_countsAndTimesCatalogCallsByMethod() throws SQLException {
+        CatalogCallStatistics statistics = new CatalogCallStatistics();
+        DatabaseModelReader reader = new DatabaseModelReader(CatalogInstrumentation.of(null, statistics), JDBC_DIALECT_ONLY);
+
+        DatabaseSchema schema = reader.readDatabaseModelFrom(connection, SCHEMA_NAME, "1.0");
+
+        assertThat(schema.tables()).hasSize(2);
+        Map<String, MethodStatistics> snapshot = statistics.snapshot();
+        assertThat(snapshot).containsOnlyKeys("getTables", "getColumns", "getPrimaryKeys", "getImportedKeys");
+        assertThat(snapshot.get("getTables").calls()).isOne();
+        assertThat(snapshot.get("getTables").rows()).isEqualTo(2);
+        assertThat(snapshot.get("getColumns").calls()).isEqualTo(2);
+        assertThat(snapshot.get("getColumns").rows()).isEqualTo(4);
+        assertThat(snapshot.get("getPrimaryKeys").rows()).isEqualTo(2);
+        assertThat(snapshot.get("getImportedKeys").rows()).isOne();
+        assertThat(snapshot.values()).allSatisfy(methodStatistics -> assertThat(methodStatistics.failures()).isZero());
+    }
+
+    @Test
+    void readDatabaseModelFrom_reportsTableNameOfEachCall() throws SQLException {
+        List<CatalogCall> calls = new ArrayList<>();
+        DatabaseModelReader reader = new DatabaseModelReader(CatalogInstrumentation.of(Duration.ZERO, calls::add), JDBC_DIALECT_ONLY);
+
+        reader.readDatabaseModelFrom(connection, SCHEMA_NAME, "1.0");
+
+        assertThat(calls).filteredOn(call -> call.method().equals("getColumns"))
+                .extracting(CatalogCall::tableName)
+                .containsExactlyInAnyOrder("USERS", "SESSIONS");
+        assertThat(calls).allSatisfy(call -> assertThat(call.schemaName()).isEqualTo(SCHEMA_NAME));
+    }
+
+    @Test
+    void readSchemaFingerprint_isInstrumentedAndUnchanged() throws SQLException {
+        CatalogCallStatistics statistics = new CatalogCallStatistics();
+        DatabaseModelReader reader = new DatabaseModelReader(CatalogInstrumentation.of(null, statistics), JDBC_DIALECT_ONLY);
+
+        String fingerprint = reader.readSchemaFingerprint(connection, SCHEMA_NAME);
+
+        assertThat(fingerprint).isEqualTo(new DatabaseModelReader().readSchemaFingerprint(connection, SCHEMA_NAME));
+        assertThat(statistics.snapshot().get("getColumns").rows()).isEqualTo(4);
+    }
+
+    @Test
+    void readSchemaFingerprint_changesWhenOnlyKeysChange() throws SQLException {
+        DatabaseModelReader reader = new DatabaseModelReader();
+        String fingerprint = reader.readSchemaFingerprint(connection, SCHEMA_NAME);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE sessions ADD CONSTRAINT sessions_user_fk2 FOREIGN KEY (user_id) REFERENCES users(id)");
+            String withForeignKey = reader.readSchemaFingerprint(connection, SCHEMA_NAME);
+            statement.execute("ALTER TABLE sessions DROP CONSTRAINT sessions_user_fk2");
+            statement.execute("ALTER TABLE sessions DROP PRIMARY KEY");
+            String withoutPrimaryKey = reader.readSchemaFingerprint(connection, SCHEMA_NAME);
+
+            assertThat(withForeignKey).isNotEqualTo(fingerprint);
+            assertThat(withoutPrimaryKey).isNotEqualTo(fingerprint).isNotEqualTo(withForeignKey);
+        }
+    }
+
+    @Test
+    void micrometerListener_recordsTimerAndRowsPerMethod() throws SQLException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DatabaseModelReader reader = new DatabaseModelReader(
+                CatalogInstrumentation.of(null, new MicrometerCatalogCallListener(meterRegistry)), JDBC_DIALECT_ONLY);
+
+        reader.readDatabaseModelFrom(connection, SCHEMA_NAME, "1.0");
+
+        assertThat(meterRegistry.get(MicrometerCatalogCallListener.TIMER_NAME)
+                .tag(MicrometerCatalogCallListener.TAG_METHOD, "getColumns")
+                .tag(MicrometerCatalogCallListener.TAG_STATUS, "success")
+                .timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(MicrometerCatalogCallListener.ROWS_SUMMARY_NAME)
+                .tag(MicrometerCatalogCallListener.TAG_METHOD, "getColumns")
+                .summary().totalAmount()).isEqualTo(4);
+    }
+
+    @Test
+    void listenerFailure_doesNotFailReading() throws SQLException {
+        DatabaseModelReader reader = new DatabaseModelReader(CatalogInstrumentation.of(null, _ -> {
+            throw new IllegalStateException("listener failed");
+        }));
+
+        assertThat(reader.readDatabaseModelFrom(connection, SCHEMA_NAME, "1.0").tables()).hasSize(2);
+    }
+}
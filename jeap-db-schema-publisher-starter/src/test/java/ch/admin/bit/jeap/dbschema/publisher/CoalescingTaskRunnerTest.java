@@ -0,0 +1,85 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoalescingTaskRunnerTest {
+
+    private final List<CompletableFuture<Void>> runs = new ArrayList<>();
+    private final AtomicInteger executions = new AtomicInteger();
+    // Runs tasks in the calling thread, the runs themselves complete when the test completes their future
+    private final Executor directExecutor = Runnable::run;
+
+    private final CoalescingTaskRunner runner = new CoalescingTaskRunner(() -> {
+        executions.incrementAndGet();
+        CompletableFuture<Void> run = new CompletableFuture<>();
+        runs.add(run);
+        return run;
+    }, directExecutor);
+
+    @Test
+    void trigger_whenIdle_thenStartsRun() {
+        CompletableFuture<Void> result = runner.trigger();
+
+        assertThat(executions).hasValue(1);
+        assertThat(result).isNotDone();
+        runs.getFirst().complete(null);
+        assertThat(result).isCompleted();
+    }
+
+    @Test
+    void trigger_whenRunInFlight_thenCoalescesTriggersIntoOnePendingRun() {
+        CompletableFuture<Void> first = runner.trigger();
+        CompletableFuture<Void> second = runner.trigger();
+        CompletableFuture<Void> third = runner.trigger();
+
+        assertThat(executions).hasValue(1);
+        assertThat(second).isSameAs(third);
+
+        runs.getFirst().complete(null);
+
+        assertThat(first).isCompleted();
+        assertThat(second).isNotDone();
+        assertThat(executions).hasValue(2);
+
+        runs.get(1).complete(null);
+
+        assertThat(second).isCompleted();
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void trigger_whenRunFailed_thenReportsFailureAndStaysUsable() {
+        CompletableFuture<Void> first = runner.trigger();
+        runs.getFirst().completeExceptionally(new IllegalStateException("failed"));
+
+        assertThat(first).isCompletedExceptionally();
+
+        CompletableFuture<Void> second = runner.trigger();
+        assertThat(executions).hasValue(2);
+        runs.get(1).complete(null);
+        assertThat(second).isCompleted();
+    }
+
+    @Test
+    void trigger_whenTaskThrows_thenCompletesExceptionallyAndRunsPending() {
+        AtomicInteger attempts = new AtomicInteger();
+        CoalescingTaskRunner throwingRunner = new CoalescingTaskRunner(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("failed");
+        }, directExecutor);
+
+        CompletableFuture<Void> result = throwingRunner.trigger();
+
+        assertThat(result).isCompletedExceptionally();
+        assertThat(throwingRunner.trigger()).isCompletedExceptionally();
+        assertThat(attempts).hasValue(2);
+    }
+}
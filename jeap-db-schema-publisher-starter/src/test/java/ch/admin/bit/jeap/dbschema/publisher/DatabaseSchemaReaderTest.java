@@ -17,7 +17,9 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 import java.util.Optional;
 
@@ -214,6 +216,39 @@ class DatabaseSchemaReaderTest {
         assertThat(model.tables()).isEmpty();
     }
 
+    @Test
+    void shouldChangeSchemaFingerprintOnlyWhenColumnsOrKeysChange() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            String fingerprint = databaseModelReader.readSchemaFingerprint(connection, "data");
+            assertThat(databaseModelReader.readSchemaFingerprint(connection, "data")).isEqualTo(fingerprint);
+
+            statement.execute("ALTER TABLE data.users ADD COLUMN nickname VARCHAR(50)");
+            try {
+                assertThat(databaseModelReader.readSchemaFingerprint(connection, "data")).isNotEqualTo(fingerprint);
+            } finally {
+                statement.execute("ALTER TABLE data.users DROP COLUMN nickname");
+            }
+            assertThat(databaseModelReader.readSchemaFingerprint(connection, "data")).isEqualTo(fingerprint);
+        }
+    }
+
+    @Test
+    void shouldChangeSchemaFingerprintWhenOnlyForeignKeyChanges() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE data.user_profiles ADD COLUMN referrer_id BIGINT");
+            String fingerprint = databaseModelReader.readSchemaFingerprint(connection, "data");
+            try {
+                statement.execute("ALTER TABLE data.user_profiles ADD CONSTRAINT fk_user_profiles_referrer " +
+                        "FOREIGN KEY (referrer_id) REFERENCES data.users (id)");
+                assertThat(databaseModelReader.readSchemaFingerprint(connection, "data")).isNotEqualTo(fingerprint);
+                statement.execute("ALTER TABLE data.user_profiles DROP CONSTRAINT fk_user_profiles_referrer");
+                assertThat(databaseModelReader.readSchemaFingerprint(connection, "data")).isEqualTo(fingerprint);
+            } finally {
+                statement.execute("ALTER TABLE data.user_profiles DROP COLUMN referrer_id");
+            }
+        }
+    }
+
     private void assertColumnExists(Table table, String columnName, String expectedType, boolean expectedNullable) {
         Optional<TableColumn> column = table.columns().stream()
                 .filter(c -> columnName.equals(c.name()))
@@ -0,0 +1,129 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import ch.admin.bit.jeap.dbschema.publisher.PublicationStatistics.PublicationReport;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.Status;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class DbSchemaEndpointTest {
+
+    private DatabaseModelReader databaseModelReader;
+    private PublicationStatistics statistics;
+    private DbSchemaPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        ArchRepoProperties properties = new ArchRepoProperties();
+        properties.getDatabase().setSchemaName("test");
+        databaseModelReader = mock(DatabaseModelReader.class);
+        statistics = new PublicationStatistics();
+        ArchitectureRepositoryService architectureRepositoryService = mock(ArchitectureRepositoryService.class);
+        // Simulates the HTTP phase recorder, which runs on the publisher thread
+        doAnswer(_ -> {
+            statistics.payloadSent(42, "abc");
+            statistics.phaseCompleted(PublicationStatistics.PHASE_UPLOAD, Duration.ofMillis(5));
+            return null;
+        }).when(architectureRepositoryService).publishDbSchema(any());
+        publisher = new DbSchemaPublisher("test-app", properties, architectureRepositoryService,
+                mock(DataSource.class), databaseModelReader, new AppVersionProvider(null, null),
+                new TracingTimer(null, null), null, null, null, statistics);
+    }
+
+    @Test
+    void statistics_whenPublished_thenReportsPhasesTablesAndPayload() throws SQLException {
+        when(databaseModelReader.readDatabaseModelFrom(any(), anyString(), anyString())).thenReturn(new DatabaseSchema(
+                "test", "na", List.of(new Table("a", List.of(new TableColumn("id", "int", false)), List.of(), null),
+                new Table("b", List.of(), List.of(), null))));
+
+        publisher.publishDatabaseSchemaAsync().join();
+
+        PublicationReport report = new DbSchemaEndpoint(publisher, statistics).statistics().lastPublication();
+        assertThat(report.outcome()).isEqualTo(PublicationStatistics.OUTCOME_SUCCESS);
+        assertThat(report.phaseDurationsMillis())
+                .containsOnlyKeys(PublicationStatistics.PHASE_CONNECTION_ACQUISITION,
+                        PublicationStatistics.PHASE_CATALOG_READ, PublicationStatistics.PHASE_UPLOAD)
+                .containsEntry(PublicationStatistics.PHASE_UPLOAD, 5L);
+        assertThat(report.tableCount()).isEqualTo(2);
+        assertThat(report.columnCount()).isEqualTo(1);
+        assertThat(report.payloadBytes()).isEqualTo(42);
+        assertThat(report.payloadFingerprint()).isEqualTo("abc");
+        assertThat(report.finishedAt()).isAfterOrEqualTo(report.startedAt());
+        assertThat(report.error()).isNull();
+        assertThat(new DbSchemaHealthIndicator(statistics).health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    void publishDatabaseSchemaAsync_whenReadingFails_thenKeepsCauseAndReportsError() throws SQLException {
+        SQLException cause = new SQLException("connection refused");
+        when(databaseModelReader.readDatabaseModelFrom(any(), anyString(), anyString())).thenThrow(cause);
+
+        CompletableFuture<Void> result = publisher.publishDatabaseSchemaAsync();
+
+        assertThatThrownBy(result::join)
+                .isInstanceOf(CompletionException.class)
+                .cause().isInstanceOf(IllegalStateException.class)
+                .hasCause(cause);
+        assertThat(statistics.getLastPublication().error()).isEqualTo("java.sql.SQLException: connection refused");
+        Health health = new DbSchemaHealthIndicator(statistics).health();
+        // Reported in the details only, so that the aggregate health of the application stays up
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails())
+                .containsEntry("outcome", PublicationStatistics.OUTCOME_ERROR)
+                .containsEntry("error", "java.sql.SQLException: connection refused");
+    }
+
+    @Test
+    void health_whenNothingPublishedYet_thenUnknown() {
+        assertThat(new DbSchemaHealthIndicator(statistics).health().getStatus()).isEqualTo(Status.UNKNOWN);
+    }
+
+    @Test
+    void republish_triggersPublicationWithoutWaiting() {
+        DbSchemaPublisher mockPublisher = mock(DbSchemaPublisher.class);
+        when(mockPublisher.publishDatabaseSchemaAsync()).thenReturn(new CompletableFuture<>());
+
+        new DbSchemaEndpoint(mockPublisher, statistics).republish();
+
+        verify(mockPublisher).publishDatabaseSchemaAsync();
+    }
+
+    @Test
+    void statistics_isSerializable() {
+        statistics.started();
+        statistics.completed(null);
+
+        String json = JsonMapper.builder().build().writeValueAsString(new DbSchemaEndpoint(publisher, statistics).statistics());
+
+        assertThat(json).contains("\"running\":false", "\"outcome\":\"success\"");
+    }
+
+    @Test
+    void payloadSent_whenRecordedFromAnotherThread_thenIgnored() throws InterruptedException {
+        statistics.started();
+        Thread other = Thread.ofVirtual().start(() -> statistics.payloadSent(1, "other"));
+        other.join();
+        statistics.completed(null);
+
+        assertThat(statistics.getLastPublication().payloadBytes()).isNull();
+    }
+}
@@ -0,0 +1,132 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.DbSchemaUploadPageDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.DbSchemaUploadService;
+import ch.admin.bit.jeap.dbschema.model.TableForeignKey;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.reader.H2InformationSchemaDialect;
+import ch.admin.bit.jeap.dbschema.reader.SchemaMetadataDialect;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticCatalog;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.aot.test.generate.TestGenerationContext;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.aot.ApplicationContextAotGenerator;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.test.tools.CompileWithForkedClassLoader;
+import org.springframework.core.test.tools.TestCompiler;
+import org.springframework.javapoet.ClassName;
+import org.springframework.security.oauth2.client.InMemoryOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.web.client.RestClient;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The generated code accesses the package-private publisher classes, and is therefore loaded in their class loader
+@CompileWithForkedClassLoader
+class DbSchemaPublisherAotTest {
+
+    private static final TestPropertyValues PROPERTIES = TestPropertyValues.of(
+            "spring.application.name=test-app",
+            "jeap.archrepo.url=http://localhost/archrepo",
+            "jeap.archrepo.database.schema-name=" + SyntheticSchema.DEFAULT_SCHEMA_NAME);
+
+    @Test
+    void processAheadOfTime_thenContextStartsFromGeneratedInitializer() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        PROPERTIES.applyTo(context);
+        context.register(PublisherApplication.class);
+        TestGenerationContext generationContext = new TestGenerationContext();
+
+        ClassName initializerClassName = new ApplicationContextAotGenerator().processAheadOfTime(context, generationContext);
+        generationContext.writeGeneratedContent();
+
+        TestCompiler.forSystem().with(generationContext).compile(compiled -> {
+            try (GenericApplicationContext aotContext = new GenericApplicationContext()) {
+                PROPERTIES.applyTo(aotContext);
+                @SuppressWarnings("unchecked")
+                ApplicationContextInitializer<GenericApplicationContext> initializer =
+                        compiled.getInstance(ApplicationContextInitializer.class, initializerClassName.toString());
+                initializer.initialize(aotContext);
+                aotContext.refresh();
+
+                assertThat(aotContext.getBean(DbSchemaPublisher.class)).isNotNull();
+                assertThat(aotContext.getBean(DbSchemaPublisherEventListener.class)).isNotNull();
+                assertThat(aotContext.getBean(DatabaseModelReader.class)).isNotNull();
+                assertThat(aotContext.getBean(ArchRepoProperties.class).getSchemaName()).isEqualTo(SyntheticSchema.DEFAULT_SCHEMA_NAME);
+            }
+        });
+        assertThat(RuntimeHintsPredicates.reflection().onType(DbSchemaPublisherEventListener.class))
+                .accepts(generationContext.getRuntimeHints());
+    }
+
+    @Test
+    void registerHints_coversPayloadProxiesAndDialects() {
+        RuntimeHints hints = new RuntimeHints();
+        new DbSchemaPublisherRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertThat(RuntimeHintsPredicates.reflection().onType(CreateOrUpdateDbSchemaDto.class)).accepts(hints);
+        // Reached through the records of the payload
+        assertThat(RuntimeHintsPredicates.reflection().onType(TableForeignKey.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.proxies()
+                .forInterfaces(AopProxyUtils.completeJdkProxyInterfaces(ArchitectureRepositoryService.class))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.proxies()
+                .forInterfaces(AopProxyUtils.completeJdkProxyInterfaces(DbSchemaUploadService.class))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(DbSchemaUploadPageDto.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(H2InformationSchemaDialect.class)
+                .withMemberCategory(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource()
+                .forResource("META-INF/services/" + SchemaMetadataDialect.class.getName())).accepts(hints);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration(DbSchemaPublisherAutoConfiguration.class)
+    static class PublisherApplication {
+
+        @Bean
+        DataSource dataSource() {
+            return new SyntheticCatalog(SyntheticSchema.of(3)).dataSource();
+        }
+
+        @Bean
+        ClientRegistrationRepository clientRegistrationRepository() {
+            return new InMemoryClientRegistrationRepository(clientRegistration());
+        }
+
+        @Bean
+        OAuth2AuthorizedClientService authorizedClientService(ClientRegistrationRepository clientRegistrationRepository) {
+            return new InMemoryOAuth2AuthorizedClientService(clientRegistrationRepository);
+        }
+
+        @Bean
+        RestClient.Builder restClientBuilder() {
+            return RestClient.builder();
+        }
+
+        private static ClientRegistration clientRegistration() {
+            return ClientRegistration.withRegistrationId("archrepo-client")
+                    .clientId("test-app")
+                    .clientSecret("secret")
+                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                    .tokenUri("http://localhost/oauth/token")
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+import java.util.random.RandomGenerator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class DbSchemaPublisherEventListenerTest {
+
+    private DbSchemaPublisher dbSchemaPublisher;
+    private TaskScheduler taskScheduler;
+    private RandomGenerator random;
+    private final ArchRepoProperties.StartupProperties startupProperties = new ArchRepoProperties.StartupProperties();
+
+    @BeforeEach
+    void setUp() {
+        dbSchemaPublisher = mock(DbSchemaPublisher.class);
+        taskScheduler = mock(TaskScheduler.class);
+        random = mock(RandomGenerator.class);
+    }
+
+    @Test
+    void publishSchemaOnStartup_whenNoDelay_thenPublishesRightAway() {
+        listener().publishSchemaOnStartup();
+
+        verify(dbSchemaPublisher).publishDatabaseSchemaAsync();
+        verifyNoInteractions(taskScheduler);
+    }
+
+    @Test
+    void publishSchemaOnStartup_whenDelayed_thenSchedulesPublicationAfterDelayPlusJitter() {
+        startupProperties.setInitialDelay(Duration.ofSeconds(30));
+        startupProperties.setJitter(Duration.ofSeconds(60));
+        when(random.nextLong(anyLong())).thenReturn(Duration.ofSeconds(20).toMillis());
+        Instant before = Instant.now();
+
+        listener().publishSchemaOnStartup();
+
+        ArgumentCaptor<Runnable> publication = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Instant> startTime = ArgumentCaptor.forClass(Instant.class);
+        verify(taskScheduler).schedule(publication.capture(), startTime.capture());
+        assertThat(startTime.getValue()).isBetween(before.plusSeconds(50), Instant.now().plusSeconds(50));
+        verifyNoInteractions(dbSchemaPublisher);
+
+        publication.getValue().run();
+        verify(dbSchemaPublisher).publishDatabaseSchemaAsync();
+    }
+
+    @Test
+    void startPublication_whenAlreadyStartedByOtherTrigger_thenDoesNotPublishAgain() {
+        DbSchemaPublisherEventListener listener = listener();
+
+        listener.startPublication();
+        listener.publishSchemaOnStartup();
+
+        verify(dbSchemaPublisher, times(1)).publishDatabaseSchemaAsync();
+    }
+
+    @Test
+    void close_whenPublicationPending_thenCancelsIt() {
+        startupProperties.setInitialDelay(Duration.ofMinutes(1));
+        ScheduledFuture<?> scheduledPublication = mock(ScheduledFuture.class);
+        doReturn(scheduledPublication).when(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+        DbSchemaPublisherEventListener listener = listener();
+        listener.publishSchemaOnStartup();
+
+        listener.close();
+
+        verify(scheduledPublication).cancel(true);
+    }
+
+    private DbSchemaPublisherEventListener listener() {
+        return new DbSchemaPublisherEventListener(dbSchemaPublisher, null, startupProperties, taskScheduler, random);
+    }
+}
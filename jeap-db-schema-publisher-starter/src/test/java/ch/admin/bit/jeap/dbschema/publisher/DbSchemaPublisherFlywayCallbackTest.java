@@ -0,0 +1,56 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class DbSchemaPublisherFlywayCallbackTest {
+
+    private final DbSchemaPublisherEventListener listener = mock(DbSchemaPublisherEventListener.class);
+    private final DbSchemaPublisherFlywayCallback callback = new DbSchemaPublisherFlywayCallback(
+            new StaticListableBeanFactory(Map.of("listener", listener))
+                    .getBeanProvider(DbSchemaPublisherEventListener.class));
+
+    @Test
+    void supports_onlyEndOfMigrateOperation() {
+        Context context = mock(Context.class);
+
+        assertThat(callback.supports(Event.AFTER_MIGRATE_OPERATION_FINISH, context)).isTrue();
+        assertThat(callback.supports(Event.AFTER_MIGRATE, context)).isFalse();
+        assertThat(callback.supports(Event.BEFORE_MIGRATE, context)).isFalse();
+    }
+
+    @Test
+    void handle_whenMigrationSucceeded_thenStartsPublication() {
+        MigrateResult result = new MigrateResult();
+        result.success = true;
+        result.migrationsExecuted = 2;
+
+        callback.handle(Event.AFTER_MIGRATE_OPERATION_FINISH, contextWith(result));
+
+        verify(listener).startPublication();
+    }
+
+    @Test
+    void handle_whenMigrationFailed_thenLeavesPublicationToApplicationReadyEvent() {
+        MigrateResult result = new MigrateResult();
+        result.success = false;
+
+        callback.handle(Event.AFTER_MIGRATE_OPERATION_FINISH, contextWith(result));
+
+        verifyNoInteractions(listener);
+    }
+
+    private static Context contextWith(MigrateResult result) {
+        Context context = mock(Context.class);
+        when(context.getOperationResult()).thenReturn(result);
+        return context;
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.boot.info.BuildProperties;
 import org.springframework.boot.info.GitProperties;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Properties;
@@ -40,6 +41,8 @@ class DbSchemaPublisherVersionTest {
 
         ArchitectureRepositoryService architectureRepositoryService = mock(ArchitectureRepositoryService.class);
         DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
         DatabaseModelReader databaseModelReader = mock(DatabaseModelReader.class);
 
         Properties buildProps = new Properties();
@@ -49,7 +52,7 @@ class DbSchemaPublisherVersionTest {
         BuildProperties buildProperties = new BuildProperties(buildProps);
 
         DatabaseSchema expectedModel = new DatabaseSchema("test", VERSION_2_1_3, List.of());
-        when(databaseModelReader.readDatabaseModel(eq(dataSource), eq("test"), any()))
+        when(databaseModelReader.readDatabaseModelFrom(eq(connection), eq("test"), any()))
                 .thenReturn(expectedModel);
 
         DbSchemaPublisher publisher = new DbSchemaPublisher(APP_NAME, properties, architectureRepositoryService, dataSource, databaseModelReader, new AppVersionProvider(buildProperties, null), TRACING_TIMER);
@@ -59,7 +62,7 @@ class DbSchemaPublisherVersionTest {
 
         // Then - verify that the version from BuildProperties was used
         verify(databaseModelReader)
-                .readDatabaseModel(any(), any(), eq(VERSION_2_1_3));
+                .readDatabaseModelFrom(any(), any(), eq(VERSION_2_1_3));
     }
 
     @Test
@@ -70,10 +73,12 @@ class DbSchemaPublisherVersionTest {
 
         ArchitectureRepositoryService architectureRepositoryService = mock(ArchitectureRepositoryService.class);
         DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
         DatabaseModelReader databaseModelReader = mock(DatabaseModelReader.class);
 
         DatabaseSchema expectedModel = new DatabaseSchema("test", "na", List.of());
-        when(databaseModelReader.readDatabaseModel(eq(dataSource), eq("test"), any()))
+        when(databaseModelReader.readDatabaseModelFrom(eq(connection), eq("test"), any()))
                 .thenReturn(expectedModel);
 
         DbSchemaPublisher publisher = new DbSchemaPublisher(APP_NAME, properties, architectureRepositoryService, dataSource, databaseModelReader, new AppVersionProvider(null, null), TRACING_TIMER);
@@ -83,7 +88,7 @@ class DbSchemaPublisherVersionTest {
 
         // Then - verify that the fallback version "na" was used
         verify(databaseModelReader)
-                .readDatabaseModel(any(), any(), eq("na"));
+                .readDatabaseModelFrom(any(), any(), eq("na"));
     }
 
     @Test
@@ -94,6 +99,8 @@ class DbSchemaPublisherVersionTest {
 
         ArchitectureRepositoryService architectureRepositoryService = mock(ArchitectureRepositoryService.class);
         DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
         DatabaseModelReader databaseModelReader = mock(DatabaseModelReader.class);
 
         Properties buildProps = new Properties();
@@ -110,7 +117,7 @@ class DbSchemaPublisherVersionTest {
                 .build();
 
         DatabaseSchema mockModel = new DatabaseSchema(SCHEMA_NAME, VERSION_1_5_0_RC1, List.of(mockTable));
-        when(databaseModelReader.readDatabaseModel(eq(dataSource), eq(SCHEMA_NAME), any()))
+        when(databaseModelReader.readDatabaseModelFrom(eq(connection), eq(SCHEMA_NAME), any()))
                 .thenReturn(mockModel);
 
         DbSchemaPublisher publisher = new DbSchemaPublisher(APP_NAME, properties, architectureRepositoryService, dataSource, databaseModelReader, new AppVersionProvider(buildProperties, null), TRACING_TIMER);
@@ -120,7 +127,7 @@ class DbSchemaPublisherVersionTest {
 
         // Then - verify the version was correctly passed to the database model reader
         verify(databaseModelReader)
-                .readDatabaseModel(any(), any(), eq(VERSION_1_5_0_RC1));
+                .readDatabaseModelFrom(any(), any(), eq(VERSION_1_5_0_RC1));
     }
 
     @Test
@@ -131,6 +138,8 @@ class DbSchemaPublisherVersionTest {
 
         ArchitectureRepositoryService architectureRepositoryService = mock(ArchitectureRepositoryService.class);
         DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
         DatabaseModelReader databaseModelReader = mock(DatabaseModelReader.class);
 
         Properties gitProps = new Properties();
@@ -140,7 +149,7 @@ class DbSchemaPublisherVersionTest {
         GitProperties gitProperties = new GitProperties(gitProps);
 
         DatabaseSchema expectedModel = new DatabaseSchema("test", VERSION_2_1_0_ABC1234, List.of());
-        when(databaseModelReader.readDatabaseModel(eq(dataSource), eq("test"), any()))
+        when(databaseModelReader.readDatabaseModelFrom(eq(connection), eq("test"), any()))
                 .thenReturn(expectedModel);
 
         DbSchemaPublisher publisher = new DbSchemaPublisher(APP_NAME, properties, architectureRepositoryService, dataSource, databaseModelReader, new AppVersionProvider(null, gitProperties), TRACING_TIMER);
@@ -150,7 +159,7 @@ class DbSchemaPublisherVersionTest {
 
         // Then - verify that the version from GitProperties was used
         verify(databaseModelReader)
-                .readDatabaseModel(any(), any(), eq(VERSION_2_1_0_ABC1234));
+                .readDatabaseModelFrom(any(), any(), eq(VERSION_2_1_0_ABC1234));
     }
 
     @Test
@@ -161,6 +170,8 @@ class DbSchemaPublisherVersionTest {
 
         ArchitectureRepositoryService architectureRepositoryService = mock(ArchitectureRepositoryService.class);
         DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
         DatabaseModelReader databaseModelReader = mock(DatabaseModelReader.class);
 
         Properties buildProps = new Properties();
@@ -176,7 +187,7 @@ class DbSchemaPublisherVersionTest {
         GitProperties gitProperties = new GitProperties(gitProps);
 
         DatabaseSchema expectedModel = new DatabaseSchema("test", VERSION_3_2_1, List.of());
-        when(databaseModelReader.readDatabaseModel(eq(dataSource), eq("test"), any()))
+        when(databaseModelReader.readDatabaseModelFrom(eq(connection), eq("test"), any()))
                 .thenReturn(expectedModel);
 
         DbSchemaPublisher publisher = new DbSchemaPublisher(APP_NAME, properties, architectureRepositoryService, dataSource, databaseModelReader, new AppVersionProvider(buildProperties, gitProperties), TRACING_TIMER);
@@ -186,7 +197,7 @@ class DbSchemaPublisherVersionTest {
 
         // Then - verify that BuildProperties version was used (not GitProperties)
         verify(databaseModelReader)
-                .readDatabaseModel(any(), any(), eq(VERSION_3_2_1));
+                .readDatabaseModelFrom(any(), any(), eq(VERSION_3_2_1));
     }
 
     @Test
@@ -197,10 +208,12 @@ class DbSchemaPublisherVersionTest {
 
         ArchitectureRepositoryService architectureRepositoryService = mock(ArchitectureRepositoryService.class);
         DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
         DatabaseModelReader databaseModelReader = mock(DatabaseModelReader.class);
 
         DatabaseSchema expectedModel = new DatabaseSchema("test", "na", List.of());
-        when(databaseModelReader.readDatabaseModel(eq(dataSource), eq("test"), any()))
+        when(databaseModelReader.readDatabaseModelFrom(eq(connection), eq("test"), any()))
                 .thenReturn(expectedModel);
 
         Properties gitProps = new Properties();
@@ -215,7 +228,7 @@ class DbSchemaPublisherVersionTest {
 
         // Then - verify that fallback "na" was used when git.build.version is not available
         verify(databaseModelReader)
-                .readDatabaseModel(any(), any(), eq("na"));
+                .readDatabaseModelFrom(any(), any(), eq("na"));
     }
 
 }
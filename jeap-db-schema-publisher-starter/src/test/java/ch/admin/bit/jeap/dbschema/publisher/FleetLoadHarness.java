@@ -0,0 +1,291 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticCatalog;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformerV2;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.support.RestClientAdapter;
+import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * Simulates a fleet of services publishing their schema within a short time, e.g. after a platform-wide restart. Each
+ * service is a {@link DbSchemaPublisher} with its own spool, reading a {@link SyntheticSchema} and uploading it to a
+ * WireMock archrepo that answers after a log-normally distributed delay and fails a share of the uploads with HTTP 503.
+ * Failed uploads are retried by the spool, like in production.
+ * <p>
+ * The services share one JDK {@code HttpClient}, i.e. one connection pool, and no OAuth token is fetched.
+ */
+@Slf4j
+class FleetLoadHarness {
+
+    private static final String DB_SCHEMAS_PATH = "/api/dbschemas";
+
+    /**
+     * @param services             Number of publishing services
+     * @param startupJitter        Each service starts publishing after a random delay up to this value, like with
+     *                             {@code jeap.archrepo.startup.jitter}
+     * @param tables               Tables of the schema of each service, determining the payload size
+     * @param catalogLatency       Latency of each catalog call while reading the schema
+     * @param archrepoLatency      Median response time of the archrepo
+     * @param archrepoErrorRate    Share of the uploads failed by the archrepo with HTTP 503, between 0 and 1
+     * @param initialBackoff       Delay before the first retry of a failed upload, doubled for each further retry
+     * @param timeout              Maximum time to wait for all publications to be delivered
+     */
+    record Settings(int services, Duration startupJitter, int tables, Duration catalogLatency,
+                    Duration archrepoLatency, double archrepoErrorRate, Duration initialBackoff, Duration timeout) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("loadtest.services", 500),
+                    duration("loadtest.startup-jitter", "PT60S"),
+                    Integer.getInteger("loadtest.tables", 200),
+                    duration("loadtest.catalog-latency", "PT0S"),
+                    duration("loadtest.archrepo-latency", "PT0.2S"),
+                    Double.parseDouble(System.getProperty("loadtest.archrepo-error-rate", "0.1")),
+                    duration("loadtest.initial-backoff", "PT1S"),
+                    duration("loadtest.timeout", "PT5M"));
+        }
+
+        private static Duration duration(String property, String defaultValue) {
+            return Duration.parse(System.getProperty(property, defaultValue));
+        }
+    }
+
+    /**
+     * @param delivered       Services whose schema has been accepted by the archrepo
+     * @param uploads         Upload attempts, including retries
+     * @param failedUploads   Upload attempts that failed
+     * @param retries         Upload attempts after the first one of a service
+     * @param maxAttempts     Highest number of upload attempts needed by a service
+     * @param elapsed         From the start of the first service until the last delivery
+     * @param uploadLatency   Percentiles p50, p95, p99 and max of the duration of an upload attempt
+     * @param deliveryLatency Percentiles p50, p95, p99 and max from the start of a service until its delivery
+     */
+    record Report(int services, int delivered, int uploads, int failedUploads, int retries, int maxAttempts,
+                  Duration elapsed, List<Duration> uploadLatency, List<Duration> deliveryLatency) {
+
+        double throughputPerSecond() {
+            return elapsed.isZero() ? 0 : delivered * 1000.0 / elapsed.toMillis();
+        }
+
+        @Override
+        public String toString() {
+            return """
+                    Delivered %d of %d schemas in %d ms (%.1f/s)
+                    Uploads %d, failed %d, retries %d, at most %d attempts per service
+                    Upload latency   p50 %d ms, p95 %d ms, p99 %d ms, max %d ms
+                    Delivery latency p50 %d ms, p95 %d ms, p99 %d ms, max %d ms""".formatted(
+                    delivered, services, elapsed.toMillis(), throughputPerSecond(),
+                    uploads, failedUploads, retries, maxAttempts,
+                    uploadLatency.get(0).toMillis(), uploadLatency.get(1).toMillis(),
+                    uploadLatency.get(2).toMillis(), uploadLatency.get(3).toMillis(),
+                    deliveryLatency.get(0).toMillis(), deliveryLatency.get(1).toMillis(),
+                    deliveryLatency.get(2).toMillis(), deliveryLatency.get(3).toMillis());
+        }
+    }
+
+    Report run(Settings settings, Path spoolDirectory) throws InterruptedException {
+        WireMockServer archrepo = new WireMockServer(wireMockConfig()
+                .dynamicPort()
+                .http2PlainDisabled(true)
+                .containerThreads(Math.max(50, settings.services() / 2))
+                .asynchronousResponseEnabled(true)
+                .disableRequestJournal()
+                .extensions(new ErrorInjector(settings.archrepoErrorRate())));
+        archrepo.start();
+        archrepo.stubFor(post(urlEqualTo(DB_SCHEMAS_PATH)).willReturn(aResponse()
+                .withStatus(201)
+                .withLogNormalRandomDelay(Math.max(1, settings.archrepoLatency().toMillis()), 0.5)));
+
+        SyntheticCatalog catalog = new SyntheticCatalog(SyntheticSchema.of(settings.tables()), settings.catalogLatency());
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build());
+        Random random = new Random(0);
+        CountDownLatch deliveries = new CountDownLatch(settings.services());
+        ConcurrentLinkedQueue<Duration> uploadLatencies = new ConcurrentLinkedQueue<>();
+        List<Service> services = new ArrayList<>();
+        try {
+            for (int i = 0; i < settings.services(); i++) {
+                String name = "service-%04d".formatted(i);
+                Service service = new Service(name, deliveries, uploadLatencies);
+                ArchitectureRepositoryService client = HttpServiceProxyFactory
+                        .builderFor(RestClientAdapter.create(RestClient.builder()
+                                .requestFactory(requestFactory)
+                                .baseUrl(archrepo.baseUrl())
+                                .requestInterceptor(service)
+                                .build()))
+                        .build()
+                        .createClient(ArchitectureRepositoryService.class);
+                ArchRepoProperties properties = new ArchRepoProperties();
+                properties.getDatabase().setSchemaName(SyntheticSchema.DEFAULT_SCHEMA_NAME);
+                properties.getSpool().setDirectory(spoolDirectory);
+                properties.getSpool().setInitialBackoff(settings.initialBackoff());
+                properties.getSpool().setMaxBackoff(settings.initialBackoff().multipliedBy(16));
+                SimpleAsyncTaskScheduler spoolScheduler = new SimpleAsyncTaskScheduler();
+                spoolScheduler.setVirtualThreads(true);
+                service.spool = new PublicationSpool(name, properties.getSpool(), client, spoolScheduler);
+                service.publisher = new DbSchemaPublisher(name, properties, client, catalog.dataSource(),
+                        new DatabaseModelReader(), new AppVersionProvider(null, null), new TracingTimer(null, null),
+                        service.spool, null, null, new PublicationStatistics());
+                service.startDelay = Duration.ofMillis(settings.startupJitter().isZero() ? 0 :
+                        random.nextLong(settings.startupJitter().toMillis()));
+                services.add(service);
+            }
+
+            long firstStart = System.nanoTime();
+            for (Service service : services) {
+                Thread.ofVirtual().start(service::start);
+            }
+            if (!deliveries.await(settings.timeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("{} of {} schemas not delivered within {}", deliveries.getCount(), settings.services(), settings.timeout());
+            }
+            long lastDelivery = services.stream().mapToLong(service -> service.deliveredAt).max().orElse(firstStart);
+
+            List<Duration> deliveryLatencies = services.stream()
+                    .filter(service -> service.deliveredAt != 0)
+                    .map(service -> Duration.ofNanos(service.deliveredAt - service.startedAt))
+                    .toList();
+            int uploads = services.stream().mapToInt(service -> service.attempts.get()).sum();
+            int delivered = deliveryLatencies.size();
+            return new Report(settings.services(), delivered, uploads,
+                    services.stream().mapToInt(service -> service.failures.get()).sum(),
+                    uploads - (int) services.stream().filter(service -> service.attempts.get() > 0).count(),
+                    services.stream().mapToInt(service -> service.attempts.get()).max().orElse(0),
+                    Duration.ofNanos(Math.max(0, lastDelivery - firstStart)),
+                    percentiles(new ArrayList<>(uploadLatencies)), percentiles(deliveryLatencies));
+        } finally {
+            services.forEach(service -> service.spool.close());
+            archrepo.stop();
+        }
+    }
+
+    private static List<Duration> percentiles(List<Duration> durations) {
+        if (durations.isEmpty()) {
+            return List.of(Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+        }
+        List<Duration> sorted = durations.stream().sorted().toList();
+        return List.of(percentile(sorted, 0.5), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted.getLast());
+    }
+
+    private static Duration percentile(List<Duration> sorted, double percentile) {
+        return sorted.get((int) Math.ceil(percentile * sorted.size()) - 1);
+    }
+
+    /**
+     * One simulated service, recording its upload attempts as interceptor of its archrepo client
+     */
+    private static class Service implements ClientHttpRequestInterceptor {
+
+        private final String name;
+        private final CountDownLatch deliveries;
+        private final ConcurrentLinkedQueue<Duration> uploadLatencies;
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private DbSchemaPublisher publisher;
+        private PublicationSpool spool;
+        private Duration startDelay;
+        private volatile long startedAt;
+        private volatile long deliveredAt;
+
+        private Service(String name, CountDownLatch deliveries, ConcurrentLinkedQueue<Duration> uploadLatencies) {
+            this.name = name;
+            this.deliveries = deliveries;
+            this.uploadLatencies = uploadLatencies;
+        }
+
+        void start() {
+            try {
+                Thread.sleep(startDelay);
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            startedAt = System.nanoTime();
+            // Failures are spooled and retried, the failed future only reports the first attempt
+            publisher.publishDatabaseSchemaAsync();
+        }
+
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+            attempts.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                long end = System.nanoTime();
+                uploadLatencies.add(Duration.ofNanos(end - start));
+                if (response.getStatusCode().is2xxSuccessful()) {
+                    deliveredAt = end;
+                    deliveries.countDown();
+                } else {
+                    failures.incrementAndGet();
+                }
+                return response;
+            } catch (IOException ex) {
+                uploadLatencies.add(Duration.ofNanos(System.nanoTime() - start));
+                failures.incrementAndGet();
+                log.debug("Upload of {} failed", name, ex);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Fails the given share of the requests with HTTP 503, keeping the delay of the stubbed response
+     */
+    private static class ErrorInjector implements ResponseDefinitionTransformerV2 {
+
+        private final double errorRate;
+        private final Random random = new Random(0);
+
+        private ErrorInjector(double errorRate) {
+            this.errorRate = errorRate;
+        }
+
+        @Override
+        public ResponseDefinition transform(ServeEvent serveEvent) {
+            ResponseDefinition responseDefinition = serveEvent.getResponseDefinition();
+            if (random.nextDouble() >= errorRate) {
+                return responseDefinition;
+            }
+            return ResponseDefinitionBuilder.like(responseDefinition).but()
+                    .withStatus(503)
+                    .withBody("Injected failure")
+                    .build();
+        }
+
+        @Override
+        public String getName() {
+            return "error-injector";
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticCatalog;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Scope;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.security.oauth2.client.InMemoryOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.web.client.RestClient;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LazyPublisherInfrastructureTest {
+
+    private static final String[] PROPERTIES = {
+            "spring.application.name=test-app",
+            "service.table-count=3",
+            "jeap.archrepo.url=http://localhost:1/archrepo",
+            "jeap.archrepo.database.schema-name=" + SyntheticSchema.DEFAULT_SCHEMA_NAME};
+
+    private final List<String> restClientBuilderThreads = new CopyOnWriteArrayList<>();
+
+    @Test
+    void refresh_thenCreatesArchrepoClientOnFirstPublicationOnPublisherThread() {
+        contextRunner().run(context -> {
+            assertThat(context).hasNotFailed();
+            assertThat(restClientBuilderThreads).isEmpty();
+
+            // Fails to obtain a token, but only after the client has been created
+            DbSchemaPublisher publisher = context.getBean(DbSchemaPublisher.class);
+            assertThatThrownBy(() -> publisher.publishDatabaseSchemaAsync().get(10, TimeUnit.SECONDS));
+            assertThatThrownBy(() -> publisher.publishDatabaseSchemaAsync().get(10, TimeUnit.SECONDS));
+
+            assertThat(restClientBuilderThreads).singleElement().isNotEqualTo(Thread.currentThread().getName());
+        });
+    }
+
+    @Test
+    void refresh_whenClientRegistrationMissing_thenFailsOnStartup() {
+        contextRunner()
+                .withPropertyValues("jeap.archrepo.oauth-client=unknown-client")
+                .run(context -> assertThat(context).getFailure()
+                        .rootCause()
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessageStartingWith("No OAuth2 client registration found with id: unknown-client"));
+    }
+
+    @Test
+    void refresh_whenUrlNotAbsolute_thenFailsOnStartup() {
+        contextRunner()
+                .withPropertyValues("jeap.archrepo.url=/archrepo")
+                .run(context -> assertThat(context).getFailure()
+                        .rootCause()
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessage("The archrepo URL at jeap.archrepo.url must be absolute: /archrepo"));
+    }
+
+    /**
+     * Times the creation of the starter's beans during a refresh, without the beans of the application they depend on.
+     * Takes the fastest of several refreshes, once the classes are loaded: the cold startup including class loading is
+     * measured by the {@code ContextStartupBenchmark}.
+     */
+    @Test
+    void refresh_createsStarterBeansInAFewMilliseconds() {
+        Duration fastest = Duration.ofDays(1);
+        for (int i = 0; i < 50; i++) {
+            Duration starterBeanCreationTime = starterBeanCreationTime();
+            fastest = fastest.compareTo(starterBeanCreationTime) <= 0 ? fastest : starterBeanCreationTime;
+        }
+
+        assertThat(fastest).isLessThan(Duration.ofMillis(20));
+        assertThat(restClientBuilderThreads).isEmpty();
+    }
+
+    private Duration starterBeanCreationTime() {
+        BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(1_000);
+        List<String> starterBeanNames;
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.setApplicationStartup(applicationStartup);
+            TestPropertyValues.of(PROPERTIES).applyTo(context);
+            context.registerBean(RestClientBuilderFactory.class, () -> new RestClientBuilderFactory(restClientBuilderThreads));
+            context.register(ServiceConfiguration.class, StarterConfiguration.class);
+            context.refresh();
+            starterBeanNames = Arrays.stream(context.getBeanDefinitionNames())
+                    .filter(beanName -> isStarterBean(context.getBeanFactory().getBeanDefinition(beanName)))
+                    .toList();
+        }
+
+        // The time of a step includes the steps of the beans it depends on, which are subtracted
+        List<StartupTimeline.TimelineEvent> instantiations = applicationStartup.getBufferedTimeline().getEvents().stream()
+                .filter(event -> event.getStartupStep().getName().equals("spring.beans.instantiate"))
+                .toList();
+        Map<Long, Duration> dependencyTimes = instantiations.stream()
+                .filter(event -> event.getStartupStep().getParentId() != null)
+                .collect(Collectors.toMap(event -> event.getStartupStep().getParentId(), StartupTimeline.TimelineEvent::getDuration, Duration::plus));
+        return instantiations.stream()
+                .filter(event -> starterBeanNames.contains(beanName(event)))
+                .map(event -> event.getDuration().minus(dependencyTimes.getOrDefault(event.getStartupStep().getId(), Duration.ZERO)))
+                .reduce(Duration.ZERO, Duration::plus);
+    }
+
+    private static boolean isStarterBean(BeanDefinition beanDefinition) {
+        if (beanDefinition instanceof AnnotatedBeanDefinition annotated && annotated.getFactoryMethodMetadata() != null) {
+            return annotated.getFactoryMethodMetadata().getDeclaringClassName().startsWith(DbSchemaPublisherAutoConfiguration.class.getName());
+        }
+        return ArchRepoProperties.class.getName().equals(beanDefinition.getBeanClassName());
+    }
+
+    private static String beanName(StartupTimeline.TimelineEvent event) {
+        for (StartupStep.Tag tag : event.getStartupStep().getTags()) {
+            if (tag.getKey().equals("beanName")) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+
+    private ApplicationContextRunner contextRunner() {
+        return new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(DbSchemaPublisherAutoConfiguration.class))
+                .withBean(RestClientBuilderFactory.class, () -> new RestClientBuilderFactory(restClientBuilderThreads))
+                .withUserConfiguration(ServiceConfiguration.class)
+                .withPropertyValues(PROPERTIES);
+    }
+
+    /**
+     * Records the threads on which the {@code RestClient.Builder} of the application is requested.
+     */
+    record RestClientBuilderFactory(List<String> threads) {
+
+        RestClient.Builder create() {
+            threads.add(Thread.currentThread().getName());
+            return RestClient.builder();
+        }
+    }
+
+    /**
+     * Bound before the properties of the starter, like the configuration properties of Spring Boot in an application.
+     * The first binding in a context sets up the binder, which would otherwise be attributed to the starter.
+     */
+    @ConfigurationProperties("service")
+    record ServiceProperties(int tableCount) {
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableConfigurationProperties(ServiceProperties.class)
+    static class ServiceConfiguration {
+
+        @Bean
+        DataSource dataSource(ServiceProperties serviceProperties) {
+            return new SyntheticCatalog(SyntheticSchema.of(serviceProperties.tableCount())).dataSource();
+        }
+
+        @Bean
+        ClientRegistrationRepository clientRegistrationRepository() {
+            return new InMemoryClientRegistrationRepository(ClientRegistration.withRegistrationId("archrepo-client")
+                    .clientId("test-app")
+                    .clientSecret("secret")
+                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                    .tokenUri("http://localhost:1/oauth/token")
+                    .build());
+        }
+
+        @Bean
+        OAuth2AuthorizedClientService authorizedClientService(ClientRegistrationRepository clientRegistrationRepository) {
+            return new InMemoryOAuth2AuthorizedClientService(clientRegistrationRepository);
+        }
+
+        // Prototype like the builder of Spring Boot
+        @Bean
+        @Scope("prototype")
+        RestClient.Builder restClientBuilder(RestClientBuilderFactory factory) {
+            return factory.create();
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @Import(DbSchemaPublisherAutoConfiguration.class)
+    static class StarterConfiguration {
+    }
+}
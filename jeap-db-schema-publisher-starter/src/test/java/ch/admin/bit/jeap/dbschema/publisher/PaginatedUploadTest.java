@@ -0,0 +1,289 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.BeginDbSchemaUploadDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.DbSchemaUploadDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.DbSchemaUploadPageDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.DbSchemaUploadService;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.support.RestClientAdapter;
+import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+
+import java.net.http.HttpClient;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.deleteRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.putRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaginatedUploadTest {
+
+    private static final String DB_SCHEMAS_PATH = "/api/dbschemas";
+    private static final String UPLOADS_PATH = "/api/dbschemas/uploads";
+    private static final String UPLOAD_PATH = UPLOADS_PATH + "/upload-1";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PublicationStatistics statistics =
+            new PublicationStatistics(new PublicationMetrics(meterRegistry), null, Clock.systemUTC());
+    private final ArchRepoProperties.UploadProperties properties = new ArchRepoProperties.UploadProperties();
+    private final DatabaseSchema schema = new DatabaseSchema(SyntheticSchema.DEFAULT_SCHEMA_NAME, "1.0",
+            SyntheticSchema.of(10).tables());
+    private WireMockServer archrepo;
+
+    @BeforeEach
+    void startArchrepo() {
+        archrepo = new WireMockServer(wireMockConfig().dynamicPort());
+        archrepo.start();
+        archrepo.stubFor(post(urlEqualTo(UPLOADS_PATH)).willReturn(okJson("{\"uploadId\":\"upload-1\"}")));
+        archrepo.stubFor(put(urlPathMatching(UPLOAD_PATH + "/pages/\\d+")).willReturn(aResponse().withStatus(204)));
+        archrepo.stubFor(post(urlEqualTo(UPLOAD_PATH + "/commit")).willReturn(aResponse().withStatus(204)));
+        archrepo.stubFor(delete(urlEqualTo(UPLOAD_PATH)).willReturn(aResponse().withStatus(204)));
+        properties.setPageSize(4);
+        properties.setPageRetryBackoff(Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    void stopArchrepo() {
+        archrepo.stop();
+    }
+
+    @Test
+    void publishDbSchema_whenMoreTablesThanPageSize_thenBeginsSendsPagesAndCommits() {
+        service().publishDbSchema(new CreateOrUpdateDbSchemaDto("test-app", schema));
+
+        archrepo.verify(postRequestedFor(urlEqualTo(UPLOADS_PATH)).withRequestBody(equalToJson("""
+                {"systemComponentName": "test-app", "schemaName": "data", "version": "1.0", "tableCount": 10, "pageCount": 3}""")));
+        archrepo.verify(putRequestedFor(urlEqualTo(UPLOAD_PATH + "/pages/0"))
+                .withHeader("Content-Type", containing("application/json"))
+                .withRequestBody(containing(tableName(0))).withRequestBody(containing(tableName(3))));
+        archrepo.verify(putRequestedFor(urlEqualTo(UPLOAD_PATH + "/pages/2"))
+                .withRequestBody(containing(tableName(8))).withRequestBody(containing(tableName(9))));
+        archrepo.verify(3, putRequestedFor(urlPathMatching(UPLOAD_PATH + "/pages/\\d+")));
+        archrepo.verify(1, postRequestedFor(urlEqualTo(UPLOAD_PATH + "/commit")));
+        archrepo.verify(0, postRequestedFor(urlEqualTo(DB_SCHEMAS_PATH)));
+    }
+
+    @Test
+    void publishDbSchema_whenPaginated_thenRecordsPagesOnRunOfPublication() {
+        statistics.started();
+        service().publishDbSchema(new CreateOrUpdateDbSchemaDto("test-app", schema));
+        statistics.completed(null);
+
+        long bytesSent = archrepo.getAllServeEvents().stream()
+                .mapToLong(event -> event.getRequest().getBody().length)
+                .sum();
+        PublicationStatistics.PublicationReport report = statistics.getLastPublication();
+        assertThat(report.payloadBytes()).isEqualTo(bytesSent);
+        assertThat(report.payloadFingerprint()).hasSize(64);
+        assertThat(report.phaseDurationsMillis()).containsKeys(PublicationStatistics.PHASE_SERIALIZATION,
+                PublicationStatistics.PHASE_UPLOAD);
+        assertThat(meterRegistry.get(PublicationMetrics.PAYLOAD_SUMMARY_NAME).summary().count()).isEqualTo(5);
+    }
+
+    @Test
+    void publishDbSchema_whenTablesFitInOnePage_thenPublishesWithSingleRequest() {
+        archrepo.stubFor(post(urlEqualTo(DB_SCHEMAS_PATH)).willReturn(aResponse().withStatus(201)));
+        properties.setPageSize(10);
+
+        service().publishDbSchema(new CreateOrUpdateDbSchemaDto("test-app", schema));
+
+        archrepo.verify(1, postRequestedFor(urlEqualTo(DB_SCHEMAS_PATH)));
+        archrepo.verify(0, postRequestedFor(urlEqualTo(UPLOADS_PATH)));
+    }
+
+    @Test
+    void publishDbSchema_whenPageFailsOnce_thenRetriesOnlyThatPage() {
+        archrepo.stubFor(put(urlEqualTo(UPLOAD_PATH + "/pages/1")).inScenario("page-1")
+                .whenScenarioStateIs(STARTED)
+                .willReturn(aResponse().withStatus(503))
+                .willSetStateTo("failed-once"));
+        archrepo.stubFor(put(urlEqualTo(UPLOAD_PATH + "/pages/1")).inScenario("page-1")
+                .whenScenarioStateIs("failed-once")
+                .willReturn(aResponse().withStatus(204)));
+
+        service().publishDbSchema(new CreateOrUpdateDbSchemaDto("test-app", schema));
+
+        archrepo.verify(2, putRequestedFor(urlEqualTo(UPLOAD_PATH + "/pages/1")));
+        archrepo.verify(1, putRequestedFor(urlEqualTo(UPLOAD_PATH + "/pages/0")));
+        archrepo.verify(1, putRequestedFor(urlEqualTo(UPLOAD_PATH + "/pages/2")));
+        archrepo.verify(1, postRequestedFor(urlEqualTo(UPLOAD_PATH + "/commit")));
+        assertThat(meterRegistry.get(PublicationMetrics.PAGE_RETRIES_COUNTER_NAME).counter().count()).isOne();
+    }
+
+    @Test
+    void publishDbSchema_whenPageKeepsFailing_thenAbortsUploadAndFails() {
+        archrepo.stubFor(put(urlEqualTo(UPLOAD_PATH + "/pages/1")).willReturn(aResponse().withStatus(500)));
+        properties.setPageAttempts(2);
+        CreateOrUpdateDbSchemaDto dto = new CreateOrUpdateDbSchemaDto("test-app", schema);
+
+        assertThatThrownBy(() -> service().publishDbSchema(dto))
+                .isInstanceOfSatisfying(HttpServerErrorException.class, ex ->
+                        assertThat(ex.getStatusCode().value()).isEqualTo(500));
+
+        archrepo.verify(2, putRequestedFor(urlEqualTo(UPLOAD_PATH + "/pages/1")));
+        archrepo.verify(1, deleteRequestedFor(urlEqualTo(UPLOAD_PATH)));
+        archrepo.verify(0, postRequestedFor(urlEqualTo(UPLOAD_PATH + "/commit")));
+    }
+
+    @Test
+    void publishDbSchema_whenCommitFailsOnce_thenRetriesOnlyCommit() {
+        archrepo.stubFor(post(urlEqualTo(UPLOAD_PATH + "/commit")).inScenario("commit")
+                .whenScenarioStateIs(STARTED)
+                .willReturn(aResponse().withStatus(503))
+                .willSetStateTo("failed-once"));
+        archrepo.stubFor(post(urlEqualTo(UPLOAD_PATH + "/commit")).inScenario("commit")
+                .whenScenarioStateIs("failed-once")
+                .willReturn(aResponse().withStatus(204)));
+
+        service().publishDbSchema(new CreateOrUpdateDbSchemaDto("test-app", schema));
+
+        archrepo.verify(2, postRequestedFor(urlEqualTo(UPLOAD_PATH + "/commit")));
+        archrepo.verify(3, putRequestedFor(urlPathMatching(UPLOAD_PATH + "/pages/\\d+")));
+        archrepo.verify(0, deleteRequestedFor(urlEqualTo(UPLOAD_PATH)));
+    }
+
+    @Test
+    void publishDbSchema_whenCommitKeepsFailing_thenAbortsUploadAndFails() {
+        archrepo.stubFor(post(urlEqualTo(UPLOAD_PATH + "/commit")).willReturn(aResponse().withStatus(503)));
+        properties.setPageAttempts(2);
+        CreateOrUpdateDbSchemaDto dto = new CreateOrUpdateDbSchemaDto("test-app", schema);
+
+        assertThatThrownBy(() -> service().publishDbSchema(dto))
+                .isInstanceOfSatisfying(HttpServerErrorException.class, ex ->
+                        assertThat(ex.getStatusCode().value()).isEqualTo(503));
+
+        archrepo.verify(2, postRequestedFor(urlEqualTo(UPLOAD_PATH + "/commit")));
+        archrepo.verify(1, deleteRequestedFor(urlEqualTo(UPLOAD_PATH)));
+    }
+
+    @Test
+    void publishDbSchema_whenPageRejected_thenDoesNotRetry() {
+        archrepo.stubFor(put(urlEqualTo(UPLOAD_PATH + "/pages/0")).willReturn(aResponse().withStatus(400)));
+        CreateOrUpdateDbSchemaDto dto = new CreateOrUpdateDbSchemaDto("test-app", schema);
+
+        assertThatThrownBy(() -> service().publishDbSchema(dto))
+                .isInstanceOfSatisfying(HttpClientErrorException.class, ex ->
+                        assertThat(ex.getStatusCode().value()).isEqualTo(400));
+
+        archrepo.verify(1, putRequestedFor(urlEqualTo(UPLOAD_PATH + "/pages/0")));
+        archrepo.verify(1, deleteRequestedFor(urlEqualTo(UPLOAD_PATH)));
+    }
+
+    @Test
+    void publishDbSchema_whenPageFailsWithoutResponse_thenDoesNotRetry() {
+        DbSchemaUploadService uploadService = mock(DbSchemaUploadService.class);
+        when(uploadService.beginUpload(any())).thenReturn(new DbSchemaUploadDto("upload-1"));
+        IllegalStateException failure = new IllegalStateException("Cannot serialize page");
+        doThrow(failure).when(uploadService).uploadPage(eq("upload-1"), anyInt(), any());
+        CreateOrUpdateDbSchemaDto dto = new CreateOrUpdateDbSchemaDto("test-app", schema);
+
+        try (PaginatedArchitectureRepositoryService service = new PaginatedArchitectureRepositoryService(
+                mock(ArchitectureRepositoryService.class), uploadService, properties, statistics)) {
+            assertThatThrownBy(() -> service.publishDbSchema(dto)).isSameAs(failure);
+        }
+
+        verify(uploadService).uploadPage(eq("upload-1"), eq(0), any());
+        verify(uploadService).abortUpload("upload-1");
+    }
+
+    @Test
+    void publishDbSchema_sendsAtMostPageConcurrencyPagesAtOnce() {
+        properties.setPageSize(1);
+        properties.setPageConcurrency(3);
+        ConcurrencyRecordingUploadService uploadService = new ConcurrencyRecordingUploadService();
+
+        try (PaginatedArchitectureRepositoryService service = new PaginatedArchitectureRepositoryService(
+                mock(ArchitectureRepositoryService.class), uploadService, properties, statistics)) {
+            service.publishDbSchema(new CreateOrUpdateDbSchemaDto("test-app", schema));
+        }
+
+        assertThat(uploadService.pages).hasValue(10);
+        assertThat(uploadService.maxConcurrentPages).hasValue(3);
+    }
+
+    private PaginatedArchitectureRepositoryService service() {
+        PublicationHttpPhaseRecorder phaseRecorder = new PublicationHttpPhaseRecorder(statistics, _ -> {
+        });
+        HttpServiceProxyFactory proxyFactory = HttpServiceProxyFactory
+                .builderFor(RestClientAdapter.create(RestClient.builder()
+                        .requestFactory(new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                                .version(HttpClient.Version.HTTP_1_1)
+                                .build()))
+                        .baseUrl(archrepo.baseUrl())
+                        .requestInitializer(phaseRecorder)
+                        .requestInterceptor(phaseRecorder)
+                        .build()))
+                .build();
+        return new PaginatedArchitectureRepositoryService(proxyFactory.createClient(ArchitectureRepositoryService.class),
+                proxyFactory.createClient(DbSchemaUploadService.class), properties, statistics);
+    }
+
+    private String tableName(int index) {
+        return "\"" + schema.tables().get(index).name() + "\"";
+    }
+
+    private static class ConcurrencyRecordingUploadService implements DbSchemaUploadService {
+
+        private final AtomicInteger pages = new AtomicInteger();
+        private final AtomicInteger concurrentPages = new AtomicInteger();
+        private final AtomicInteger maxConcurrentPages = new AtomicInteger();
+
+        @Override
+        public DbSchemaUploadDto beginUpload(BeginDbSchemaUploadDto dto) {
+            return new DbSchemaUploadDto("upload-1");
+        }
+
+        @Override
+        public void uploadPage(String uploadId, int pageNumber, DbSchemaUploadPageDto page) {
+            maxConcurrentPages.accumulateAndGet(concurrentPages.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            concurrentPages.decrementAndGet();
+            pages.incrementAndGet();
+        }
+
+        @Override
+        public void commitUpload(String uploadId) {
+        }
+
+        @Override
+        public void abortUpload(String uploadId) {
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticCatalog;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.support.RestClientAdapter;
+import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+
+import javax.sql.DataSource;
+import java.net.http.HttpClient;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PublicationCancellationTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PublicationStatistics statistics =
+            new PublicationStatistics(new PublicationMetrics(meterRegistry), null, Clock.systemUTC());
+    private final ArchitectureRepositoryService architectureRepositoryService = mock(ArchitectureRepositoryService.class);
+    private final ArchRepoProperties properties = new ArchRepoProperties();
+
+    @Test
+    void close_whenReadingCatalog_thenInterruptsReadAndRecordsCancellation() {
+        // 100 tables with 50 ms per catalog call take 15 s to read
+        SyntheticCatalog catalog = new SyntheticCatalog(SyntheticSchema.of(100), Duration.ofMillis(50));
+        DbSchemaPublisher publisher = publisher(catalog.dataSource());
+
+        CompletableFuture<Void> publication = publisher.publishDatabaseSchemaAsync();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> catalog.getCatalogCalls() > 0);
+        long startedClosing = System.nanoTime();
+        publisher.close();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - startedClosing)).isLessThan(properties.getShutdown().getGracePeriod());
+        assertThatThrownBy(() -> publication.get(1, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(CancellationException.class)
+                .hasRootCauseInstanceOf(InterruptedException.class);
+        verifyNoInteractions(architectureRepositoryService);
+        assertThat(statistics.getLastPublication().outcome()).isEqualTo(PublicationStatistics.OUTCOME_CANCELLED);
+        assertThat(meterRegistry.get("jeap-publish-database-schema").tag("status", "cancelled").timer().count()).isOne();
+        assertThat(meterRegistry.get(PublicationMetrics.CANCELLED_COUNTER_NAME).counter().count()).isOne();
+        assertThat(meterRegistry.find(PublicationMetrics.ERROR_COUNTER_NAME).counter()).isNull();
+    }
+
+    @Test
+    void close_whenUploading_thenAbortsHttpRequest() {
+        WireMockServer archrepo = new WireMockServer(wireMockConfig().dynamicPort());
+        archrepo.start();
+        try {
+            archrepo.stubFor(post(urlEqualTo("/api/dbschemas"))
+                    .willReturn(aResponse().withStatus(201).withFixedDelay(30_000)));
+            ArchitectureRepositoryService client = HttpServiceProxyFactory
+                    .builderFor(RestClientAdapter.create(RestClient.builder()
+                            .requestFactory(new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                                    .version(HttpClient.Version.HTTP_1_1)
+                                    .build()))
+                            .baseUrl(archrepo.baseUrl())
+                            .build()))
+                    .build()
+                    .createClient(ArchitectureRepositoryService.class);
+            properties.getDatabase().setSchemaName(SyntheticSchema.DEFAULT_SCHEMA_NAME);
+            DbSchemaPublisher publisher = new DbSchemaPublisher("test-app", properties, client,
+                    new SyntheticCatalog(SyntheticSchema.of(3)).dataSource(), new DatabaseModelReader(),
+                    new AppVersionProvider(null, null), new TracingTimer(null, meterRegistry), null, null, null, statistics);
+
+            CompletableFuture<Void> publication = publisher.publishDatabaseSchemaAsync();
+            await().atMost(5, TimeUnit.SECONDS).until(() -> !archrepo.getAllServeEvents().isEmpty());
+            publisher.close();
+
+            assertThatThrownBy(() -> publication.get(1, TimeUnit.SECONDS)).hasCauseInstanceOf(CancellationException.class);
+            assertThat(statistics.getLastPublication().outcome()).isEqualTo(PublicationStatistics.OUTCOME_CANCELLED);
+        } finally {
+            archrepo.stop();
+        }
+    }
+
+    @Test
+    void close_whenReadIgnoresInterrupt_thenAbortsConnectionAfterGracePeriod() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch aborted = new CountDownLatch(1);
+        Connection connection = mock(Connection.class);
+        when(connection.getMetaData()).thenAnswer(_ -> {
+            reading.countDown();
+            // Like a driver blocked in a socket read that does not react to interrupts
+            while (aborted.getCount() > 0) {
+                Thread.onSpinWait();
+            }
+            throw new SQLException("Connection aborted");
+        });
+        doAnswer(_ -> {
+            aborted.countDown();
+            return null;
+        }).when(connection).abort(any());
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        properties.getShutdown().setGracePeriod(Duration.ofMillis(200));
+        DbSchemaPublisher publisher = publisher(dataSource);
+
+        CompletableFuture<Void> publication = publisher.publishDatabaseSchemaAsync();
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+        long startedClosing = System.nanoTime();
+        publisher.close();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - startedClosing)).isLessThan(Duration.ofSeconds(2));
+        verify(connection).abort(any());
+        assertThatThrownBy(() -> publication.get(1, TimeUnit.SECONDS)).hasCauseInstanceOf(CancellationException.class);
+        verify(connection).close();
+    }
+
+    @Test
+    void publishDatabaseSchemaAsync_whenClosed_thenRejected() {
+        DbSchemaPublisher publisher = publisher(new SyntheticCatalog(SyntheticSchema.of(3)).dataSource());
+
+        publisher.close();
+
+        assertThatThrownBy(() -> publisher.publishDatabaseSchemaAsync().get(1, TimeUnit.SECONDS))
+                .isInstanceOf(CancellationException.class);
+        verifyNoInteractions(architectureRepositoryService);
+        assertThat(statistics.getLastPublication()).isNull();
+    }
+
+    private DbSchemaPublisher publisher(DataSource dataSource) {
+        return new DbSchemaPublisher("test-app", properties, architectureRepositoryService, dataSource,
+                new DatabaseModelReader(), new AppVersionProvider(null, null), new TracingTimer(null, meterRegistry),
+                null, null, null, statistics);
+    }
+}
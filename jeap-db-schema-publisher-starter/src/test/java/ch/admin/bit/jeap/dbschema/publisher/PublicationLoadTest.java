@@ -0,0 +1,52 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.publisher.FleetLoadHarness.Report;
+import ch.admin.bit.jeap.dbschema.publisher.FleetLoadHarness.Settings;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the {@link FleetLoadHarness}. A small fleet is simulated with every build, the full-scale run only when
+ * requested, e.g. with {@code -Dtest=PublicationLoadTest -Dloadtest.services=500}. See docs/load-test.md for all
+ * settings.
+ */
+@Slf4j
+class PublicationLoadTest {
+
+    @TempDir
+    Path spoolDirectory;
+
+    @Test
+    void smallFleet_deliversEverySchemaDespiteArchrepoErrors() throws InterruptedException {
+        Settings settings = new Settings(20, Duration.ofMillis(200), 50, Duration.ZERO,
+                Duration.ofMillis(20), 0.3, Duration.ofMillis(50), Duration.ofSeconds(30));
+
+        Report report = new FleetLoadHarness().run(settings, spoolDirectory);
+
+        log.info("Small fleet:\n{}", report);
+        assertThat(report.delivered()).isEqualTo(20);
+        assertThat(report.failedUploads()).isPositive();
+        // Every failed upload is retried until the schema is delivered
+        assertThat(report.retries()).isEqualTo(report.failedUploads());
+        assertThat(report.uploads()).isEqualTo(20 + report.retries());
+        assertThat(report.throughputPerSecond()).isPositive();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest.services", matches = "\\d+")
+    void fleet() throws InterruptedException {
+        Settings settings = Settings.fromSystemProperties();
+
+        Report report = new FleetLoadHarness().run(settings, spoolDirectory);
+
+        log.info("{}\n{}", settings, report);
+        assertThat(report.delivered()).isEqualTo(settings.services());
+    }
+}
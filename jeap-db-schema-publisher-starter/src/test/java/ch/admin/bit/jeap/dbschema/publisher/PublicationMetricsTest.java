@@ -0,0 +1,85 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class PublicationMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PublicationStatistics statistics =
+            new PublicationStatistics(new PublicationMetrics(meterRegistry), null, Clock.systemUTC());
+
+    @Test
+    void phaseRecorder_recordsTokenFetchSerializationUploadAndPayload() {
+        PublicationHttpPhaseRecorder recorder = new PublicationHttpPhaseRecorder(statistics,
+                request -> request.getHeaders().setBearerAuth("token"));
+        RestClient.Builder builder = RestClient.builder()
+                .requestInitializer(recorder)
+                .requestInterceptor(recorder);
+        MockRestServiceServer server = MockRestServiceServer.bindTo(builder).build();
+        server.expect(header("Authorization", "Bearer token")).andRespond(withSuccess());
+
+        statistics.started();
+        builder.build().post()
+                .uri("http://archrepo/api/dbschemas")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("name", "users"))
+                .retrieve()
+                .toBodilessEntity();
+        statistics.completed(null);
+
+        server.verify();
+        for (String phase : new String[]{PublicationStatistics.PHASE_TOKEN_FETCH,
+                PublicationStatistics.PHASE_SERIALIZATION, PublicationStatistics.PHASE_UPLOAD}) {
+            assertThat(meterRegistry.get(PublicationMetrics.PHASE_TIMER_NAME)
+                    .tag(PublicationMetrics.TAG_PHASE, phase).timer().count()).isOne();
+        }
+        assertThat(meterRegistry.get(PublicationMetrics.PAYLOAD_SUMMARY_NAME).summary().totalAmount())
+                .isEqualTo("{\"name\":\"users\"}".length());
+        assertThat(statistics.getLastPublication().phaseDurationsMillis()).containsOnlyKeys(
+                PublicationStatistics.PHASE_TOKEN_FETCH, PublicationStatistics.PHASE_SERIALIZATION,
+                PublicationStatistics.PHASE_UPLOAD);
+        assertThat(statistics.getLastPublication().payloadFingerprint()).hasSize(64);
+    }
+
+    @Test
+    void schemaRead_recordsTableAndColumnCounts() {
+        statistics.schemaRead("data", 3, 12);
+
+        assertThat(meterRegistry.get(PublicationMetrics.TABLES_SUMMARY_NAME).summary().totalAmount()).isEqualTo(3);
+        assertThat(meterRegistry.get(PublicationMetrics.COLUMNS_SUMMARY_NAME).summary().totalAmount()).isEqualTo(12);
+    }
+
+    @Test
+    void completed_whenFailed_thenCountsErrorByExceptionClass() {
+        statistics.started();
+        statistics.completed(new SQLException("connection refused"));
+        statistics.phaseCompleted(PublicationStatistics.PHASE_CATALOG_READ, Duration.ofMillis(1));
+
+        assertThat(meterRegistry.get(PublicationMetrics.ERROR_COUNTER_NAME)
+                .tag(PublicationMetrics.TAG_EXCEPTION, "SQLException").counter().count()).isOne();
+    }
+
+    @Test
+    void withoutMeterRegistry_thenRecordsNothing() {
+        PublicationStatistics withoutMetrics = new PublicationStatistics();
+
+        withoutMetrics.started();
+        withoutMetrics.schemaRead("data", 1, 1);
+        withoutMetrics.completed(new IllegalStateException());
+
+        assertThat(withoutMetrics.getLastPublication().outcome()).isEqualTo(PublicationStatistics.OUTCOME_ERROR);
+    }
+}
@@ -0,0 +1,54 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PublicationRateLimiterTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void tryAcquire_whenBurstExhausted_thenReportsTimeUntilNextPermit() {
+        PublicationRateLimiter limiter = new PublicationRateLimiter(60, 2, clock::get);
+
+        assertThat(limiter.tryAcquire()).isZero();
+        assertThat(limiter.tryAcquire()).isZero();
+        assertThat(limiter.tryAcquire()).isEqualTo(SECOND);
+    }
+
+    @Test
+    void tryAcquire_whenTimePassed_thenRefillsUpToBurst() {
+        PublicationRateLimiter limiter = new PublicationRateLimiter(60, 2, clock::get);
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        clock.addAndGet(SECOND / 2);
+        assertThat(limiter.tryAcquire()).isEqualTo(SECOND / 2);
+
+        clock.addAndGet(10 * SECOND);
+        assertThat(limiter.tryAcquire()).isZero();
+        assertThat(limiter.tryAcquire()).isZero();
+        assertThat(limiter.tryAcquire()).isPositive();
+    }
+
+    @Test
+    void shared_whenSameLimits_thenReturnsSameLimiter() {
+        ArchRepoProperties.RateLimitProperties properties = new ArchRepoProperties.RateLimitProperties();
+        properties.setPublicationsPerMinute(30);
+
+        assertThat(PublicationRateLimiter.shared(properties)).isSameAs(PublicationRateLimiter.shared(properties));
+    }
+
+    @Test
+    void constructor_whenRateNotPositive_thenFails() {
+        assertThatThrownBy(() -> new PublicationRateLimiter(0, 1, clock::get))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
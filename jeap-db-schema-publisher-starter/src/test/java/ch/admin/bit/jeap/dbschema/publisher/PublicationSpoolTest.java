@@ -0,0 +1,172 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PublicationSpoolTest {
+
+    private static final String APP_NAME = "test-app";
+
+    @TempDir
+    private Path spoolDirectory;
+
+    private ArchitectureRepositoryService architectureRepositoryService;
+    private TaskScheduler taskScheduler;
+    private PublicationSpool spool;
+
+    @BeforeEach
+    void setUp() {
+        architectureRepositoryService = mock(ArchitectureRepositoryService.class);
+        taskScheduler = mock(TaskScheduler.class);
+        ArchRepoProperties.SpoolProperties properties = new ArchRepoProperties.SpoolProperties();
+        properties.setDirectory(spoolDirectory);
+        properties.setInitialBackoff(Duration.ofSeconds(10));
+        properties.setMaxBackoff(Duration.ofSeconds(30));
+        spool = new PublicationSpool(APP_NAME, properties, architectureRepositoryService, taskScheduler);
+    }
+
+    @Test
+    void publish_whenUploadFails_thenSpoolsPayloadAndSchedulesDrain() {
+        doThrow(new IllegalStateException("unavailable")).when(architectureRepositoryService).publishDbSchema(any());
+
+        assertThatThrownBy(() -> spool.publish(dto("1.0.0", "first")))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(spool.pendingFiles()).singleElement()
+                .satisfies(file -> assertThat(file.getFileName().toString()).startsWith("1.0.0-").endsWith(".json.gz"));
+        verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    void publish_whenSamePayloadFailsTwice_thenStoresItOnce() {
+        doThrow(new IllegalStateException("unavailable")).when(architectureRepositoryService).publishDbSchema(any());
+
+        assertThatThrownBy(() -> spool.publish(dto("1.0.0", "first")));
+        Path spooled = spool.pendingFiles().getFirst();
+        assertThatThrownBy(() -> spool.publish(dto("1.0.0", "first")));
+
+        assertThat(spool.pendingFiles()).containsExactly(spooled);
+    }
+
+    @Test
+    void publish_whenNewerPayloadFails_thenKeepsOnlyNewest() {
+        doThrow(new IllegalStateException("unavailable")).when(architectureRepositoryService).publishDbSchema(any());
+
+        assertThatThrownBy(() -> spool.publish(dto("1.0.0", "first")));
+        assertThatThrownBy(() -> spool.publish(dto("1.1.0", "second")));
+
+        assertThat(spool.pendingFiles()).singleElement()
+                .satisfies(file -> assertThat(file.getFileName().toString()).startsWith("1.1.0-"));
+    }
+
+    @Test
+    void publish_whenUploadSucceeds_thenDiscardsPendingPayload() {
+        doThrow(new IllegalStateException("unavailable")).doNothing()
+                .when(architectureRepositoryService).publishDbSchema(any());
+
+        assertThatThrownBy(() -> spool.publish(dto("1.0.0", "first")));
+        spool.publish(dto("1.1.0", "second"));
+
+        assertThat(spool.pendingFiles()).isEmpty();
+    }
+
+    @Test
+    void drain_whenUploadSucceeds_thenPublishesSpooledPayloadAndRemovesIt() {
+        CreateOrUpdateDbSchemaDto dto = dto("1.0.0", "first");
+        doThrow(new IllegalStateException("unavailable")).doNothing()
+                .when(architectureRepositoryService).publishDbSchema(any());
+        assertThatThrownBy(() -> spool.publish(dto));
+
+        spool.drain();
+
+        verify(architectureRepositoryService, times(2)).publishDbSchema(dto);
+        assertThat(spool.pendingFiles()).isEmpty();
+    }
+
+    @Test
+    void drain_whenUploadFails_thenKeepsPayloadAndRetriesWithGrowingBackoff() {
+        doThrow(new IllegalStateException("unavailable")).when(architectureRepositoryService).publishDbSchema(any());
+        Instant start = Instant.now();
+        assertThatThrownBy(() -> spool.publish(dto("1.0.0", "first")));
+
+        spool.drain();
+        spool.drain();
+        spool.drain();
+
+        assertThat(spool.pendingFiles()).hasSize(1);
+        var retryTimes = ArgumentCaptor.forClass(Instant.class);
+        verify(taskScheduler, times(4)).schedule(any(Runnable.class), retryTimes.capture());
+        List<Duration> delays = retryTimes.getAllValues().stream()
+                .map(retryTime -> Duration.between(start, retryTime).truncatedTo(ChronoUnit.SECONDS))
+                .toList();
+        assertThat(delays).containsExactly(
+                Duration.ofSeconds(10), Duration.ofSeconds(20), Duration.ofSeconds(30), Duration.ofSeconds(30));
+    }
+
+    @Test
+    void drain_whenSpooledFileCorrupt_thenSetsItAsideWithoutRetrying() throws IOException {
+        Path componentDirectory = Files.createDirectories(spoolDirectory.resolve(APP_NAME));
+        Files.write(componentDirectory.resolve("1.0.0-0123456789abcdef.json.gz"), new byte[]{1, 2, 3});
+
+        spool.drain();
+
+        assertThat(spool.pendingFiles()).isEmpty();
+        assertThat(componentDirectory.resolve("1.0.0-0123456789abcdef.json.gz.failed")).exists();
+        verifyNoInteractions(architectureRepositoryService, taskScheduler);
+    }
+
+    @Test
+    void drain_whenArchrepoRejectsPayload_thenSetsItAsideWithoutRetrying() {
+        doThrow(new IllegalStateException("unavailable"))
+                .doThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST))
+                .when(architectureRepositoryService).publishDbSchema(any());
+        assertThatThrownBy(() -> spool.publish(dto("1.0.0", "first")));
+        Path spooled = spool.pendingFiles().getFirst();
+
+        spool.drain();
+
+        assertThat(spool.pendingFiles()).isEmpty();
+        assertThat(spooled.resolveSibling(spooled.getFileName() + ".failed")).exists();
+        verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    void publish_whenArchrepoRejectsPayload_thenDoesNotSpoolIt() {
+        doThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST)).when(architectureRepositoryService).publishDbSchema(any());
+
+        assertThatThrownBy(() -> spool.publish(dto("1.0.0", "first")))
+                .isInstanceOf(HttpClientErrorException.class);
+
+        assertThat(spool.pendingFiles()).isEmpty();
+        verifyNoInteractions(taskScheduler);
+    }
+
+    private static CreateOrUpdateDbSchemaDto dto(String version, String tableName) {
+        TableColumn column = new TableColumn("id", "BIGINT", false);
+        Table table = new Table(tableName, List.of(column), List.of(), null);
+        return new CreateOrUpdateDbSchemaDto(APP_NAME, new DatabaseSchema("data", version, List.of(table)));
+    }
+}
@@ -0,0 +1,182 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.reader.CatalogCall;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.web.client.RestClient;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PublicationTracingTest {
+
+    private Tracer tracer;
+    private Span parentSpan;
+    private Span phaseSpan;
+    private Tracer.SpanInScope phaseSpanInScope;
+    private PublicationStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        tracer = mock(Tracer.class);
+        parentSpan = mock(Span.class, RETURNS_SELF);
+        phaseSpan = mock(Span.class, RETURNS_SELF);
+        phaseSpanInScope = mock(Tracer.SpanInScope.class);
+        when(tracer.currentSpan()).thenReturn(parentSpan);
+        when(tracer.nextSpan()).thenReturn(phaseSpan);
+        when(tracer.withSpan(phaseSpan)).thenReturn(phaseSpanInScope);
+        statistics = new PublicationStatistics(new PublicationMetrics(null), tracer, Clock.systemUTC());
+    }
+
+    @Test
+    void inPhase_whenTraced_thenRunsActionInChildSpan() {
+        String result = statistics.inPhase(PublicationStatistics.PHASE_CONNECTION_ACQUISITION, () -> "connection");
+
+        assertThat(result).isEqualTo("connection");
+        InOrder inOrder = inOrder(phaseSpan, phaseSpanInScope);
+        inOrder.verify(phaseSpan).name("publish-db-schema-connection-acquisition");
+        inOrder.verify(phaseSpan).start();
+        inOrder.verify(phaseSpanInScope).close();
+        inOrder.verify(phaseSpan).end();
+        verify(phaseSpan, never()).error(any());
+    }
+
+    @Test
+    void inPhase_whenActionFails_thenMarksSpanAsErrorAndRethrows() {
+        SQLException failure = new SQLException("connection refused");
+
+        assertThatThrownBy(() -> statistics.inPhase(PublicationStatistics.PHASE_CONNECTION_ACQUISITION, () -> {
+            throw failure;
+        })).isSameAs(failure);
+
+        verify(phaseSpan).error(failure);
+        verify(phaseSpan).end();
+    }
+
+    @Test
+    void inPhase_whenNotTraced_thenCreatesNoSpan() {
+        when(tracer.currentSpan()).thenReturn(null);
+
+        statistics.inPhase(PublicationStatistics.PHASE_UPLOAD, () -> null);
+
+        verify(tracer, never()).nextSpan();
+    }
+
+    @Test
+    void schemaReadAndPayloadSent_tagPublicationSpan() {
+        statistics.started();
+        statistics.schemaRead("data", 3, 12);
+        statistics.payloadSent(1024, "abc");
+
+        verify(parentSpan).tag(PublicationStatistics.ATTRIBUTE_SCHEMA_NAME, "data");
+        verify(parentSpan).tag(PublicationStatistics.ATTRIBUTE_TABLES, 3L);
+        verify(parentSpan).tag(PublicationStatistics.ATTRIBUTE_COLUMNS, 12L);
+        verify(parentSpan).tag(PublicationStatistics.ATTRIBUTE_PAYLOAD_BYTES, 1024L);
+    }
+
+    @Test
+    void payloadSent_whenRequestSpanIsCurrent_thenTagsPublicationSpanWithTotalBytes() {
+        Span requestSpan = mock(Span.class, RETURNS_SELF);
+        statistics.started();
+        when(tracer.currentSpan()).thenReturn(requestSpan);
+
+        statistics.payloadSent(1024, "abc");
+        statistics.payloadSent(512, "def");
+
+        verify(parentSpan).tag(PublicationStatistics.ATTRIBUTE_PAYLOAD_BYTES, 1536L);
+        verifyNoInteractions(requestSpan);
+    }
+
+    @Test
+    void phaseRecorder_whenSerializationFails_thenLeavesNoSpanOpen() {
+        PublicationHttpPhaseRecorder recorder = new PublicationHttpPhaseRecorder(statistics, _ -> {
+        });
+        RestClient restClient = RestClient.builder()
+                .requestInitializer(recorder)
+                .requestInterceptor(recorder)
+                .build();
+
+        assertThatThrownBy(() -> restClient.post()
+                .uri("http://archrepo/api/dbschemas")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new UnserializableSchema())
+                .retrieve()
+                .toBodilessEntity())
+                .isInstanceOf(HttpMessageNotWritableException.class);
+
+        // Only the token fetch has been started, and it has been ended
+        verify(tracer, times(1)).nextSpan();
+        verify(phaseSpan).end();
+        verify(tracer, never()).spanBuilder();
+    }
+
+    @Test
+    void tracingCatalogCallListener_createsSpanOnlyForLargeTables() {
+        Span.Builder spanBuilder = mock(Span.Builder.class, RETURNS_SELF);
+        Span tableSpan = mock(Span.class, RETURNS_SELF);
+        when(tracer.spanBuilder()).thenReturn(spanBuilder);
+        when(spanBuilder.start()).thenReturn(tableSpan);
+        when(parentSpan.context()).thenReturn(mock(TraceContext.class));
+        TracingCatalogCallListener listener = new TracingCatalogCallListener(tracer, 10, Clock.systemUTC());
+
+        listener.catalogCallCompleted(new CatalogCall("getColumns", "data", "small", Duration.ofMillis(1), 9, false));
+        listener.catalogCallCompleted(new CatalogCall("getPrimaryKeys", "data", "large", Duration.ofMillis(1), 10, false));
+        listener.catalogCallCompleted(new CatalogCall("getColumns", "data", "large", Duration.ofMillis(5), 10, false));
+
+        verify(spanBuilder, times(1)).start();
+        verify(spanBuilder).name(TracingCatalogCallListener.SPAN_NAME);
+        verify(tableSpan).tag(TracingCatalogCallListener.ATTRIBUTE_TABLE_NAME, "large");
+        verify(tableSpan).end(anyLong(), eq(TimeUnit.MICROSECONDS));
+    }
+
+    @Test
+    void publishDatabaseSchemaAsync_continuesObservationOfTrigger() throws SQLException {
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(_ -> true);
+        DatabaseModelReader databaseModelReader = mock(DatabaseModelReader.class);
+        AtomicReference<Observation> observationInPublisher = new AtomicReference<>();
+        when(databaseModelReader.readDatabaseModelFrom(any(), anyString(), anyString())).thenAnswer(_ -> {
+            observationInPublisher.set(observationRegistry.getCurrentObservation());
+            return new DatabaseSchema("data", "na", List.of());
+        });
+        DbSchemaPublisher publisher = new DbSchemaPublisher("test-app", new ArchRepoProperties(),
+                mock(ArchitectureRepositoryService.class), mock(DataSource.class), databaseModelReader,
+                new AppVersionProvider(null, null), new TracingTimer(null, null));
+
+        Observation trigger = Observation.start("trigger", observationRegistry);
+        try (Observation.Scope _ = trigger.openScope()) {
+            publisher.publishDatabaseSchemaAsync().join();
+        } finally {
+            trigger.stop();
+        }
+
+        assertThat(observationInPublisher.get()).isSameAs(trigger);
+    }
+
+    static class UnserializableSchema {
+        public String getName() {
+            throw new IllegalStateException("not serializable");
+        }
+    }
+}
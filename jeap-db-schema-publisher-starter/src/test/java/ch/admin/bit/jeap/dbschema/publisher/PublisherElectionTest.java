@@ -0,0 +1,176 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PublisherElectionTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:publisher-election;DB_CLOSE_DELAY=-1";
+    private static final String LOCK_NAME = "test-app:1.0.0";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ArchRepoProperties.ElectionProperties properties = new ArchRepoProperties.ElectionProperties();
+    private Connection replica1;
+    private Connection replica2;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        replica1 = DriverManager.getConnection(JDBC_URL);
+        replica2 = DriverManager.getConnection(JDBC_URL);
+        try (Statement statement = replica1.createStatement()) {
+            statement.execute("CREATE TABLE db_schema_publisher_lock " +
+                    "(lock_key VARCHAR(255) PRIMARY KEY, locked_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE TABLE db_schema_publisher_publication " +
+                    "(publication_key VARCHAR(255) PRIMARY KEY, fingerprint VARCHAR(64) NOT NULL, published_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(100))");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = replica1.createStatement()) {
+            statement.execute("DROP TABLE db_schema_publisher_lock");
+            statement.execute("DROP TABLE db_schema_publisher_publication");
+            statement.execute("DROP TABLE users");
+        }
+        replica1.close();
+        replica2.close();
+    }
+
+    @Test
+    void tryAcquire_whenLockHeldByOtherReplica_thenSkipsAndCountsNotLeader() throws SQLException {
+        PublisherElection election = new PublisherElection(properties, meterRegistry);
+
+        assertThat(election.tryAcquire(replica1, LOCK_NAME)).isTrue();
+        assertThat(election.tryAcquire(replica2, LOCK_NAME)).isFalse();
+
+        assertThat(meterRegistry.get(PublisherElection.SKIPPED_COUNTER_NAME)
+                .tag(PublisherElection.TAG_REASON, PublisherElection.REASON_NOT_LEADER)
+                .counter().count()).isOne();
+    }
+
+    @Test
+    void tryAcquire_whenLockReleased_thenAcquires() throws SQLException {
+        PublisherElection election = new PublisherElection(properties, meterRegistry);
+        election.tryAcquire(replica1, LOCK_NAME);
+
+        election.release(replica1, LOCK_NAME);
+
+        assertThat(election.tryAcquire(replica2, LOCK_NAME)).isTrue();
+    }
+
+    @Test
+    void tryAcquire_whenOtherVersionLocked_thenAcquires() throws SQLException {
+        PublisherElection election = new PublisherElection(properties, meterRegistry);
+        election.tryAcquire(replica1, LOCK_NAME);
+
+        assertThat(election.tryAcquire(replica2, "test-app:1.1.0")).isTrue();
+    }
+
+    @Test
+    void tryAcquire_whenLockAbandoned_thenTakesItOver() throws SQLException {
+        properties.setLockTimeout(Duration.ZERO);
+        PublisherElection election = new PublisherElection(properties, meterRegistry);
+        election.tryAcquire(replica1, LOCK_NAME);
+
+        assertThat(election.tryAcquire(replica2, LOCK_NAME)).isTrue();
+    }
+
+    @Test
+    void isPublished_whenSameFingerprintMarkedPublished_thenSkipsAndCountsAlreadyPublished() throws SQLException {
+        PublisherElection election = new PublisherElection(properties, meterRegistry);
+        assertThat(election.isPublished(replica1, LOCK_NAME, "fingerprint-1")).isFalse();
+
+        election.markPublished(replica1, LOCK_NAME, "fingerprint-1");
+
+        assertThat(election.isPublished(replica2, LOCK_NAME, "fingerprint-1")).isTrue();
+        assertThat(election.isPublished(replica2, LOCK_NAME, "fingerprint-2")).isFalse();
+        assertThat(election.isPublished(replica2, "test-app:1.1.0", "fingerprint-1")).isFalse();
+        assertThat(meterRegistry.get(PublisherElection.SKIPPED_COUNTER_NAME)
+                .tag(PublisherElection.TAG_REASON, PublisherElection.REASON_ALREADY_PUBLISHED)
+                .counter().count()).isOne();
+    }
+
+    @Test
+    void markPublished_whenSchemaChanged_thenRecordsNewFingerprint() throws SQLException {
+        PublisherElection election = new PublisherElection(properties, meterRegistry);
+        election.markPublished(replica1, LOCK_NAME, "fingerprint-1");
+
+        election.markPublished(replica1, LOCK_NAME, "fingerprint-2");
+
+        assertThat(election.isPublished(replica2, LOCK_NAME, "fingerprint-1")).isFalse();
+        assertThat(election.isPublished(replica2, LOCK_NAME, "fingerprint-2")).isTrue();
+    }
+
+    @Test
+    void publishDatabaseSchema_whenReplicasStartOneAfterTheOther_thenOnlyFirstUploads() throws SQLException {
+        ArchRepoProperties archRepoProperties = new ArchRepoProperties();
+        archRepoProperties.getDatabase().setSchemaName("PUBLIC");
+        ArchitectureRepositoryService architectureRepositoryService = mock(ArchitectureRepositoryService.class);
+        PublicationStatistics statistics = new PublicationStatistics();
+
+        replica(archRepoProperties, architectureRepositoryService, statistics).publishDatabaseSchema();
+        replica(archRepoProperties, architectureRepositoryService, statistics).publishDatabaseSchema();
+
+        verify(architectureRepositoryService, times(1)).publishDbSchema(any());
+        assertThat(meterRegistry.get(PublisherElection.SKIPPED_COUNTER_NAME)
+                .tag(PublisherElection.TAG_REASON, PublisherElection.REASON_ALREADY_PUBLISHED)
+                .counter().count()).isOne();
+
+        // The schema changed, e.g. by a migration of another job
+        try (Statement statement = replica1.createStatement()) {
+            statement.execute("ALTER TABLE users ADD COLUMN email VARCHAR(200)");
+        }
+        replica(archRepoProperties, architectureRepositoryService, statistics).publishDatabaseSchema();
+
+        verify(architectureRepositoryService, times(2)).publishDbSchema(any());
+    }
+
+    private DbSchemaPublisher replica(ArchRepoProperties archRepoProperties,
+                                      ArchitectureRepositoryService architectureRepositoryService,
+                                      PublicationStatistics statistics) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(JDBC_URL);
+        return new DbSchemaPublisher("test-app", archRepoProperties, architectureRepositoryService, dataSource,
+                new DatabaseModelReader(), new AppVersionProvider(null, null), new TracingTimer(null, null), null,
+                new PublisherElection(properties, meterRegistry), null, statistics);
+    }
+
+    @Test
+    void tryAcquire_whenPostgreSql_thenUsesAdvisoryLock() throws SQLException {
+        Connection connection = mock(Connection.class, RETURNS_DEEP_STUBS);
+        when(connection.getMetaData().getDatabaseProductName()).thenReturn("PostgreSQL");
+        PreparedStatement statement = mock(PreparedStatement.class, RETURNS_DEEP_STUBS);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery().next()).thenReturn(true);
+        when(statement.executeQuery().getBoolean(1)).thenReturn(false);
+        PublisherElection election = new PublisherElection(properties, meterRegistry);
+
+        assertThat(election.tryAcquire(connection, LOCK_NAME)).isFalse();
+
+        verify(connection).prepareStatement("SELECT pg_try_advisory_lock(?)");
+        verify(statement).setLong(1, PublisherElection.advisoryLockKey(LOCK_NAME));
+    }
+
+    @Test
+    void constructor_whenLockTableNameInvalid_thenFails() {
+        properties.setLockTable("locks; DROP TABLE users");
+
+        assertThatThrownBy(() -> new PublisherElection(properties, meterRegistry))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
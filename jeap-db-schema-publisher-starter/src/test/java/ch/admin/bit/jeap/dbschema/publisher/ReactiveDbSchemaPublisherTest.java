@@ -0,0 +1,270 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.ReactiveArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticCatalog;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.context.runner.ReactiveWebApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.security.oauth2.client.InMemoryOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.InMemoryReactiveOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.InMemoryReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.support.WebClientAdapter;
+import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+import org.springframework.web.servlet.DispatcherServlet;
+import reactor.core.scheduler.Schedulers;
+
+import javax.sql.DataSource;
+import java.net.http.HttpClient;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.random.RandomGenerator;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveDbSchemaPublisherTest {
+
+    private static final String DB_SCHEMAS_PATH = "/api/dbschemas";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ArchRepoProperties properties = new ArchRepoProperties();
+    private final SyntheticCatalog catalog = new SyntheticCatalog(SyntheticSchema.of(3));
+    private WireMockServer archrepo;
+
+    @BeforeEach
+    void startArchrepo() {
+        archrepo = new WireMockServer(wireMockConfig().dynamicPort());
+        archrepo.start();
+        properties.getDatabase().setSchemaName(SyntheticSchema.DEFAULT_SCHEMA_NAME);
+    }
+
+    @AfterEach
+    void stopArchrepo() {
+        archrepo.stop();
+    }
+
+    @Test
+    void publishDatabaseSchema_readsCatalogOnBoundedElasticSchedulerAndUploads() {
+        archrepo.stubFor(post(urlEqualTo(DB_SCHEMAS_PATH)).willReturn(aResponse().withStatus(201)));
+        AtomicReference<String> readingThread = new AtomicReference<>();
+        DatabaseModelReader databaseModelReader = new DatabaseModelReader() {
+            @Override
+            public DatabaseSchema readDatabaseModelFrom(Connection connection, String schemaName, String version) throws SQLException {
+                readingThread.set(Thread.currentThread().getName());
+                return super.readDatabaseModelFrom(connection, schemaName, version);
+            }
+        };
+
+        publisher(catalog.dataSource(), databaseModelReader).publishDatabaseSchema().block();
+
+        assertThat(readingThread.get()).startsWith("boundedElastic-");
+        archrepo.verify(postRequestedFor(urlEqualTo(DB_SCHEMAS_PATH))
+                .withHeader("Content-Type", containing("application/json"))
+                .withRequestBody(containing("\"systemComponentName\":\"test-app\""))
+                .withRequestBody(containing(catalog.getSchema().tables().get(2).name())));
+        assertThat(meterRegistry.get("jeap-publish-database-schema").tag("status", "success").timer().count()).isOne();
+        assertThat(meterRegistry.get(PublicationMetrics.TABLES_SUMMARY_NAME).summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void publishDatabaseSchema_whenUploadFails_thenFailsAndCountsError() {
+        archrepo.stubFor(post(urlEqualTo(DB_SCHEMAS_PATH)).willReturn(aResponse().withStatus(500)));
+        ReactiveDbSchemaPublisher publisher = publisher(catalog.dataSource(), new DatabaseModelReader());
+
+        assertThatThrownBy(() -> publisher.publishDatabaseSchema().block())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Failed to publish database schema");
+        assertThat(meterRegistry.get("jeap-publish-database-schema").tag("status", "error").timer().count()).isOne();
+        assertThat(meterRegistry.get(PublicationMetrics.ERROR_COUNTER_NAME).counter().count()).isOne();
+    }
+
+    @Test
+    void close_whenStartupPublicationUploading_thenCancelsIt() {
+        archrepo.stubFor(post(urlEqualTo(DB_SCHEMAS_PATH)).willReturn(aResponse().withStatus(201).withFixedDelay(30_000)));
+        ReactiveDbSchemaPublisher publisher = publisher(catalog.dataSource(), new DatabaseModelReader());
+
+        publisher.publishSchemaOnStartup();
+        // The ApplicationReadyEvent of a child context does not start another publication
+        publisher.publishSchemaOnStartup();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> !archrepo.getAllServeEvents().isEmpty());
+        publisher.close();
+
+        assertThat(meterRegistry.get("jeap-publish-database-schema").tag("status", "cancelled").timer().count()).isOne();
+        assertThat(meterRegistry.get(PublicationMetrics.CANCELLED_COUNTER_NAME).counter().count()).isOne();
+        archrepo.verify(1, postRequestedFor(urlEqualTo(DB_SCHEMAS_PATH)));
+    }
+
+    @Test
+    void close_whenStartupPublicationReadingCatalog_thenAbortsConnection() throws SQLException, InterruptedException {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch aborted = new CountDownLatch(1);
+        Connection connection = mock(Connection.class);
+        doAnswer(_ -> {
+            aborted.countDown();
+            return null;
+        }).when(connection).abort(any());
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        DatabaseModelReader databaseModelReader = new DatabaseModelReader() {
+            @Override
+            public DatabaseSchema readDatabaseModelFrom(Connection connection, String schemaName, String version) throws SQLException {
+                reading.countDown();
+                // Like JDBC socket I/O on a platform thread, ignores interrupts and only ends once the connection is aborted
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (aborted.getCount() > 0 && System.nanoTime() < deadline) {
+                    try {
+                        aborted.await(100, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException _) {
+                        // Not interruptible
+                    }
+                }
+                throw new SQLException("Connection aborted");
+            }
+        };
+        ReactiveDbSchemaPublisher publisher = publisher(dataSource, databaseModelReader);
+
+        publisher.publishSchemaOnStartup();
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+        publisher.close();
+
+        verify(connection, timeout(5_000)).abort(any());
+        assertThat(meterRegistry.get(PublicationMetrics.CANCELLED_COUNTER_NAME).counter().count()).isOne();
+        archrepo.verify(0, postRequestedFor(urlEqualTo(DB_SCHEMAS_PATH)));
+    }
+
+    @Test
+    void autoConfiguration_whenOnlyWebFluxPresent_thenPublishesReactively() {
+        reactiveContextRunner()
+                .withClassLoader(new FilteredClassLoader(DispatcherServlet.class))
+                .run(context -> {
+                    assertThat(context).hasSingleBean(ReactiveDbSchemaPublisher.class);
+                    assertThat(context).doesNotHaveBean(ArchitectureRepositoryService.class);
+                    assertThat(context).doesNotHaveBean(DbSchemaPublisher.class);
+                });
+    }
+
+    @Test
+    void autoConfiguration_whenNotReactiveWebApplication_thenDoesNotPublishReactively() {
+        contextRunner()
+                .withClassLoader(new FilteredClassLoader(DispatcherServlet.class))
+                .withBean(ClientRegistrationRepository.class, () -> new InMemoryClientRegistrationRepository(clientRegistration()))
+                .withBean(OAuth2AuthorizedClientService.class, () ->
+                        new InMemoryOAuth2AuthorizedClientService(new InMemoryClientRegistrationRepository(clientRegistration())))
+                .withBean(RestClient.Builder.class, RestClient::builder)
+                .run(context -> {
+                    assertThat(context).hasSingleBean(DbSchemaPublisher.class);
+                    assertThat(context).doesNotHaveBean(ReactiveDbSchemaPublisher.class);
+                });
+    }
+
+    @Test
+    void autoConfiguration_whenSpringMvcPresent_thenDoesNotPublishReactively() {
+        contextRunner()
+                .withBean(ClientRegistrationRepository.class, () -> new InMemoryClientRegistrationRepository(clientRegistration()))
+                .withBean(OAuth2AuthorizedClientService.class, () ->
+                        new InMemoryOAuth2AuthorizedClientService(new InMemoryClientRegistrationRepository(clientRegistration())))
+                .withBean(RestClient.Builder.class, RestClient::builder)
+                .run(context -> {
+                    assertThat(context).hasSingleBean(DbSchemaPublisher.class);
+                    assertThat(context).doesNotHaveBean(ReactiveArchitectureRepositoryService.class);
+                    assertThat(context).doesNotHaveBean(ReactiveDbSchemaPublisher.class);
+                });
+    }
+
+    private ApplicationContextRunner contextRunner() {
+        return new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(DbSchemaPublisherAutoConfiguration.class))
+                .withUserConfiguration(ReactiveOAuth2ClientConfiguration.class)
+                .withBean(DataSource.class, catalog::dataSource)
+                .withPropertyValues(
+                        "spring.application.name=test-app",
+                        "jeap.archrepo.url=" + archrepo.baseUrl());
+    }
+
+    private ReactiveWebApplicationContextRunner reactiveContextRunner() {
+        return new ReactiveWebApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(DbSchemaPublisherAutoConfiguration.class))
+                .withUserConfiguration(ReactiveOAuth2ClientConfiguration.class)
+                .withBean(DataSource.class, catalog::dataSource)
+                .withPropertyValues(
+                        "spring.application.name=test-app",
+                        "jeap.archrepo.url=" + archrepo.baseUrl());
+    }
+
+    private ReactiveDbSchemaPublisher publisher(DataSource dataSource, DatabaseModelReader databaseModelReader) {
+        WebClient webClient = WebClient.builder()
+                .clientConnector(new JdkClientHttpConnector(HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .build()))
+                .baseUrl(archrepo.baseUrl())
+                .build();
+        ReactiveArchitectureRepositoryService service = HttpServiceProxyFactory
+                .builderFor(WebClientAdapter.create(webClient))
+                .build()
+                .createClient(ReactiveArchitectureRepositoryService.class);
+        return new ReactiveDbSchemaPublisher("test-app", properties, service, dataSource, databaseModelReader,
+                new AppVersionProvider(null, null), meterRegistry, Schedulers.boundedElastic(),
+                RandomGenerator.getDefault());
+    }
+
+    private static ClientRegistration clientRegistration() {
+        return ClientRegistration.withRegistrationId("archrepo-client")
+                .clientId("test-app")
+                .clientSecret("secret")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .tokenUri("http://localhost/oauth/token")
+                .build();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class ReactiveOAuth2ClientConfiguration {
+
+        @Bean
+        ReactiveClientRegistrationRepository reactiveClientRegistrationRepository() {
+            return new InMemoryReactiveClientRegistrationRepository(clientRegistration());
+        }
+
+        @Bean
+        ReactiveOAuth2AuthorizedClientService reactiveOAuth2AuthorizedClientService(ReactiveClientRegistrationRepository clientRegistrationRepository) {
+            return new InMemoryReactiveOAuth2AuthorizedClientService(clientRegistrationRepository);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.diff.Change;
+import ch.admin.bit.jeap.dbschema.diff.SchemaChanges;
+import ch.admin.bit.jeap.dbschema.diff.SchemaDiff;
+import ch.admin.bit.jeap.dbschema.diff.TableChanges;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import ch.admin.bit.jeap.dbschema.model.TableForeignKey;
+import ch.admin.bit.jeap.dbschema.model.TablePrimaryKey;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaDiffTest {
+
+    private static final TableColumn ID = new TableColumn("id", "BIGINT", false);
+    private static final TableColumn AMOUNT = new TableColumn("amount", "INTEGER", true);
+    private static final TableColumn NOTE = new TableColumn("note", "CHARACTER VARYING", true);
+    private static final TablePrimaryKey PRIMARY_KEY = new TablePrimaryKey("orders_pkey", List.of("id"));
+    private static final TableForeignKey CUSTOMER_FK =
+            new TableForeignKey("orders_customer_fk", List.of("customer_id"), "customer", List.of("id"));
+
+    @Test
+    void between_whenEqualLargeSchemas_thenNoChanges() {
+        DatabaseSchema previous = schema(SyntheticSchema.of(10_000).tables());
+        DatabaseSchema current = schema(SyntheticSchema.of(10_000).tables());
+
+        SchemaChanges changes = SchemaDiff.between(previous, current);
+
+        assertThat(changes.isEmpty()).isTrue();
+    }
+
+    @Test
+    void between_whenTablesAddedAndRemoved_thenReported() {
+        List<Table> tables = SyntheticSchema.of(5).tables();
+        Table added = table("invoice", List.of(ID), PRIMARY_KEY, List.of());
+
+        SchemaChanges changes = SchemaDiff.between(schema(tables),
+                schema(List.of(tables.get(0), tables.get(2), added, tables.get(3), tables.get(4))));
+
+        assertThat(changes.addedTables()).containsExactly(added);
+        assertThat(changes.removedTables()).containsExactly(tables.get(1));
+        assertThat(changes.alteredTables()).isEmpty();
+        assertThat(changes.summary()).isEqualTo("added tables [invoice], removed tables [table_00001], altered tables []");
+    }
+
+    @Test
+    void between_whenColumnsChanged_thenOnlyAlteredTableReported() {
+        List<Table> tables = new ArrayList<>(SyntheticSchema.of(100).tables());
+        TableColumn widenedAmount = new TableColumn("amount", "BIGINT", true);
+        tables.set(42, table("orders", List.of(ID, AMOUNT), PRIMARY_KEY, List.of()));
+        DatabaseSchema previous = schema(List.copyOf(tables));
+        tables.set(42, table("orders", List.of(ID, widenedAmount, NOTE), PRIMARY_KEY, List.of()));
+
+        SchemaChanges changes = SchemaDiff.between(previous, schema(tables));
+
+        assertThat(changes.alteredTables()).singleElement().satisfies(table -> {
+            assertThat(table.tableName()).isEqualTo("orders");
+            assertThat(table.addedColumns()).containsExactly(NOTE);
+            assertThat(table.removedColumns()).isEmpty();
+            assertThat(table.alteredColumns()).containsExactly(new Change<>(AMOUNT, widenedAmount));
+            assertThat(table.columnsReordered()).isFalse();
+            assertThat(table.primaryKey()).isNull();
+        });
+        assertThat(changes.summary()).isEqualTo(
+                "added tables [], removed tables [], altered tables [orders(+column note, ~column amount)]");
+    }
+
+    @Test
+    void between_whenColumnsReordered_thenReported() {
+        Table previous = table("orders", List.of(ID, AMOUNT, NOTE), PRIMARY_KEY, List.of());
+        Table current = table("orders", List.of(ID, NOTE, AMOUNT), PRIMARY_KEY, List.of());
+
+        TableChanges changes = SchemaDiff.between(schema(List.of(previous)), schema(List.of(current))).alteredTables().getFirst();
+
+        assertThat(changes.columnsReordered()).isTrue();
+        assertThat(changes.alteredColumns()).isEmpty();
+        assertThat(changes.summary()).isEqualTo("orders(~column order)");
+    }
+
+    @Test
+    void between_whenColumnRemovedInBetween_thenNotReportedAsReordered() {
+        Table previous = table("orders", List.of(ID, AMOUNT, NOTE), PRIMARY_KEY, List.of());
+        Table current = table("orders", List.of(ID, NOTE), PRIMARY_KEY, List.of());
+
+        TableChanges changes = SchemaDiff.between(schema(List.of(previous)), schema(List.of(current))).alteredTables().getFirst();
+
+        assertThat(changes.removedColumns()).containsExactly(AMOUNT);
+        assertThat(changes.columnsReordered()).isFalse();
+    }
+
+    @Test
+    void between_whenKeysChanged_thenReported() {
+        TableForeignKey retargeted = new TableForeignKey("orders_customer_fk", List.of("customer_id"), "client", List.of("id"));
+        TableForeignKey unnamed = new TableForeignKey(null, List.of("note"), "notes", List.of("id"));
+        Table previous = table("orders", List.of(ID, AMOUNT), PRIMARY_KEY, List.of(CUSTOMER_FK));
+        Table current = table("orders", List.of(ID, AMOUNT), null, List.of(retargeted, unnamed));
+
+        TableChanges changes = SchemaDiff.between(schema(List.of(previous)), schema(List.of(current))).alteredTables().getFirst();
+
+        assertThat(changes.primaryKey()).isEqualTo(new Change<>(PRIMARY_KEY, null));
+        assertThat(changes.addedForeignKeys()).containsExactly(unnamed);
+        assertThat(changes.removedForeignKeys()).isEmpty();
+        assertThat(changes.alteredForeignKeys()).containsExactly(new Change<>(CUSTOMER_FK, retargeted));
+        assertThat(changes.summary()).isEqualTo("orders(-primary key, +foreign key to notes, ~foreign key orders_customer_fk)");
+    }
+
+    @Test
+    void between_whenOnlyForeignKeyOrderDiffers_thenNoChanges() {
+        TableForeignKey other = new TableForeignKey("orders_note_fk", List.of("note"), "notes", List.of("id"));
+        Table previous = table("orders", List.of(ID), PRIMARY_KEY, List.of(CUSTOMER_FK, other));
+        Table current = table("orders", List.of(ID), PRIMARY_KEY, List.of(other, CUSTOMER_FK));
+
+        assertThat(SchemaDiff.between(schema(List.of(previous)), schema(List.of(current))).isEmpty()).isTrue();
+    }
+
+    private static DatabaseSchema schema(List<Table> tables) {
+        return new DatabaseSchema("data", "1.0", tables);
+    }
+
+    private static Table table(String name, List<TableColumn> columns, TablePrimaryKey primaryKey, List<TableForeignKey> foreignKeys) {
+        return new Table(name, columns, foreignKeys, primaryKey);
+    }
+}
@@ -0,0 +1,130 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.random.RandomGenerator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SchemaDriftMonitorTest {
+
+    private static final String SCHEMA_NAME = "data";
+
+    private DbSchemaPublisher dbSchemaPublisher;
+    private DatabaseModelReader databaseModelReader;
+    private TaskScheduler taskScheduler;
+    private SchemaDriftMonitor monitor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dbSchemaPublisher = mock(DbSchemaPublisher.class);
+        when(dbSchemaPublisher.publishDatabaseSchemaAsync()).thenReturn(CompletableFuture.completedFuture(null));
+        databaseModelReader = mock(DatabaseModelReader.class);
+        taskScheduler = mock(TaskScheduler.class);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(mock(Connection.class));
+
+        ArchRepoProperties properties = new ArchRepoProperties();
+        properties.getDatabase().setSchemaName(SCHEMA_NAME);
+        properties.getDriftDetection().setInterval(Duration.ofMinutes(10));
+        properties.getDriftDetection().setJitter(Duration.ofMinutes(2));
+        RandomGenerator random = mock(RandomGenerator.class);
+        when(random.nextLong(anyLong())).thenReturn(Duration.ofMinutes(1).toMillis());
+
+        monitor = new SchemaDriftMonitor(dbSchemaPublisher, dataSource, databaseModelReader, properties,
+                taskScheduler, random);
+    }
+
+    @Test
+    void check_whenNotYetPublished_thenPublishes() throws SQLException {
+        fingerprint("a");
+
+        monitor.check();
+
+        verify(dbSchemaPublisher).publishDatabaseSchemaAsync();
+    }
+
+    @Test
+    void check_whenFingerprintUnchanged_thenDoesNotRepublish() throws SQLException {
+        fingerprint("a");
+        monitor.check();
+
+        monitor.check();
+
+        verify(dbSchemaPublisher, times(1)).publishDatabaseSchemaAsync();
+    }
+
+    @Test
+    void check_whenFingerprintChanged_thenRepublishes() throws SQLException {
+        fingerprint("a");
+        monitor.check();
+        fingerprint("b");
+
+        monitor.check();
+
+        verify(dbSchemaPublisher, times(2)).publishDatabaseSchemaAsync();
+    }
+
+    @Test
+    void check_whenPublicationFailed_thenRepublishesWithNextCheck() throws SQLException {
+        fingerprint("a");
+        when(dbSchemaPublisher.publishDatabaseSchemaAsync())
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("failed")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        monitor.check();
+
+        monitor.check();
+        monitor.check();
+
+        verify(dbSchemaPublisher, times(2)).publishDatabaseSchemaAsync();
+    }
+
+    @Test
+    void check_whenFingerprintCannotBeRead_thenDoesNotRepublish() throws SQLException {
+        fingerprint("a");
+        monitor.check();
+        when(databaseModelReader.readSchemaFingerprint(any(), eq(SCHEMA_NAME))).thenThrow(new SQLException("failed"));
+
+        monitor.check();
+
+        verify(dbSchemaPublisher, times(1)).publishDatabaseSchemaAsync();
+    }
+
+    @Test
+    void check_schedulesNextCheckAfterIntervalPlusJitter() throws SQLException {
+        fingerprint("a");
+        Instant before = Instant.now();
+
+        monitor.check();
+
+        ArgumentCaptor<Instant> nextCheck = ArgumentCaptor.forClass(Instant.class);
+        verify(taskScheduler).schedule(any(Runnable.class), nextCheck.capture());
+        assertThat(nextCheck.getValue()).isBetween(before.plus(Duration.ofMinutes(11)),
+                Instant.now().plus(Duration.ofMinutes(11)));
+    }
+
+    @Test
+    void start_whenCalledTwice_thenSchedulesFirstCheckOnce() {
+        monitor.start();
+        monitor.start();
+
+        verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    private void fingerprint(String fingerprint) throws SQLException {
+        when(databaseModelReader.readSchemaFingerprint(any(), eq(SCHEMA_NAME))).thenReturn(fingerprint);
+    }
+}
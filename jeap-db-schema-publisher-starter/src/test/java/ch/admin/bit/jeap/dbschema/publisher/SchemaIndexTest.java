@@ -0,0 +1,131 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.model.SchemaIndex;
+import ch.admin.bit.jeap.dbschema.model.SchemaIndex.Reference;
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import ch.admin.bit.jeap.dbschema.model.TableForeignKey;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class SchemaIndexTest {
+
+    private static final TableColumn ID = new TableColumn("id", "BIGINT", false);
+
+    @Test
+    void lookups_findTablesAndColumnsByName() {
+        SyntheticSchema synthetic = SyntheticSchema.of(1_000);
+        SchemaIndex index = SchemaIndex.of(new DatabaseSchema("data", "1.0", synthetic.tables()));
+
+        assertThat(index.table("table_00500")).hasValueSatisfying(table -> assertThat(table.name()).isEqualTo("table_00500"));
+        assertThat(index.table("unknown")).isEmpty();
+        assertThat(index.column("table_00500", "column_3")).contains(new TableColumn("column_3", "BOOLEAN", true));
+        assertThat(index.column("table_00500", "unknown")).isEmpty();
+        assertThat(index.column("unknown", "id")).isEmpty();
+    }
+
+    @Test
+    void referencingForeignKeys_returnsForeignKeysReferencingTable() {
+        TableForeignKey orderCustomer = foreignKey("order_customer_fk", "customer");
+        TableForeignKey invoiceCustomer = foreignKey("invoice_customer_fk", "customer");
+        TableForeignKey customerParent = foreignKey("customer_parent_fk", "customer");
+        Table customer = table("customer", customerParent);
+        Table order = table("orders", orderCustomer);
+        Table invoice = table("invoice", invoiceCustomer);
+        SchemaIndex index = SchemaIndex.of(schema(customer, order, invoice));
+
+        assertThat(index.referencingForeignKeys("customer")).containsExactly(
+                new Reference(customer, customerParent), new Reference(order, orderCustomer), new Reference(invoice, invoiceCustomer));
+        assertThat(index.referencingForeignKeys("invoice")).isEmpty();
+    }
+
+    @Test
+    void topologicalOrder_placesReferencedTablesFirst() {
+        Table orderLine = table("order_line", foreignKey("line_order_fk", "orders"), foreignKey("line_product_fk", "product"));
+        Table order = table("orders", foreignKey("order_customer_fk", "customer"), foreignKey("order_external_fk", "other_schema_table"));
+        Table customer = table("customer", foreignKey("customer_parent_fk", "customer"));
+        Table product = table("product");
+        SchemaIndex index = SchemaIndex.of(schema(orderLine, order, customer, product));
+
+        assertThat(index.foreignKeyCycles()).isEmpty();
+        assertThat(index.topologicalOrder()).extracting(Table::name)
+                .containsExactly("customer", "orders", "product", "order_line");
+    }
+
+    @Test
+    void topologicalOrder_placesTableRightAfterItsReferencesAndKeepsOrderedSchemaUnchanged() {
+        Table a = table("a", foreignKey("a_c_fk", "c"));
+        Table b = table("b");
+        Table c = table("c");
+
+        assertThat(SchemaIndex.of(schema(a, b, c)).topologicalOrder()).containsExactly(c, a, b);
+        assertThat(SchemaIndex.of(schema(c, b, a)).topologicalOrder()).containsExactly(c, b, a);
+    }
+
+    @Test
+    void topologicalOrder_whenLargeSchema_thenEveryTableFollowsItsReferences() {
+        List<Table> tables = new ArrayList<>(SyntheticSchema.of(10_000).withForeignKeyDensity(1).tables());
+        // Reversed, so that every reference points to a table further down the list
+        Collections.reverse(tables);
+        SchemaIndex index = SchemaIndex.of(new DatabaseSchema("data", "1.0", tables));
+
+        List<Table> ordered = index.topologicalOrder();
+
+        assertThat(ordered).hasSameSizeAs(tables);
+        Set<String> placed = new HashSet<>();
+        for (Table table : ordered) {
+            assertThat(table.foreignKeys()).allSatisfy(foreignKey -> assertThat(placed).contains(foreignKey.referencedTableName()));
+            placed.add(table.name());
+        }
+    }
+
+    @Test
+    void topologicalOrder_whenChainOfReferences_thenDoesNotOverflowStack() {
+        List<Table> tables = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            tables.add(i == 99_999 ? table("t" + i) : table("t" + i, foreignKey("fk" + i, "t" + (i + 1))));
+        }
+
+        List<Table> ordered = SchemaIndex.of(new DatabaseSchema("data", "1.0", tables)).topologicalOrder();
+
+        assertThat(ordered.getFirst().name()).isEqualTo("t99999");
+        assertThat(ordered.getLast().name()).isEqualTo("t0");
+    }
+
+    @Test
+    void foreignKeyCycles_whenTablesReferenceEachOther_thenReportsEachCycle() {
+        SchemaIndex index = SchemaIndex.of(schema(
+                table("a", foreignKey("a_b_fk", "b")),
+                table("b", foreignKey("b_c_fk", "c")),
+                table("c", foreignKey("c_a_fk", "a")),
+                table("d", foreignKey("d_a_fk", "a")),
+                table("e", foreignKey("e_f_fk", "f")),
+                table("f", foreignKey("f_e_fk", "e"))));
+
+        assertThat(index.foreignKeyCycles()).containsExactly(List.of("a", "b", "c"), List.of("e", "f"));
+        assertThatIllegalStateException().isThrownBy(index::topologicalOrder)
+                .withMessage("Foreign keys form cycles between the tables [[a, b, c], [e, f]]");
+    }
+
+    private static DatabaseSchema schema(Table... tables) {
+        return new DatabaseSchema("data", "1.0", List.of(tables));
+    }
+
+    private static Table table(String name, TableForeignKey... foreignKeys) {
+        return new Table(name, List.of(ID), List.of(foreignKeys), null);
+    }
+
+    private static TableForeignKey foreignKey(String name, String referencedTableName) {
+        return new TableForeignKey(name, List.of("ref_id"), referencedTableName, List.of("id"));
+    }
+}
@@ -0,0 +1,144 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import ch.admin.bit.jeap.dbschema.reader.CatalogCallStatistics;
+import ch.admin.bit.jeap.dbschema.reader.CatalogInstrumentation;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import ch.admin.bit.jeap.dbschema.reader.H2InformationSchemaDialect;
+import ch.admin.bit.jeap.dbschema.reader.JdbcMetadataDialect;
+import ch.admin.bit.jeap.dbschema.reader.SchemaMetadataDialect;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticCatalog;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchema;
+import ch.admin.bit.jeap.dbschema.testsupport.SyntheticSchemaGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaMetadataDialectTest {
+
+    private static final String SCHEMA_NAME = "PUBLIC";
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:metadata-dialect");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE customer (tenant VARCHAR(20), id BIGINT, name VARCHAR(100) NOT NULL,
+                        CONSTRAINT customer_pk PRIMARY KEY (tenant, id))""");
+            statement.execute("""
+                    CREATE TABLE orders (id UUID PRIMARY KEY, tenant VARCHAR(20), customer_id BIGINT,
+                        amount NUMERIC(10, 2), created TIMESTAMP WITH TIME ZONE, note CLOB, flags INTEGER ARRAY,
+                        duration INTERVAL DAY TO SECOND, state ENUM('OPEN', 'CLOSED', 'O''NEIL'),
+                        CONSTRAINT orders_customer_fk FOREIGN KEY (tenant, customer_id) REFERENCES customer (tenant, id))""");
+            statement.execute("CREATE TABLE audit_log (entry VARCHAR(1000))");
+            statement.execute("CREATE VIEW customer_names AS SELECT name FROM customer");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    void h2Dialect_readsSameModelAsGenericDialect() throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+
+        List<Table> tables = new H2InformationSchemaDialect().readTables(metaData, SCHEMA_NAME);
+
+        assertThat(tables).isEqualTo(new JdbcMetadataDialect().readTables(metaData, SCHEMA_NAME));
+        assertThat(tables).extracting(Table::name).containsExactly("AUDIT_LOG", "CUSTOMER", "ORDERS");
+        Table orders = tables.get(2);
+        assertThat(orders.columns()).extracting(TableColumn::type).contains("NUMERIC", "TIMESTAMP WITH TIME ZONE", "INTEGER ARRAY");
+        assertThat(orders.foreignKeys()).singleElement().satisfies(foreignKey -> {
+            assertThat(foreignKey.columnNames()).containsExactly("TENANT", "CUSTOMER_ID");
+            assertThat(foreignKey.referencedColumnNames()).containsExactly("TENANT", "ID");
+        });
+    }
+
+    @Test
+    void h2Dialect_whenGeneratedSchema_thenReadsExpectedTables() throws SQLException {
+        SyntheticSchema schema = SyntheticSchema.of(300).withSchemaName("synthetic");
+        SyntheticSchemaGenerator.create(connection, schema);
+
+        assertThat(new H2InformationSchemaDialect().readTables(connection.getMetaData(), "synthetic"))
+                .isEqualTo(schema.tables());
+    }
+
+    @Test
+    void readDatabaseModelFrom_selectsInstalledDialectByProductName() throws SQLException {
+        CatalogCallStatistics statistics = new CatalogCallStatistics();
+        DatabaseModelReader reader = new DatabaseModelReader(CatalogInstrumentation.of(null, statistics));
+
+        assertThat(DatabaseModelReader.installedDialects()).hasAtLeastOneElementOfType(H2InformationSchemaDialect.class);
+        assertThat(reader.readDatabaseModelFrom(connection, SCHEMA_NAME, "1.0").tables()).hasSize(3);
+        // Read with queries of the INFORMATION_SCHEMA instead of catalog calls
+        assertThat(statistics.snapshot()).isEmpty();
+    }
+
+    @Test
+    void readDatabaseModelFrom_prefersGivenDialect() throws SQLException {
+        Table table = new Table("given", List.of(), List.of(), null);
+        SchemaMetadataDialect givenDialect = new FixedDialect("H2", List.of(table));
+
+        DatabaseModelReader reader = new DatabaseModelReader(CatalogInstrumentation.disabled(),
+                List.of(new FixedDialect("PostgreSQL", List.of()), givenDialect, new H2InformationSchemaDialect()));
+
+        assertThat(reader.readDatabaseModelFrom(connection, SCHEMA_NAME, "1.0").tables()).containsExactly(table);
+    }
+
+    @Test
+    void readDatabaseModelFrom_looksUpDialectsOnFirstRead() throws SQLException {
+        Table table = new Table("looked-up", List.of(), List.of(), null);
+        AtomicInteger lookups = new AtomicInteger();
+        DatabaseModelReader reader = new DatabaseModelReader(CatalogInstrumentation.disabled(), () -> {
+            lookups.incrementAndGet();
+            return List.of(new FixedDialect("H2", List.of(table)));
+        });
+        assertThat(lookups).hasValue(0);
+
+        assertThat(reader.readDatabaseModelFrom(connection, SCHEMA_NAME, "1.0").tables()).containsExactly(table);
+        assertThat(reader.readDatabaseModelFrom(connection, SCHEMA_NAME, "1.0").tables()).containsExactly(table);
+        assertThat(lookups).hasValue(1);
+    }
+
+    @Test
+    void readDatabaseModelFrom_whenNoDialectSupportsProduct_thenUsesGenericDialect() throws SQLException {
+        SyntheticCatalog catalog = new SyntheticCatalog(SyntheticSchema.of(5));
+        DatabaseModelReader reader = new DatabaseModelReader(CatalogInstrumentation.disabled(),
+                List.of(new H2InformationSchemaDialect()));
+
+        assertThat(reader.readDatabaseModelFrom(catalog.connection(), SyntheticSchema.DEFAULT_SCHEMA_NAME, "1.0").tables())
+                .isEqualTo(catalog.getSchema().tables());
+        assertThat(catalog.getCatalogCalls()).isEqualTo(1 + 3 * 5);
+    }
+
+    private record FixedDialect(String databaseProductName, List<Table> tables) implements SchemaMetadataDialect {
+
+        @Override
+        public boolean supports(String databaseProductName) {
+            return this.databaseProductName.equals(databaseProductName);
+        }
+
+        @Override
+        public List<Table> readTables(DatabaseMetaData metaData, String schemaName) {
+            return tables;
+        }
+    }
+}
@@ -7,23 +7,26 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
-import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.micrometer.metrics.test.autoconfigure.AutoConfigureMetrics;
+import org.springframework.boot.restclient.RestClientCustomizer;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
-import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.postgresql.PostgreSQLContainer;
 import org.testcontainers.utility.DockerImageName;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
@@ -34,14 +37,14 @@ import static org.awaitility.Awaitility.await;
 @Testcontainers
 @ActiveProfiles("test")
 @AutoConfigureMetrics // To test the timed annotation on the publisher method
+@Import(SchemaUploadIntegrationTest.RequestThreadRecorder.class)
 class SchemaUploadIntegrationTest {
 
+    private static final List<String> REQUEST_THREADS = new CopyOnWriteArrayList<>();
+
     @Autowired
     private MeterRegistry meterRegistry;
 
-    @MockitoSpyBean(name = DbSchemaPublisher.DB_SCHEMA_PUBLISHER_TASK_EXECUTOR)
-    private ThreadPoolTaskExecutor threadPoolTaskExecutor;
-
     @Container
     @ServiceConnection
     static PostgreSQLContainer postgres = new PostgreSQLContainer(DockerImageName.parse("postgres:17-alpine")
@@ -125,19 +128,38 @@ class SchemaUploadIntegrationTest {
                 .withFailMessage("Request should contain user_profiles table")
                 .contains("user_profiles");
 
-        // Verify that the task was indeed executed asynchronously
-        Mockito.verify(threadPoolTaskExecutor, Mockito.times(1))
-                .execute(Mockito.any(Runnable.class));
+        // Verify that the upload was sent by the publisher thread rather than the thread starting the application
+        assertThat(REQUEST_THREADS)
+                .withFailMessage("Upload should be sent by a db-schema-publisher thread, was sent by %s", REQUEST_THREADS)
+                .singleElement()
+                .satisfies(threadName -> assertThat(threadName).startsWith("db-schema-publisher-"));
     }
 
     private Optional<Timer> findPublishTimer() {
         return meterRegistry.getMeters().stream()
-                .filter(t -> t.getId().getName().contains("jeap-publish-database-schema"))
+                // Not the phase timers and distribution summaries recorded during the publication
+                .filter(t -> t.getId().getName().equals("jeap-publish-database-schema"))
                 .filter(Timer.class::isInstance)
                 .map(Timer.class::cast)
                 .findFirst();
     }
 
+    /**
+     * Records the threads sending requests with the application's {@code RestClient.Builder}, which the archrepo
+     * client is built with.
+     */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class RequestThreadRecorder {
+
+        @Bean
+        RestClientCustomizer requestThreadRecordingCustomizer() {
+            return builder -> builder.requestInterceptor((request, body, execution) -> {
+                REQUEST_THREADS.add(Thread.currentThread().getName());
+                return execution.execute(request, body);
+            });
+        }
+    }
+
     private static void mockOAuthTokenResponse() {
         // Mock OAuth2 token endpoint
         wireMockServer.stubFor(post(urlEqualTo("/oauth/token"))
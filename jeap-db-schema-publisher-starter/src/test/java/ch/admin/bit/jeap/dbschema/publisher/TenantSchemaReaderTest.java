@@ -0,0 +1,173 @@
+package ch.admin.bit.jeap.dbschema.publisher;
+
+import ch.admin.bit.jeap.dbschema.archrepo.client.ArchitectureRepositoryService;
+import ch.admin.bit.jeap.dbschema.archrepo.client.CreateOrUpdateDbSchemaDto;
+import ch.admin.bit.jeap.dbschema.archrepo.client.TenantDbSchemasDto;
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import ch.admin.bit.jeap.dbschema.publisher.TenantSchemaReader.TenantSchemas;
+import ch.admin.bit.jeap.dbschema.reader.CatalogCallStatistics;
+import ch.admin.bit.jeap.dbschema.reader.CatalogInstrumentation;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TenantSchemaReaderTest {
+
+    private static final String TENANT_SCHEMA_PATTERN = "TENANT%";
+
+    private final JdbcDataSource dataSource = new JdbcDataSource();
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource.setURL("jdbc:h2:mem:tenant-schemas;DB_CLOSE_DELAY=-1");
+        connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            for (String tenant : List.of("TENANT_C", "TENANT_A", "TENANT_B", "TENANT_D")) {
+                statement.execute("CREATE SCHEMA " + tenant);
+                // Named, H2 names unnamed constraints uniquely across all schemas
+                statement.execute("CREATE TABLE " + tenant + ".customer (id BIGINT, name VARCHAR(100), " +
+                        "CONSTRAINT customer_pk PRIMARY KEY (id))");
+            }
+            statement.execute("ALTER TABLE TENANT_D.customer ADD COLUMN email VARCHAR(200)");
+            statement.execute("CREATE SCHEMA TENANT_E");
+            statement.execute("CREATE SCHEMA OTHER");
+            statement.execute("CREATE TABLE OTHER.customer (id BIGINT PRIMARY KEY)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    void readSchemaFingerprints_readsFingerprintsOfAllMatchingSchemasWithOneColumnsQuery() throws SQLException {
+        CatalogCallStatistics statistics = new CatalogCallStatistics();
+        DatabaseModelReader reader = new DatabaseModelReader(CatalogInstrumentation.of(null, statistics));
+
+        Map<String, String> fingerprints = reader.readSchemaFingerprints(connection, TENANT_SCHEMA_PATTERN);
+
+        assertThat(fingerprints).containsOnlyKeys("TENANT_A", "TENANT_B", "TENANT_C", "TENANT_D", "TENANT_E");
+        assertThat(fingerprints.get("TENANT_A"))
+                .isEqualTo(fingerprints.get("TENANT_B"))
+                .isEqualTo(reader.readSchemaFingerprint(connection, "TENANT_C"))
+                .isNotEqualTo(fingerprints.get("TENANT_D"))
+                .isNotEqualTo(fingerprints.get("TENANT_E"));
+        // Plus the one of readSchemaFingerprint above
+        assertThat(statistics.snapshot().get("getColumns").calls()).isEqualTo(2);
+    }
+
+    @Test
+    void read_readsOneSchemaPerStructure() throws SQLException {
+        DatabaseModelReader databaseModelReader = spy(new DatabaseModelReader());
+
+        TenantSchemas tenantSchemas = new TenantSchemaReader(databaseModelReader)
+                .read(connection, TENANT_SCHEMA_PATTERN, "1.0");
+
+        assertThat(tenantSchemas.tenants()).containsExactly("TENANT_A", "TENANT_B", "TENANT_C");
+        assertThat(tenantSchemas.template().name()).isEqualTo("TENANT_A");
+        assertThat(tenantSchemas.template().tables()).singleElement()
+                .satisfies(table -> assertThat(table.columns()).extracting(TableColumn::name).containsExactly("ID", "NAME"));
+        assertThat(tenantSchemas.outliers()).extracting(DatabaseSchema::name).containsExactly("TENANT_D", "TENANT_E");
+        assertThat(tenantSchemas.outliers().getFirst().tables()).singleElement()
+                .satisfies(table -> assertThat(table.columns()).extracting(TableColumn::name).containsExactly("ID", "NAME", "EMAIL"));
+        assertThat(tenantSchemas.outliers().getLast().tables()).isEmpty();
+        verify(databaseModelReader, times(3)).readDatabaseModelFrom(any(), any(), any());
+        verify(databaseModelReader, never()).readDatabaseModelFrom(any(), eq("TENANT_B"), any());
+        verify(databaseModelReader, never()).readDatabaseModelFrom(any(), eq("TENANT_C"), any());
+    }
+
+    @Test
+    void read_whenTenantsDifferOnlyInForeignKey_thenReadsBoth() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String tenant : List.of("KEYED_A", "KEYED_B")) {
+                statement.execute("CREATE SCHEMA " + tenant);
+                statement.execute("CREATE TABLE " + tenant + ".customer (id BIGINT, " +
+                        "CONSTRAINT customer_pk PRIMARY KEY (id))");
+                statement.execute("CREATE TABLE " + tenant + ".orders (id BIGINT, customer_id BIGINT, " +
+                        "CONSTRAINT orders_pk PRIMARY KEY (id))");
+            }
+            statement.execute("ALTER TABLE KEYED_B.orders ADD CONSTRAINT orders_customer_fk " +
+                    "FOREIGN KEY (customer_id) REFERENCES KEYED_B.customer (id)");
+        }
+        DatabaseModelReader databaseModelReader = new DatabaseModelReader();
+
+        Map<String, String> fingerprints = databaseModelReader.readSchemaFingerprints(connection, "KEYED%");
+        TenantSchemas tenantSchemas = new TenantSchemaReader(databaseModelReader).read(connection, "KEYED%", "1.0");
+
+        assertThat(fingerprints.get("KEYED_A")).isNotEqualTo(fingerprints.get("KEYED_B"));
+        assertThat(tenantSchemas.tenants()).containsExactly("KEYED_A");
+        assertThat(tenantSchemas.outliers()).extracting(DatabaseSchema::name).containsExactly("KEYED_B");
+    }
+
+    @Test
+    void read_whenNoSchemaMatches_thenFails() {
+        TenantSchemaReader reader = new TenantSchemaReader(new DatabaseModelReader());
+
+        assertThatThrownBy(() -> reader.read(connection, "UNKNOWN%", "1.0"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("No schema matches the tenant schema pattern UNKNOWN%");
+    }
+
+    @Test
+    void publishDatabaseSchema_inTenantMode_thenPublishesTemplateTenantsAndOutliers() throws SQLException {
+        ArchRepoProperties properties = new ArchRepoProperties();
+        properties.getDatabase().setTenantSchemaPattern(TENANT_SCHEMA_PATTERN);
+        properties.getDatabase().setTenantModeEnabled(true);
+        ArchitectureRepositoryService architectureRepositoryService = mock(ArchitectureRepositoryService.class);
+        DbSchemaPublisher publisher = new DbSchemaPublisher("test-app", properties, architectureRepositoryService,
+                dataSource, new DatabaseModelReader(), new AppVersionProvider(null, null), new TracingTimer(null, null));
+
+        publisher.publishDatabaseSchema();
+
+        ArgumentCaptor<TenantDbSchemasDto> dto = ArgumentCaptor.forClass(TenantDbSchemasDto.class);
+        verify(architectureRepositoryService).publishTenantDbSchemas(dto.capture());
+        verify(architectureRepositoryService, never()).publishDbSchema(any());
+        assertThat(dto.getValue().systemComponentName()).isEqualTo("test-app");
+        assertThat(dto.getValue().template().tables()).extracting(Table::name).containsExactly("CUSTOMER");
+        assertThat(dto.getValue().tenants()).containsExactly("TENANT_A", "TENANT_B", "TENANT_C");
+        assertThat(dto.getValue().outliers()).extracting(DatabaseSchema::name).containsExactly("TENANT_D", "TENANT_E");
+    }
+
+    @Test
+    void publishDatabaseSchema_whenTenantModeNotEnabled_thenPublishesSchemaName() throws SQLException {
+        ArchRepoProperties properties = new ArchRepoProperties();
+        properties.getDatabase().setSchemaName("TENANT_A");
+        properties.getDatabase().setTenantSchemaPattern(TENANT_SCHEMA_PATTERN);
+        ArchitectureRepositoryService architectureRepositoryService = mock(ArchitectureRepositoryService.class);
+        DbSchemaPublisher publisher = new DbSchemaPublisher("test-app", properties, architectureRepositoryService,
+                dataSource, new DatabaseModelReader(), new AppVersionProvider(null, null), new TracingTimer(null, null));
+
+        publisher.publishDatabaseSchema();
+
+        ArgumentCaptor<CreateOrUpdateDbSchemaDto> dto = ArgumentCaptor.forClass(CreateOrUpdateDbSchemaDto.class);
+        verify(architectureRepositoryService).publishDbSchema(dto.capture());
+        verify(architectureRepositoryService, never()).publishTenantDbSchemas(any());
+        assertThat(dto.getValue().schema().name()).isEqualTo("TENANT_A");
+    }
+}
@@ -0,0 +1,182 @@
+package ch.admin.bit.jeap.dbschema.testsupport;
+
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import ch.admin.bit.jeap.dbschema.model.TableForeignKey;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves a {@link SyntheticSchema} through {@link DatabaseMetaData} without a database. Answers the catalog calls made
+ * by the model reader ({@code getTables}, {@code getColumns}, {@code getPrimaryKeys}, {@code getImportedKeys}) from rows
+ * built up front, each after the configured latency to simulate the round trip to a remote database. Everything else
+ * throws {@link SQLException}.
+ * <p>
+ * Thread-safe, each connection can be used by one thread at a time, like a real one.
+ */
+public final class SyntheticCatalog {
+
+    public static final String DATABASE_PRODUCT_NAME = "Synthetic";
+
+    private final SyntheticSchema schema;
+    private final Duration callLatency;
+    private final AtomicLong catalogCalls = new AtomicLong();
+    private final List<Map<String, Object>> tableRows = new ArrayList<>();
+    private final List<Map<String, Object>> allColumnRows = new ArrayList<>();
+    private final Map<String, List<Map<String, Object>>> columnRows = new HashMap<>();
+    private final List<Map<String, Object>> allPrimaryKeyRows = new ArrayList<>();
+    private final Map<String, List<Map<String, Object>>> primaryKeyRows = new HashMap<>();
+    private final List<Map<String, Object>> allImportedKeyRows = new ArrayList<>();
+    private final Map<String, List<Map<String, Object>>> importedKeyRows = new HashMap<>();
+
+    public SyntheticCatalog(SyntheticSchema schema) {
+        this(schema, Duration.ZERO);
+    }
+
+    /**
+     * @param callLatency Added to each catalog call, e.g. 5 ms to simulate a database in another data center
+     */
+    public SyntheticCatalog(SyntheticSchema schema, Duration callLatency) {
+        this.schema = schema;
+        this.callLatency = callLatency;
+        for (Table table : schema.tables()) {
+            tableRows.add(Map.of("TABLE_NAME", table.name(), "TABLE_SCHEM", schema.schemaName(), "TABLE_TYPE", "TABLE"));
+            List<Map<String, Object>> columns = new ArrayList<>();
+            int position = 1;
+            for (TableColumn column : table.columns()) {
+                columns.add(Map.of("TABLE_NAME", table.name(), "COLUMN_NAME", column.name(), "TYPE_NAME", column.type(),
+                        "IS_NULLABLE", column.nullable() ? "YES" : "NO", "ORDINAL_POSITION", position++));
+            }
+            columnRows.put(table.name(), columns);
+            allColumnRows.addAll(columns);
+            List<Map<String, Object>> primaryKey = new ArrayList<>();
+            List<String> primaryKeyColumnNames = table.primaryKey().columnNames();
+            for (int i = 0; i < primaryKeyColumnNames.size(); i++) {
+                primaryKey.add(Map.of("TABLE_NAME", table.name(), "COLUMN_NAME", primaryKeyColumnNames.get(i),
+                        "PK_NAME", table.primaryKey().name(), "KEY_SEQ", i + 1));
+            }
+            primaryKeyRows.put(table.name(), primaryKey);
+            allPrimaryKeyRows.addAll(primaryKey);
+            List<Map<String, Object>> importedKeys = new ArrayList<>();
+            for (TableForeignKey foreignKey : table.foreignKeys()) {
+                for (int i = 0; i < foreignKey.columnNames().size(); i++) {
+                    importedKeys.add(Map.of("FKTABLE_NAME", table.name(), "FK_NAME", foreignKey.name(),
+                            "FKCOLUMN_NAME", foreignKey.columnNames().get(i), "PKTABLE_NAME", foreignKey.referencedTableName(),
+                            "PKCOLUMN_NAME", foreignKey.referencedColumnNames().get(i), "KEY_SEQ", i + 1));
+                }
+            }
+            importedKeyRows.put(table.name(), importedKeys);
+            allImportedKeyRows.addAll(importedKeys);
+        }
+    }
+
+    public SyntheticSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return Number of catalog calls answered so far, by all connections
+     */
+    public long getCatalogCalls() {
+        return catalogCalls.get();
+    }
+
+    public DataSource dataSource() {
+        return proxy(DataSource.class, (_, method, _) -> switch (method.getName()) {
+            case "getConnection" -> connection();
+            case "isWrapperFor" -> false;
+            default -> throw unsupported(method.getName());
+        });
+    }
+
+    public Connection connection() {
+        boolean[] closed = {false};
+        Connection[] connection = new Connection[1];
+        DatabaseMetaData metaData = proxy(DatabaseMetaData.class, (_, method, args) -> switch (method.getName()) {
+            case "getTables" -> catalogCall(matchesSchema(args[1]) ? tableRows : List.of());
+            case "getColumns" -> catalogCall(!matchesSchema(args[1]) ? List.of() :
+                    "%".equals(args[2]) ? allColumnRows : columnRows.getOrDefault(args[2], List.of()));
+            // A table of null yields the keys of all tables, as on PostgreSQL
+            case "getPrimaryKeys" -> catalogCall(!matchesSchema(args[1]) ? List.of() :
+                    args[2] == null ? allPrimaryKeyRows : primaryKeyRows.getOrDefault(args[2], List.of()));
+            case "getImportedKeys" -> catalogCall(!matchesSchema(args[1]) ? List.of() :
+                    args[2] == null ? allImportedKeyRows : importedKeyRows.getOrDefault(args[2], List.of()));
+            case "getDatabaseProductName" -> DATABASE_PRODUCT_NAME;
+            case "getDatabaseProductVersion" -> "1.0";
+            case "getConnection" -> connection[0];
+            default -> throw unsupported(method.getName());
+        });
+        connection[0] = proxy(Connection.class, (_, method, _) -> switch (method.getName()) {
+            case "getMetaData" -> metaData;
+            case "close" -> closed[0] = true;
+            case "isClosed" -> closed[0];
+            case "isValid" -> !closed[0];
+            case "getSchema" -> schema.schemaName();
+            case "getCatalog" -> null;
+            case "getAutoCommit" -> true;
+            case "isReadOnly" -> true;
+            default -> throw unsupported(method.getName());
+        });
+        return connection[0];
+    }
+
+    private boolean matchesSchema(Object schemaPattern) {
+        return schemaPattern == null || schemaPattern.equals(schema.schemaName()) || "%".equals(schemaPattern);
+    }
+
+    private ResultSet catalogCall(List<Map<String, Object>> rows) throws SQLException {
+        catalogCalls.incrementAndGet();
+        if (callLatency.isPositive()) {
+            try {
+                Thread.sleep(callLatency);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for the catalog", ex);
+            }
+        }
+        return resultSet(rows);
+    }
+
+    private static ResultSet resultSet(List<Map<String, Object>> rows) {
+        int[] position = {-1};
+        Object[] lastValue = {null};
+        return proxy(ResultSet.class, (_, method, args) -> switch (method.getName()) {
+            case "next" -> ++position[0] < rows.size();
+            case "getString" -> (String) (lastValue[0] = rows.get(position[0]).get((String) args[0]));
+            case "getInt" -> {
+                lastValue[0] = rows.get(position[0]).get((String) args[0]);
+                yield lastValue[0] == null ? 0 : (Integer) lastValue[0];
+            }
+            case "wasNull" -> lastValue[0] == null;
+            case "close" -> null;
+            default -> throw unsupported(method.getName());
+        });
+    }
+
+    private static SQLException unsupported(String methodName) {
+        return new SQLException(methodName + " is not supported by the synthetic catalog");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        InvocationHandler objectMethodsHandler = (proxy, method, args) -> switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "toString" -> "Synthetic" + type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+            default -> handler.invoke(proxy, method, args);
+        };
+        return (T) Proxy.newProxyInstance(SyntheticCatalog.class.getClassLoader(), new Class<?>[]{type}, objectMethodsHandler);
+    }
+}
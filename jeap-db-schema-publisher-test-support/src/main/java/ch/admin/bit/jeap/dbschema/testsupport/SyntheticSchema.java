@@ -0,0 +1,99 @@
+package ch.admin.bit.jeap.dbschema.testsupport;
+
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import ch.admin.bit.jeap.dbschema.model.TableForeignKey;
+import ch.admin.bit.jeap.dbschema.model.TablePrimaryKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Describes a generated schema of {@code tableCount} tables named {@code table_00000}, {@code table_00001}, ... Each
+ * table has the primary key column {@code id}, the nullable column {@code parent_id} and further columns up to
+ * {@code columnsPerTable}. The share {@code foreignKeyDensity} of the tables references a randomly chosen preceding
+ * table with {@code parent_id}. The schema only depends on its parameters, the same parameters always yield the same
+ * tables.
+ * <p>
+ * Served by {@link SyntheticCatalog} without a database, or created in a real one by {@link SyntheticSchemaGenerator}.
+ * In both cases, reading it with the {@code DatabaseModelReader} yields {@link #tables()}.
+ */
+public record SyntheticSchema(
+        String schemaName,
+        int tableCount,
+        int columnsPerTable,
+        double foreignKeyDensity,
+        long seed) {
+
+    public static final String DEFAULT_SCHEMA_NAME = "data";
+
+    /**
+     * Type names as reported by H2, so that the expected model also matches a schema generated in H2
+     */
+    static final String ID_TYPE = "BIGINT";
+    private static final String[] COLUMN_TYPES = {"CHARACTER VARYING", "INTEGER", "TIMESTAMP", "BOOLEAN", "DATE", "BIGINT"};
+
+    public SyntheticSchema {
+        if (tableCount < 0) {
+            throw new IllegalArgumentException("tableCount must not be negative");
+        }
+        if (columnsPerTable < 2) {
+            throw new IllegalArgumentException("columnsPerTable must be at least 2 (id and parent_id)");
+        }
+        if (foreignKeyDensity < 0 || foreignKeyDensity > 1) {
+            throw new IllegalArgumentException("foreignKeyDensity must be between 0 and 1");
+        }
+    }
+
+    /**
+     * @return A schema named {@value #DEFAULT_SCHEMA_NAME} with 10 columns per table, a third of them referencing
+     * another table
+     */
+    public static SyntheticSchema of(int tableCount) {
+        return new SyntheticSchema(DEFAULT_SCHEMA_NAME, tableCount, 10, 1.0 / 3, 0);
+    }
+
+    public SyntheticSchema withSchemaName(String schemaName) {
+        return new SyntheticSchema(schemaName, tableCount, columnsPerTable, foreignKeyDensity, seed);
+    }
+
+    public SyntheticSchema withColumnsPerTable(int columnsPerTable) {
+        return new SyntheticSchema(schemaName, tableCount, columnsPerTable, foreignKeyDensity, seed);
+    }
+
+    public SyntheticSchema withForeignKeyDensity(double foreignKeyDensity) {
+        return new SyntheticSchema(schemaName, tableCount, columnsPerTable, foreignKeyDensity, seed);
+    }
+
+    public SyntheticSchema withSeed(long seed) {
+        return new SyntheticSchema(schemaName, tableCount, columnsPerTable, foreignKeyDensity, seed);
+    }
+
+    /**
+     * @return The tables of the schema in name order, as the {@code DatabaseModelReader} is expected to read them
+     */
+    public List<Table> tables() {
+        Random random = new Random(seed);
+        List<Table> tables = new ArrayList<>(tableCount);
+        for (int t = 0; t < tableCount; t++) {
+            String tableName = tableName(t);
+            List<TableColumn> columns = new ArrayList<>(columnsPerTable);
+            columns.add(new TableColumn("id", ID_TYPE, false));
+            columns.add(new TableColumn("parent_id", ID_TYPE, true));
+            for (int c = 2; c < columnsPerTable; c++) {
+                columns.add(new TableColumn("column_" + c, COLUMN_TYPES[c % COLUMN_TYPES.length], c % 2 == 1));
+            }
+            List<TableForeignKey> foreignKeys = t > 0 && random.nextDouble() < foreignKeyDensity ?
+                    List.of(new TableForeignKey(tableName + "_parent_fk", List.of("parent_id"),
+                            tableName(random.nextInt(t)), List.of("id"))) :
+                    List.of();
+            tables.add(new Table(tableName, columns, foreignKeys, new TablePrimaryKey(tableName + "_pkey", List.of("id"))));
+        }
+        return tables;
+    }
+
+    static String tableName(int index) {
+        return "table_%05d".formatted(index);
+    }
+}
@@ -0,0 +1,73 @@
+package ch.admin.bit.jeap.dbschema.testsupport;
+
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.model.TableColumn;
+import ch.admin.bit.jeap.dbschema.model.TableForeignKey;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Creates a {@link SyntheticSchema} in a real database with plain DDL, e.g. in an in-memory H2 database:
+ * <pre>{@code
+ * try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:large-schema")) {
+ *     SyntheticSchemaGenerator.create(connection, SyntheticSchema.of(10_000));
+ *     ...
+ * }
+ * }</pre>
+ * Identifiers are quoted and keep their case. The column types are the names H2 reports, other databases accept them
+ * as well but may report them differently.
+ */
+public final class SyntheticSchemaGenerator {
+
+    private static final int BATCH_SIZE = 500;
+
+    private SyntheticSchemaGenerator() {
+    }
+
+    /**
+     * Creates the schema and its tables. Fails if the schema already exists.
+     */
+    public static void create(Connection connection, SyntheticSchema schema) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA " + quote(schema.schemaName()));
+            int batched = 0;
+            for (Table table : schema.tables()) {
+                statement.addBatch(createTable(schema.schemaName(), table));
+                if (++batched % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static String createTable(String schemaName, Table table) {
+        StringBuilder sql = new StringBuilder("CREATE TABLE ")
+                .append(quote(schemaName)).append('.').append(quote(table.name())).append(" (");
+        for (TableColumn column : table.columns()) {
+            sql.append(quote(column.name())).append(' ').append(column.type())
+                    .append(column.nullable() ? "" : " NOT NULL").append(", ");
+        }
+        sql.append("CONSTRAINT ").append(quote(table.primaryKey().name()))
+                .append(" PRIMARY KEY (").append(quoteAll(table.primaryKey().columnNames())).append(')');
+        for (TableForeignKey foreignKey : table.foreignKeys()) {
+            sql.append(", CONSTRAINT ").append(quote(foreignKey.name()))
+                    .append(" FOREIGN KEY (").append(quoteAll(foreignKey.columnNames())).append(") REFERENCES ")
+                    .append(quote(schemaName)).append('.').append(quote(foreignKey.referencedTableName()))
+                    .append(" (").append(quoteAll(foreignKey.referencedColumnNames())).append(')');
+        }
+        return sql.append(')').toString();
+    }
+
+    private static String quoteAll(List<String> identifiers) {
+        return identifiers.stream().map(SyntheticSchemaGenerator::quote).collect(Collectors.joining(", "));
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
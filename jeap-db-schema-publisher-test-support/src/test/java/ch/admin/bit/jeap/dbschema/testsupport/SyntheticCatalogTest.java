@@ -0,0 +1,147 @@
+package ch.admin.bit.jeap.dbschema.testsupport;
+
+import ch.admin.bit.jeap.dbschema.model.DatabaseSchema;
+import ch.admin.bit.jeap.dbschema.model.Table;
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SyntheticCatalogTest {
+
+    private final DatabaseModelReader databaseModelReader = new DatabaseModelReader();
+
+    @Test
+    void readDatabaseModel_readsTablesOfSchema() throws SQLException {
+        SyntheticSchema schema = SyntheticSchema.of(1_000);
+        SyntheticCatalog catalog = new SyntheticCatalog(schema);
+
+        DatabaseSchema databaseSchema = databaseModelReader.readDatabaseModel(catalog.dataSource(), "data", "1.0");
+
+        assertThat(databaseSchema.tables()).isEqualTo(schema.tables());
+        assertThat(catalog.getCatalogCalls()).isEqualTo(1 + 3 * 1_000);
+    }
+
+    @Test
+    void readDatabaseModel_whenOtherSchema_thenNoTables() throws SQLException {
+        SyntheticCatalog catalog = new SyntheticCatalog(SyntheticSchema.of(10));
+
+        assertThat(databaseModelReader.readDatabaseModel(catalog.dataSource(), "audit", "1.0").tables()).isEmpty();
+    }
+
+    @Test
+    void readDatabaseModel_addsLatencyToEachCatalogCall() throws SQLException {
+        SyntheticCatalog catalog = new SyntheticCatalog(SyntheticSchema.of(10), Duration.ofMillis(2));
+
+        long start = System.nanoTime();
+        databaseModelReader.readDatabaseModel(catalog.dataSource(), "data", "1.0");
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(2 * 31));
+    }
+
+    @Test
+    void readSchemaFingerprint_usesOneCatalogCallForColumnsAndEachKind() throws SQLException {
+        SyntheticCatalog catalog = new SyntheticCatalog(SyntheticSchema.of(100));
+        SyntheticCatalog withoutForeignKeys = new SyntheticCatalog(SyntheticSchema.of(100).withForeignKeyDensity(0));
+
+        try (Connection connection = catalog.connection();
+             Connection connectionWithoutForeignKeys = withoutForeignKeys.connection()) {
+            assertThat(databaseModelReader.readSchemaFingerprint(connection, "data")).hasSize(64)
+                    .isNotEqualTo(databaseModelReader.readSchemaFingerprint(connectionWithoutForeignKeys, "data"));
+        }
+        // Columns, primary keys and foreign keys
+        assertThat(catalog.getCatalogCalls()).isEqualTo(3);
+    }
+
+    @Test
+    void readSchemaFingerprint_whenKeysOfAllTablesFailOnce_thenFailsAndKeepsReadingThemAtOnce() throws SQLException {
+        SyntheticCatalog catalog = new SyntheticCatalog(SyntheticSchema.of(10));
+        Connection connection = failingPrimaryKeysOnce(catalog.connection(), new SQLTransientConnectionException("Connection reset"));
+
+        assertThatThrownBy(() -> databaseModelReader.readSchemaFingerprint(connection, "data"))
+                .isInstanceOf(SQLTransientConnectionException.class);
+        String fingerprint = databaseModelReader.readSchemaFingerprint(connection, "data");
+
+        assertThat(fingerprint).isEqualTo(databaseModelReader.readSchemaFingerprint(catalog.connection(), "data"));
+        // The columns of the failed fingerprint, then columns and keys of all tables at once for both others
+        assertThat(catalog.getCatalogCalls()).isEqualTo(1 + 3 + 3);
+    }
+
+    @Test
+    void readSchemaFingerprint_whenKeysOfAllTablesNotSupported_thenReadsThemPerTable() throws SQLException {
+        SyntheticCatalog catalog = new SyntheticCatalog(SyntheticSchema.of(10));
+        Connection connection = failingPrimaryKeysOnce(catalog.connection(), new SQLFeatureNotSupportedException("table required"));
+        String expected = new DatabaseModelReader().readSchemaFingerprint(catalog.connection(), "data");
+        long callsBefore = catalog.getCatalogCalls();
+
+        assertThat(databaseModelReader.readSchemaFingerprint(connection, "data")).isEqualTo(expected);
+        assertThat(databaseModelReader.readSchemaFingerprint(connection, "data")).isEqualTo(expected);
+
+        // Columns and the primary and foreign keys of each table
+        assertThat(catalog.getCatalogCalls() - callsBefore).isEqualTo(2 * (1 + 2 * 10));
+    }
+
+    @Test
+    void connection_whenUnsupportedOperation_thenSqlException() {
+        Connection connection = new SyntheticCatalog(SyntheticSchema.of(1)).connection();
+
+        assertThatThrownBy(connection::createStatement)
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("createStatement");
+    }
+
+    @Test
+    void tables_dependOnlyOnParameters() {
+        SyntheticSchema schema = SyntheticSchema.of(100).withColumnsPerTable(5).withSeed(42);
+
+        assertThat(schema.tables()).isEqualTo(schema.tables());
+        assertThat(schema.tables()).isNotEqualTo(schema.withSeed(43).tables());
+        assertThat(schema.tables()).allSatisfy(table -> assertThat(table.columns()).hasSize(5));
+        assertThat(schema.withForeignKeyDensity(0).tables()).allSatisfy(table -> assertThat(table.foreignKeys()).isEmpty());
+        assertThat(schema.withForeignKeyDensity(1).tables()).filteredOn(table -> !table.foreignKeys().isEmpty())
+                .hasSize(99);
+    }
+
+    /**
+     * Fails the first call for the primary keys of all tables of the connection with the given exception.
+     */
+    private static Connection failingPrimaryKeysOnce(Connection connection, SQLException failure) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        AtomicBoolean failed = new AtomicBoolean();
+        DatabaseMetaData failingMetaData = proxy(DatabaseMetaData.class, (method, args) -> {
+            if (method.getName().equals("getPrimaryKeys") && args[2] == null && !failed.getAndSet(true)) {
+                throw failure;
+            }
+            return method.invoke(metaData, args);
+        });
+        return proxy(Connection.class, (method, args) ->
+                method.getName().equals("getMetaData") ? failingMetaData : method.invoke(connection, args));
+    }
+
+    private static <T> T proxy(Class<T> type, Invocation invocation) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (_, method, args) -> {
+            try {
+                return invocation.invoke(method, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }));
+    }
+
+    @FunctionalInterface
+    private interface Invocation {
+        Object invoke(Method method, Object[] args) throws Throwable;
+    }
+}
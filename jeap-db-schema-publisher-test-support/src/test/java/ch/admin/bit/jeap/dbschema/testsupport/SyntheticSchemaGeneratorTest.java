@@ -0,0 +1,25 @@
+package ch.admin.bit.jeap.dbschema.testsupport;
+
+import ch.admin.bit.jeap.dbschema.reader.DatabaseModelReader;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SyntheticSchemaGeneratorTest {
+
+    @Test
+    void create_whenReadFromH2_thenYieldsExpectedTables() throws SQLException {
+        SyntheticSchema schema = SyntheticSchema.of(1_200).withColumnsPerTable(8).withForeignKeyDensity(0.5);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:synthetic-schema")) {
+            SyntheticSchemaGenerator.create(connection, schema);
+
+            assertThat(new DatabaseModelReader().readDatabaseModelFrom(connection, "data", "1.0").tables())
+                    .isEqualTo(schema.tables());
+        }
+    }
+}